@@ -0,0 +1,78 @@
+package com.leespy.benchmark;
+
+import com.leespy.io.PooledByteArrayOutputStream;
+import com.leespy.json.Jsoner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求body编码与JSON输出使用池化缓冲区前后的对比, 用 -prof gc 查看 gc.alloc.rate.norm
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferPoolBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"100"})
+    private int items;
+
+    private Payloads.Order order;
+
+    private String content;
+
+    @Setup
+    public void setup() {
+        order = Payloads.order(items);
+        content = Jsoner.DEFAULT.toJson(order);
+    }
+
+    @Benchmark
+    public int encodeGetBytes() {
+        return content.getBytes(UTF_8).length;
+    }
+
+    @Benchmark
+    public int encodePooled() {
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(content.length() + 16);
+        try {
+            out.writeString(content, UTF_8);
+            return out.size();
+        } finally {
+            out.close();
+        }
+    }
+
+    @Benchmark
+    public int jsonToString() {
+        return Jsoner.DEFAULT.toJson(order).length();
+    }
+
+    @Benchmark
+    public int jsonToPooled() throws IOException {
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(4096);
+        try {
+            Jsoner.DEFAULT.toJson(order, out);
+            return out.size();
+        } finally {
+            out.close();
+        }
+    }
+}
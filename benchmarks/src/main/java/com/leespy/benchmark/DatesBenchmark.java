@@ -0,0 +1,103 @@
+package com.leespy.benchmark;
+
+import com.leespy.date.Dates;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dates常用方法; 时间戳解析对比原先每次经joda DateTime.parse的方式(jodaParse)与parseMillis的各个入口,
+ * parseColumn每次解析1000个, 配合 -prof gc 查看分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatesBenchmark {
+
+    private final Date date = new Date(1462520820000L);
+
+    private final String dateTime = "2016-05-06 15:47:00";
+
+    private final String day = "2016-05-06";
+
+    private final String iso = "2016-05-06T15:47:00.123+08:00";
+
+    private final byte[] line = "2016-05-06 15:47:00 INFO order paid".getBytes(StandardCharsets.US_ASCII);
+
+    private final List<String> column = new ArrayList<String>();
+
+    private final long[] millis = new long[1000];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        long start = 1462520820000L;
+        for (int i = 0; i < millis.length; i++) {
+            column.add(Dates.format(start + i * 1237L));
+        }
+    }
+
+    @Benchmark
+    public String format() {
+        return Dates.format(date);
+    }
+
+    @Benchmark
+    public Date toDate() {
+        return Dates.toDate(dateTime);
+    }
+
+    @Benchmark
+    public Date jodaParse() {
+        return DateTime.parse(dateTime, DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss")).toDate();
+    }
+
+    @Benchmark
+    public long parseMillis() {
+        return Dates.parseMillis(dateTime, "yyyy-MM-dd HH:mm:ss");
+    }
+
+    @Benchmark
+    public long parseMillisIso() {
+        return Dates.parseMillis(iso);
+    }
+
+    @Benchmark
+    public long parseMillisBytes() {
+        return Dates.parseMillis(line, 0, 19);
+    }
+
+    @Benchmark
+    public long[] parseColumn() {
+        Dates.parseMillis(column, "yyyy-MM-dd HH:mm:ss", millis);
+        return millis;
+    }
+
+    @Benchmark
+    public Date startOfDay() {
+        return Dates.startOfDay(date);
+    }
+
+    @Benchmark
+    public Boolean isValidDate() {
+        return Dates.isValidDate(day);
+    }
+}
@@ -0,0 +1,76 @@
+package com.leespy.benchmark;
+
+import com.leespy.http.FormEncoder;
+import com.leespy.io.PooledByteArrayOutputStream;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.message.BasicNameValuePair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 表单body编码: UrlEncodedFormEntity与FormEncoder写入池化数组的对比, 用 -prof gc 查看 gc.alloc.rate.norm
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormEncoderBenchmark {
+
+    @Param({"20"})
+    private int params;
+
+    /**
+     * 值是否含非ASCII字符
+     */
+    @Param({"false", "true"})
+    private boolean unicode;
+
+    private Map<String, String> form;
+
+    @Setup
+    public void setup() {
+        form = new LinkedHashMap<String, String>();
+        for (int i = 0; i < params; i++) {
+            form.put("param_" + i, (unicode ? "竞价 " : "bid ") + "value-" + i * 7919);
+        }
+    }
+
+    @Benchmark
+    public long urlEncodedFormEntity() {
+        List<NameValuePair> parameters = new ArrayList<NameValuePair>();
+        for (Map.Entry<String, String> param : form.entrySet()) {
+            parameters.add(new BasicNameValuePair(param.getKey(), param.getValue()));
+        }
+        return new UrlEncodedFormEntity(parameters, Charset.forName("UTF-8")).getContentLength();
+    }
+
+    @Benchmark
+    public int formEncoder() {
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(form.size() * 32 + 16);
+        try {
+            FormEncoder.writeForm(form, FormEncoder.charset("UTF-8"), out);
+            return out.size();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.leespy.benchmark;
+
+import com.leespy.http.Http;
+import com.leespy.http.HttpAgent;
+import com.leespy.http.HttpConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpAgent与Http对本地服务的往返.
+ * SampleTime模式输出p50/p99/p999延迟, 配合 -prof gc 查看分配速率
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class HttpBenchmark {
+
+    @Param({"1024"})
+    private int bodySize;
+
+    private LocalHttpServer server;
+
+    private HttpAgent agent;
+
+    private String url;
+
+    private String content;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new LocalHttpServer(bodySize, 8);
+        url = server.url();
+        agent = HttpAgent.create(new HttpConfig());
+        char[] chars = new char[bodySize];
+        Arrays.fill(chars, 'y');
+        content = new String(chars);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        agent.shutdown();
+        server.close();
+    }
+
+    @Benchmark
+    public String agentGet() {
+        return agent.doGet(url);
+    }
+
+    @Benchmark
+    public String agentPost() {
+        return agent.doPost(url, content);
+    }
+
+    @Benchmark
+    public String httpGet() {
+        return Http.get(url).request();
+    }
+
+    @Benchmark
+    public String httpPost() {
+        return Http.post(url).body(content).request();
+    }
+}
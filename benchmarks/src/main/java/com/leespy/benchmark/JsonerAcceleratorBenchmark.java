@@ -0,0 +1,59 @@
+package com.leespy.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.leespy.json.Jsoner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 反射访问属性的Jsoner.DEFAULT与为DTO生成访问类的Jsoner.accelerated对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonerAcceleratorBenchmark {
+
+    @Param({"PLAIN", "ACCELERATED"})
+    private String mode;
+
+    @Param({"1", "100", "10000"})
+    private int items;
+
+    private Jsoner jsoner;
+
+    private Payloads.Order order;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        jsoner = "PLAIN".equals(mode) ? Jsoner.DEFAULT
+                : Jsoner.accelerated(JsonInclude.Include.ALWAYS, Payloads.Order.class, Payloads.Item.class);
+        order = Payloads.order(items);
+        json = jsoner.toJson(order);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return jsoner.toJson(order);
+    }
+
+    @Benchmark
+    public Payloads.Order fromJson() {
+        return jsoner.fromJson(json, Payloads.Order.class);
+    }
+}
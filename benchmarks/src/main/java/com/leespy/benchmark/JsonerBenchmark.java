@@ -0,0 +1,57 @@
+package com.leespy.benchmark;
+
+import com.leespy.json.Jsoner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jsoner三种预设在不同数据量下的序列化与反序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonerBenchmark {
+
+    @Param({"DEFAULT", "EXCLUDE_EMPTY", "EXCLUDE_DEFAULT"})
+    private String preset;
+
+    @Param({"1", "100", "10000"})
+    private int items;
+
+    private Jsoner jsoner;
+
+    private Payloads.Order order;
+
+    private String json;
+
+    @Setup
+    public void setup() throws Exception {
+        jsoner = (Jsoner) Jsoner.class.getField(preset).get(null);
+        order = Payloads.order(items);
+        json = jsoner.toJson(order);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return jsoner.toJson(order);
+    }
+
+    @Benchmark
+    public Payloads.Order fromJson() {
+        return jsoner.fromJson(json, Payloads.Order.class);
+    }
+}
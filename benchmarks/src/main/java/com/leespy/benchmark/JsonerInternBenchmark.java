@@ -0,0 +1,55 @@
+package com.leespy.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.leespy.json.Jsoner;
+import com.leespy.json.StringCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jsoner.DEFAULT与经StringCache共享重复字符串值的Jsoner.interning对比, 配合-prof gc比较分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonerInternBenchmark {
+
+    @Param({"PLAIN", "INTERNING"})
+    private String mode;
+
+    @Param({"1", "100", "10000"})
+    private int items;
+
+    private Jsoner jsoner;
+
+    private Payloads.Order order;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        jsoner = "PLAIN".equals(mode) ? Jsoner.DEFAULT
+                : Jsoner.interning(JsonInclude.Include.ALWAYS, new StringCache(4096, 32));
+        order = Payloads.order(items);
+        json = jsoner.toJson(order);
+    }
+
+    @Benchmark
+    public Payloads.Order fromJson() {
+        return jsoner.fromJson(json, Payloads.Order.class);
+    }
+}
@@ -0,0 +1,64 @@
+package com.leespy.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.leespy.json.JsonProjection;
+import com.leespy.json.Jsoner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只取订单中少数字段时, 按JSON Pointer投影与构建整棵树、绑定整个对象的对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonerProjectionBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int items;
+
+    private String json;
+
+    private JsonProjection projection;
+
+    @Setup
+    public void setup() {
+        json = Jsoner.DEFAULT.toJson(Payloads.order(items));
+        projection = JsonProjection.compile("/id", "/items/0/skuId");
+    }
+
+    @Benchmark
+    public Long extract() {
+        return Jsoner.DEFAULT.extract(json, "/items/0/skuId", Long.class);
+    }
+
+    @Benchmark
+    public JsonNode[] project() throws IOException {
+        return Jsoner.DEFAULT.project(json, projection);
+    }
+
+    @Benchmark
+    public long tree() throws IOException {
+        return Jsoner.DEFAULT.treeFromJson(json).at("/items/0/skuId").asLong();
+    }
+
+    @Benchmark
+    public long bind() {
+        return Jsoner.DEFAULT.fromJson(json, Payloads.Order.class).getItems().get(0).getSkuId();
+    }
+}
@@ -0,0 +1,112 @@
+package com.leespy.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 基准测试用的本地http服务: GET返回固定长度的body, POST回显请求body, 可以给每个请求注入固定延迟
+ */
+public class LocalHttpServer implements Closeable {
+
+    static {
+        // without it the JDK server waits on delayed ACKs and every request costs ~40ms
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final byte[] body;
+
+    private final long latencyMillis;
+
+    public LocalHttpServer(int bodySize, int threads) throws IOException {
+        this(bodySize, threads, 0);
+    }
+
+    /**
+     * @param latencyMillis 每个请求响应前休眠的时间(ms)
+     */
+    public LocalHttpServer(int bodySize, int threads, long latencyMillis) throws IOException {
+        this.body = new byte[bodySize];
+        this.latencyMillis = latencyMillis;
+        Arrays.fill(body, (byte) 'x');
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                LocalHttpServer.this.handle(exchange);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * 服务根地址, 如 http://127.0.0.1:8080/
+     */
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    protected void handle(HttpExchange exchange) throws IOException {
+        byte[] response = body;
+        if ("POST".equals(exchange.getRequestMethod())) {
+            response = readAll(exchange.getRequestBody());
+        } else {
+            drain(exchange.getRequestBody());
+        }
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(200, response.length == 0 ? -1 : response.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(response);
+        out.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        byte[] buf = new byte[1024];
+        int count = 0;
+        int n;
+        while ((n = in.read(buf, count, buf.length - count)) != -1) {
+            count += n;
+            if (count == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+        }
+        in.close();
+        return Arrays.copyOf(buf, count);
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buf = new byte[256];
+        while (in.read(buf) != -1) {
+            // discard
+        }
+        in.close();
+    }
+}
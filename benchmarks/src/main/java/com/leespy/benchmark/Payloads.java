@@ -0,0 +1,190 @@
+package com.leespy.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试用的数据对象
+ */
+public class Payloads {
+
+    private Payloads() {
+    }
+
+    /**
+     * 构造包含items个明细的订单, 部分属性为空或默认值, 使三种Jsoner预设的输出有差异
+     */
+    public static Order order(int items) {
+        Order order = new Order();
+        order.setId(20160506L);
+        order.setBuyer("leespy");
+        order.setStatus("PAID");
+        order.setRemark("");
+        order.setTags(new ArrayList<String>());
+        order.getTags().add("vip");
+        order.getTags().add("express");
+        order.setAttributes(new LinkedHashMap<String, String>());
+        order.getAttributes().put("channel", "app");
+        order.getAttributes().put("region", "cn-hz");
+        List<Item> list = new ArrayList<Item>(items);
+        for (int i = 0; i < items; i++) {
+            Item item = new Item();
+            item.setSkuId(1000000L + i);
+            item.setName("item-" + i);
+            item.setQuantity(i % 5);
+            item.setPrice(i * 1.25);
+            item.setGift(i % 7 == 0);
+            list.add(item);
+        }
+        order.setItems(list);
+        return order;
+    }
+
+    public static class Order {
+
+        private long id;
+
+        private String buyer;
+
+        private String status;
+
+        private String remark;
+
+        private String coupon;
+
+        private int points;
+
+        private List<String> tags;
+
+        private Map<String, String> attributes;
+
+        private List<Item> items;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public String getBuyer() {
+            return buyer;
+        }
+
+        public void setBuyer(String buyer) {
+            this.buyer = buyer;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public String getRemark() {
+            return remark;
+        }
+
+        public void setRemark(String remark) {
+            this.remark = remark;
+        }
+
+        public String getCoupon() {
+            return coupon;
+        }
+
+        public void setCoupon(String coupon) {
+            this.coupon = coupon;
+        }
+
+        public int getPoints() {
+            return points;
+        }
+
+        public void setPoints(int points) {
+            this.points = points;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+    }
+
+    public static class Item {
+
+        private long skuId;
+
+        private String name;
+
+        private int quantity;
+
+        private double price;
+
+        private boolean gift;
+
+        public long getSkuId() {
+            return skuId;
+        }
+
+        public void setSkuId(long skuId) {
+            this.skuId = skuId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(int quantity) {
+            this.quantity = quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public boolean isGift() {
+            return gift;
+        }
+
+        public void setGift(boolean gift) {
+            this.gift = gift;
+        }
+    }
+}
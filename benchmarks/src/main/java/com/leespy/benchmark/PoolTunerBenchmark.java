@@ -0,0 +1,78 @@
+package com.leespy.benchmark;
+
+import com.leespy.http.HttpAgent;
+import com.leespy.http.HttpConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池自动调整: 两个注入了延迟的本地服务, 热点主机由16个线程请求, 冷主机偶尔请求一次.
+ * 每个Route初始只有2个连接、总数上限24; 固定配置下热点主机受限于2个连接,
+ * 开启adaptivePool后在预热期间扩容到接近并发数, 冷主机保持在最小值
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class PoolTunerBenchmark {
+
+    @Param({"false", "true"})
+    private boolean adaptive;
+
+    @Param({"5"})
+    private long latencyMillis;
+
+    private LocalHttpServer hot;
+
+    private LocalHttpServer cold;
+
+    private HttpAgent agent;
+
+    private String hotUrl;
+
+    private String coldUrl;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        hot = new LocalHttpServer(256, 32, latencyMillis);
+        cold = new LocalHttpServer(256, 4, latencyMillis);
+        hotUrl = hot.url();
+        coldUrl = cold.url();
+        HttpConfig config = new HttpConfig();
+        config.setMaxConnectionsPerRoute(2);
+        config.setMaxConnections(24);
+        config.setAdaptivePool(adaptive);
+        config.setAdaptivePoolIntervalMillis(500);
+        agent = HttpAgent.create(config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        agent.shutdown();
+        hot.close();
+        cold.close();
+    }
+
+    @Benchmark
+    public String get() {
+        // one request in a hundred goes to the cold route
+        return agent.doGet(System.nanoTime() % 100 == 0 ? coldUrl : hotUrl);
+    }
+}
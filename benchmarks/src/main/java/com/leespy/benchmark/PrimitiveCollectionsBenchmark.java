@@ -0,0 +1,86 @@
+package com.leespy.benchmark;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.leespy.collect.LongList;
+import com.leespy.json.Jsoner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数值数组在ArrayList&lt;Long&gt;、LongList与long[]之间的序列化对比, 配合-prof gc比较每次操作的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveCollectionsBenchmark {
+
+    @Param({"1000", "1000000"})
+    private int size;
+
+    private List<Long> boxed;
+
+    private LongList list;
+
+    private long[] array;
+
+    private JavaType boxedType;
+
+    private String json;
+
+    @Setup
+    public void setup() {
+        boxed = new ArrayList<Long>(size);
+        list = new LongList(size);
+        array = new long[size];
+        long timestamp = 1462521600000L;
+        for (int i = 0; i < size; i++) {
+            long value = timestamp + i * 1000L;
+            boxed.add(value);
+            list.add(value);
+            array[i] = value;
+        }
+        boxedType = Jsoner.DEFAULT.createCollectionType(ArrayList.class, Long.class);
+        json = Jsoner.DEFAULT.toJson(array);
+    }
+
+    @Benchmark
+    public List<Long> fromJsonBoxed() {
+        return Jsoner.DEFAULT.fromJson(json, boxedType);
+    }
+
+    @Benchmark
+    public LongList fromJsonLongList() {
+        return Jsoner.DEFAULT.fromJson(json, LongList.class);
+    }
+
+    @Benchmark
+    public long[] fromJsonArray() {
+        return Jsoner.DEFAULT.fromJson(json, long[].class);
+    }
+
+    @Benchmark
+    public String toJsonBoxed() {
+        return Jsoner.DEFAULT.toJson(boxed);
+    }
+
+    @Benchmark
+    public String toJsonLongList() {
+        return Jsoner.DEFAULT.toJson(list);
+    }
+}
@@ -0,0 +1,118 @@
+package com.leespy.benchmark.load;
+
+import com.leespy.benchmark.LocalHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测用的本地http服务: 在LocalHttpServer的基础上按比例注入延迟与故障.
+ * 每个请求依次判定: 断开连接不响应、返回500、慢响应, 否则正常响应; 所有响应都先经过基础延迟与随机抖动
+ */
+public class FaultInjectingServer extends LocalHttpServer {
+
+    private static final byte[] ERROR_BODY = "injected error".getBytes();
+
+    private final long latencyMillis;
+
+    private final long jitterMillis;
+
+    private final double slowRatio;
+
+    private final long slowLatencyMillis;
+
+    private final double errorRatio;
+
+    private final double dropRatio;
+
+    private final AtomicLong slow = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong drops = new AtomicLong();
+
+    /**
+     * @param latencyMillis     每个请求的基础延迟(ms)
+     * @param jitterMillis      在基础延迟上均匀附加0~jitterMillis的延迟
+     * @param slowRatio         慢响应的比例
+     * @param slowLatencyMillis 慢响应额外的延迟(ms)
+     * @param errorRatio        返回500的比例
+     * @param dropRatio         读完请求后直接断开连接的比例
+     */
+    public FaultInjectingServer(int bodySize, int threads, long latencyMillis, long jitterMillis,
+                                double slowRatio, long slowLatencyMillis, double errorRatio, double dropRatio)
+            throws IOException {
+        super(bodySize, threads);
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.slowRatio = slowRatio;
+        this.slowLatencyMillis = slowLatencyMillis;
+        this.errorRatio = errorRatio;
+        this.dropRatio = dropRatio;
+    }
+
+    public long getSlow() {
+        return slow.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getDrops() {
+        return drops.get();
+    }
+
+    @Override
+    protected void handle(HttpExchange exchange) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double fault = random.nextDouble();
+        if (fault < dropRatio) {
+            drops.incrementAndGet();
+            drain(exchange.getRequestBody());
+            // closing before the response headers are sent aborts the connection
+            exchange.close();
+            return;
+        }
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        boolean error = fault < dropRatio + errorRatio;
+        if (!error && fault < dropRatio + errorRatio + slowRatio) {
+            slow.incrementAndGet();
+            delay += slowLatencyMillis;
+        }
+        sleep(delay);
+        if (!error) {
+            super.handle(exchange);
+            return;
+        }
+        errors.incrementAndGet();
+        drain(exchange.getRequestBody());
+        exchange.sendResponseHeaders(500, ERROR_BODY.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(ERROR_BODY);
+        out.close();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buf = new byte[256];
+        while (in.read(buf) != -1) {
+            // discard
+        }
+        in.close();
+    }
+}
@@ -0,0 +1,322 @@
+package com.leespy.benchmark.load;
+
+import com.leespy.http.HttpAgent;
+import com.leespy.http.HttpConfig;
+import com.leespy.http.Response;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.PoolStats;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 开放模型压测: 按固定到达率发出混合请求, 不论之前的请求是否完成, 模拟相互独立的大量调用方.
+ * 延迟从请求的计划发出时刻算起, 客户端线程或连接池耗尽时的排队时间同样计入, 修正了coordinated omission;
+ * 从实际发出时刻算起的服务时间一并输出作对照, 两者差距越大说明排队越严重.
+ * 默认请求内嵌的本地服务, 可以注入延迟、抖动、慢响应、500与断开连接; 每秒输出一行进度, 结束时输出
+ * 延迟分位数、吞吐、各请求结果、连接池占用、GC与客户端线程的分配量
+ * <pre>
+ * java -cp target/benchmarks.jar com.leespy.benchmark.load.LoadGenerator --rate 2000 --duration 30 \
+ *     --mix agentGet=70,agentPost=20,httpGet=10 --latency 5 --error-ratio 0.01 --http.maxConnectionsPerRoute 50
+ * </pre>
+ */
+public class LoadGenerator {
+
+    private static final long POOL_SAMPLE_MILLIS = 100;
+
+    private final LoadOptions options;
+
+    private final HttpAgent agent;
+
+    private final String url;
+
+    /**
+     * 压测目标的连接池Route, 占用与排队按它统计
+     */
+    private final HttpRoute route;
+
+    private final String content;
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private final List<Thread> clientThreads = new ArrayList<Thread>();
+
+    private final ThreadPoolExecutor clients;
+
+    private final LoadReport report;
+
+    /**
+     * 所有阶段的延迟, 用于每秒的进度输出
+     */
+    private final Recorder progress = new Recorder(3);
+
+    private final AtomicLong submitted = new AtomicLong();
+
+    private final AtomicLong finished = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile long measureStartNanos = Long.MAX_VALUE;
+
+    private volatile long measureEndNanos = Long.MAX_VALUE;
+
+    /**
+     * 报告已结束, 之后被中断或完成的请求不再计入
+     */
+    private volatile boolean reported;
+
+    public LoadGenerator(LoadOptions options, String url) {
+        this.options = options;
+        this.url = url;
+        URI uri = URI.create(url);
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+        this.route = new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+        this.agent = HttpAgent.create(options.getHttpConfig());
+        char[] chars = new char[options.getPostSize()];
+        Arrays.fill(chars, 'y');
+        this.content = new String(chars);
+
+        Map<Operation, Integer> mix = options.getMix();
+        this.operations = mix.keySet().toArray(new Operation[mix.size()]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+
+        this.clients = new ThreadPoolExecutor(options.getThreads(), options.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "load-client-" + index.getAndIncrement());
+                thread.setDaemon(true);
+                synchronized (clientThreads) {
+                    clientThreads.add(thread);
+                }
+                return thread;
+            }
+        });
+        clients.prestartAllCoreThreads();
+        this.report = new LoadReport(clientThreads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && "--help".equals(args[0])) {
+            System.out.println(LoadOptions.USAGE);
+            return;
+        }
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        FaultInjectingServer server = null;
+        String url = options.getUrl();
+        if (url == null) {
+            server = new FaultInjectingServer(options.getBodySize(), options.getServerThreads(),
+                    options.getLatencyMillis(), options.getJitterMillis(), options.getSlowRatio(),
+                    options.getSlowLatencyMillis(), options.getErrorRatio(), options.getDropRatio());
+            url = server.url();
+        }
+        try {
+            LoadGenerator generator = new LoadGenerator(options, url);
+            generator.printHeader(System.out, server);
+            LoadReport report = generator.run(System.out);
+            report.print(System.out, options.getRate());
+            if (server != null) {
+                System.out.printf("server: injected slow %d, errors %d, drops %d%n",
+                        server.getSlow(), server.getErrors(), server.getDrops());
+            }
+            if (options.getHgrm() != null) {
+                PrintStream out = new PrintStream(new FileOutputStream(options.getHgrm()));
+                try {
+                    // recorded in microseconds, output in milliseconds
+                    report.getCorrected().outputPercentileDistribution(out, 1000.0);
+                } finally {
+                    out.close();
+                }
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 预热后测量options.duration秒, 之后最多等待options.drain秒让未完成的请求结束
+     */
+    public LoadReport run(final PrintStream out) throws InterruptedException {
+        final double periodNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        final long start = System.nanoTime();
+        measureStartNanos = start + TimeUnit.SECONDS.toNanos(options.getWarmup());
+        measureEndNanos = measureStartNanos + TimeUnit.SECONDS.toNanos(options.getDuration());
+
+        ScheduledExecutorService monitor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "load-monitor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        monitor.scheduleAtFixedRate(new Runnable() {
+            private Histogram interval;
+
+            private long second;
+
+            @Override
+            public void run() {
+                interval = progress.getIntervalHistogram(interval);
+                printProgress(out, ++second, interval);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+        monitor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                long now = System.nanoTime();
+                if (now >= measureStartNanos && now < measureEndNanos) {
+                    report.samplePool(agent.getConnManager().getStats(route));
+                }
+            }
+        }, POOL_SAMPLE_MILLIS, POOL_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+
+        boolean measuring = false;
+        for (long i = 0; ; i++) {
+            // the schedule is fixed up front, a late dispatcher catches up instead of skipping requests
+            final long intended = start + (long) (i * periodNanos);
+            if (intended >= measureEndNanos) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!measuring && intended >= measureStartNanos) {
+                measuring = true;
+                report.start(measureEndNanos);
+            }
+            final Operation operation = choose();
+            submitted.incrementAndGet();
+            clients.execute(new Runnable() {
+                @Override
+                public void run() {
+                    call(operation, intended);
+                }
+            });
+        }
+
+        // the client threads stay alive until finish() has read their allocation counters
+        long drainEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.getDrain());
+        while (finished.get() < submitted.get() && System.nanoTime() < drainEnd) {
+            Thread.sleep(10);
+        }
+        report.finish(submitted.get() - finished.get());
+        reported = true;
+        clients.shutdownNow();
+        monitor.shutdownNow();
+        agent.shutdown();
+        return report;
+    }
+
+    private Operation choose() {
+        if (operations.length == 1) {
+            return operations[0];
+        }
+        int point = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private void call(Operation operation, long intended) {
+        long start = System.nanoTime();
+        String outcome;
+        try {
+            Response response = operation.execute(agent, url, content);
+            try {
+                response.bytes();
+                outcome = response.isOk() ? "ok" : String.valueOf(response.status());
+            } finally {
+                response.close();
+            }
+        } catch (Exception e) {
+            outcome = e.getClass().getSimpleName();
+        }
+        long end = System.nanoTime();
+        if (reported) {
+            return;
+        }
+        if (!"ok".equals(outcome)) {
+            failures.incrementAndGet();
+        }
+        progress.recordValue(TimeUnit.NANOSECONDS.toMicros(end - intended));
+        if (intended >= measureStartNanos) {
+            report.record(operation, outcome, intended, start, end);
+        }
+        finished.incrementAndGet();
+    }
+
+    private void printHeader(PrintStream out, FaultInjectingServer server) {
+        HttpConfig config = options.getHttpConfig();
+        StringBuilder mix = new StringBuilder();
+        for (Map.Entry<Operation, Integer> entry : options.getMix().entrySet()) {
+            mix.append(' ').append(entry.getKey().label()).append('=').append(entry.getValue());
+        }
+        out.printf("open-model load: %.1f req/s for %ds after %ds warmup, %d client threads, mix%s%n",
+                options.getRate(), options.getDuration(), options.getWarmup(), options.getThreads(), mix);
+        if (server != null) {
+            out.printf("server: %s, latency %dms + 0..%dms, slow %.2f%% +%dms, errors %.2f%%, drops %.2f%%%n",
+                    url, options.getLatencyMillis(), options.getJitterMillis(), options.getSlowRatio() * 100,
+                    options.getSlowLatencyMillis(), options.getErrorRatio() * 100, options.getDropRatio() * 100);
+        } else {
+            out.printf("server: %s%n", url);
+        }
+        out.printf("agent: maxConnections %d, maxConnectionsPerRoute %d, adaptivePool %s, connectionTimeout %dms, "
+                        + "timeout %dms, retries %d%n", config.getMaxConnections(), config.getMaxConnectionsPerRoute(),
+                config.isAdaptivePool(), config.getConnectionTimeout(), config.getTimeout(), config.getRetries());
+    }
+
+    private void printProgress(PrintStream out, long second, Histogram interval) {
+        PoolStats pool = agent.getConnManager().getStats(route);
+        long now = System.nanoTime();
+        String phase = now < measureStartNanos ? "warmup" : now < measureEndNanos ? "measure" : "drain";
+        out.printf("%4ds %-7s  done %6d/s  p50 %8.3fms  p99 %8.3fms  max %8.3fms  failures %d  "
+                        + "pool %d/%d pending %d  queued %d%n",
+                second, phase, interval.getTotalCount(), interval.getValueAtPercentile(50) / 1000.0,
+                interval.getValueAtPercentile(99) / 1000.0, interval.getMaxValue() / 1000.0, failures.get(),
+                pool.getLeased(), pool.getMax(), pool.getPending(), clients.getQueue().size());
+    }
+}
@@ -0,0 +1,273 @@
+package com.leespy.benchmark.load;
+
+import com.leespy.http.HttpConfig;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LoadGenerator的命令行参数, 形如 --rate 2000; --http.属性名 值 设置HttpAgent使用的HttpConfig
+ */
+public class LoadOptions {
+
+    static final String USAGE = "usage: java -cp benchmarks.jar com.leespy.benchmark.load.LoadGenerator [options]\n"
+            + "  --help                   print this message\n"
+            + "  --rate <n>               requests per second, issued on schedule whether or not earlier ones finished (1000)\n"
+            + "  --duration <s>           measured seconds (30)\n"
+            + "  --warmup <s>             seconds at the same rate before measuring (10)\n"
+            + "  --threads <n>            client threads; requests queue when all are busy (256)\n"
+            + "  --drain <s>              seconds to wait for outstanding requests after the run (30)\n"
+            + "  --mix <op=w,...>         weights of agentGet, agentPost, httpGet, httpPost (agentGet=70,agentPost=30)\n"
+            + "  --body <bytes>           response body size of GET (1024)\n"
+            + "  --post <bytes>           request body size of POST (256)\n"
+            + "  --url <url>              drive an external server instead of the embedded one\n"
+            + "  --server-threads <n>     embedded server threads (64)\n"
+            + "  --latency <ms>           base latency of every response (0)\n"
+            + "  --jitter <ms>            extra uniform latency 0..jitter (0)\n"
+            + "  --slow-ratio <r>         ratio of slow responses (0)\n"
+            + "  --slow-latency <ms>      extra latency of slow responses (500)\n"
+            + "  --error-ratio <r>        ratio of 500 responses (0)\n"
+            + "  --drop-ratio <r>         ratio of connections closed without a response (0)\n"
+            + "  --hgrm <file>            write the corrected percentile distribution (HdrHistogram format)\n"
+            + "  --http.<property> <v>    any HttpConfig property, e.g. --http.maxConnectionsPerRoute 50 --http.retries 1";
+
+    private double rate = 1000;
+
+    private int duration = 30;
+
+    private int warmup = 10;
+
+    private int threads = 256;
+
+    private int drain = 30;
+
+    private final Map<Operation, Integer> mix = new LinkedHashMap<Operation, Integer>();
+
+    private int bodySize = 1024;
+
+    private int postSize = 256;
+
+    private String url;
+
+    private int serverThreads = 64;
+
+    private long latencyMillis;
+
+    private long jitterMillis;
+
+    private double slowRatio;
+
+    private long slowLatencyMillis = 500;
+
+    private double errorRatio;
+
+    private double dropRatio;
+
+    private String hgrm;
+
+    private final HttpConfig httpConfig = new HttpConfig();
+
+    /**
+     * 同一属性出现多次时以最后一次为准
+     *
+     * @throws IllegalArgumentException 未知参数或值不合法
+     */
+    public static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        options.mix.put(Operation.AGENT_GET, 70);
+        options.mix.put(Operation.AGENT_POST, 30);
+        for (int i = 0; i < args.length; i += 2) {
+            String name = args[i];
+            if (!name.startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("expected --name value, but got: " + name);
+            }
+            options.set(name.substring(2), args[i + 1]);
+        }
+        if (options.rate <= 0 || options.duration <= 0 || options.threads <= 0) {
+            throw new IllegalArgumentException("rate, duration and threads must be positive");
+        }
+        return options;
+    }
+
+    private void set(String name, String value) {
+        if (name.startsWith("http.")) {
+            setHttpConfig(name.substring(5), value);
+            return;
+        }
+        try {
+            if ("rate".equals(name)) {
+                rate = Double.parseDouble(value);
+            } else if ("duration".equals(name)) {
+                duration = Integer.parseInt(value);
+            } else if ("warmup".equals(name)) {
+                warmup = Integer.parseInt(value);
+            } else if ("threads".equals(name)) {
+                threads = Integer.parseInt(value);
+            } else if ("drain".equals(name)) {
+                drain = Integer.parseInt(value);
+            } else if ("mix".equals(name)) {
+                parseMix(value);
+            } else if ("body".equals(name)) {
+                bodySize = Integer.parseInt(value);
+            } else if ("post".equals(name)) {
+                postSize = Integer.parseInt(value);
+            } else if ("url".equals(name)) {
+                url = value;
+            } else if ("server-threads".equals(name)) {
+                serverThreads = Integer.parseInt(value);
+            } else if ("latency".equals(name)) {
+                latencyMillis = Long.parseLong(value);
+            } else if ("jitter".equals(name)) {
+                jitterMillis = Long.parseLong(value);
+            } else if ("slow-ratio".equals(name)) {
+                slowRatio = Double.parseDouble(value);
+            } else if ("slow-latency".equals(name)) {
+                slowLatencyMillis = Long.parseLong(value);
+            } else if ("error-ratio".equals(name)) {
+                errorRatio = Double.parseDouble(value);
+            } else if ("drop-ratio".equals(name)) {
+                dropRatio = Double.parseDouble(value);
+            } else if ("hgrm".equals(name)) {
+                hgrm = value;
+            } else {
+                throw new IllegalArgumentException("unknown option: --" + name);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("illegal value of --" + name + ": " + value);
+        }
+    }
+
+    private void parseMix(String value) {
+        mix.clear();
+        for (String part : value.split(",")) {
+            String[] pair = part.split("=");
+            Operation operation = Operation.of(pair[0].trim());
+            int weight = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            if (operation == null || weight < 0) {
+                throw new IllegalArgumentException("illegal mix: " + part);
+            }
+            if (weight > 0) {
+                mix.put(operation, weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("empty mix: " + value);
+        }
+    }
+
+    private void setHttpConfig(String property, String value) {
+        if (property.isEmpty()) {
+            throw new IllegalArgumentException("missing HttpConfig property after --http.");
+        }
+        String setter = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (Method method : HttpConfig.class.getMethods()) {
+            if (method.getName().equals(setter) && method.getParameterTypes().length == 1) {
+                try {
+                    method.invoke(httpConfig, convert(method.getParameterTypes()[0], value));
+                    return;
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException("can not set http." + property, e);
+                } catch (InvocationTargetException e) {
+                    throw new IllegalArgumentException("can not set http." + property, e.getCause());
+                }
+            }
+        }
+        throw new IllegalArgumentException("unknown HttpConfig property: " + property);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(Class<?> type, String value) {
+        try {
+            if (type == int.class || type == Integer.class) {
+                return Integer.valueOf(value);
+            } else if (type == long.class || type == Long.class) {
+                return Long.valueOf(value);
+            } else if (type == double.class || type == Double.class) {
+                return Double.valueOf(value);
+            } else if (type == boolean.class || type == Boolean.class) {
+                return Boolean.valueOf(value);
+            } else if (type == String.class) {
+                return value;
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<Enum>) type, value);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("illegal " + type.getSimpleName() + ": " + value);
+        }
+        throw new IllegalArgumentException("unsupported property type: " + type.getName());
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getDrain() {
+        return drain;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public int getBodySize() {
+        return bodySize;
+    }
+
+    public int getPostSize() {
+        return postSize;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getServerThreads() {
+        return serverThreads;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public long getJitterMillis() {
+        return jitterMillis;
+    }
+
+    public double getSlowRatio() {
+        return slowRatio;
+    }
+
+    public long getSlowLatencyMillis() {
+        return slowLatencyMillis;
+    }
+
+    public double getErrorRatio() {
+        return errorRatio;
+    }
+
+    public double getDropRatio() {
+        return dropRatio;
+    }
+
+    public String getHgrm() {
+        return hgrm;
+    }
+
+    public HttpConfig getHttpConfig() {
+        return httpConfig;
+    }
+}
@@ -0,0 +1,237 @@
+package com.leespy.benchmark.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.http.pool.PoolStats;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 测量阶段的统计: 两种延迟直方图(us)、各请求类型的结果、连接池采样、GC次数与客户端线程的分配量
+ */
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    /**
+     * 从计划发出时刻算起
+     */
+    private final Histogram corrected = new ConcurrentHistogram(3);
+
+    /**
+     * 从实际发出时刻算起
+     */
+    private final Histogram service = new ConcurrentHistogram(3);
+
+    private final ConcurrentMap<Operation, ConcurrentMap<String, AtomicLong>> outcomes
+            = new ConcurrentHashMap<Operation, ConcurrentMap<String, AtomicLong>>();
+
+    /**
+     * 在测量窗口内完成的请求数, 用于计算吞吐
+     */
+    private final AtomicLong completedInWindow = new AtomicLong();
+
+    private final List<Thread> clientThreads;
+
+    // pool samples, only touched by the sampling thread
+    private long poolSamples;
+
+    private long leasedSum;
+
+    private int maxLeased;
+
+    private int poolMax;
+
+    private long saturatedSamples;
+
+    private long pendingSamples;
+
+    private int maxPending;
+
+    private long startNanos;
+
+    private long endNanos;
+
+    private long elapsedNanos;
+
+    private long[] gcStart;
+
+    private long[] gcEnd;
+
+    private long allocatedStart;
+
+    private long allocated = -1;
+
+    private long unfinished;
+
+    public LoadReport(List<Thread> clientThreads) {
+        this.clientThreads = clientThreads;
+    }
+
+    /**
+     * @param endNanos 测量窗口的结束时刻, 之后完成的请求只计入延迟
+     */
+    void start(long endNanos) {
+        this.startNanos = System.nanoTime();
+        this.endNanos = endNanos;
+        gcStart = gcCounters();
+        allocatedStart = allocatedBytes();
+    }
+
+    void finish(long unfinished) {
+        elapsedNanos = System.nanoTime() - startNanos;
+        gcEnd = gcCounters();
+        long bytes = allocatedBytes();
+        allocated = bytes < 0 || allocatedStart < 0 ? -1 : bytes - allocatedStart;
+        this.unfinished = unfinished;
+    }
+
+    void record(Operation operation, String outcome, long intendedNanos, long startNanos, long endNanos) {
+        corrected.recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - intendedNanos));
+        service.recordValue(TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos));
+        if (endNanos < this.endNanos) {
+            completedInWindow.incrementAndGet();
+        }
+        ConcurrentMap<String, AtomicLong> counts = outcomes.get(operation);
+        if (counts == null) {
+            ConcurrentMap<String, AtomicLong> created = new ConcurrentHashMap<String, AtomicLong>();
+            counts = outcomes.putIfAbsent(operation, created);
+            if (counts == null) {
+                counts = created;
+            }
+        }
+        AtomicLong count = counts.get(outcome);
+        if (count == null) {
+            AtomicLong created = new AtomicLong();
+            count = counts.putIfAbsent(outcome, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    void samplePool(PoolStats stats) {
+        poolSamples++;
+        leasedSum += stats.getLeased();
+        maxLeased = Math.max(maxLeased, stats.getLeased());
+        poolMax = stats.getMax();
+        if (stats.getLeased() >= stats.getMax()) {
+            saturatedSamples++;
+        }
+        if (stats.getPending() > 0) {
+            pendingSamples++;
+        }
+        maxPending = Math.max(maxPending, stats.getPending());
+    }
+
+    public Histogram getCorrected() {
+        return corrected;
+    }
+
+    public Histogram getService() {
+        return service;
+    }
+
+    public void print(PrintStream out, double intendedRate) {
+        long completed = corrected.getTotalCount();
+        double window = (endNanos - startNanos) / 1e9;
+        out.printf("throughput: intended %.1f/s, completed %.1f/s within the %.1fs window; "
+                        + "%d requests recorded, %d finished after the window, %d unfinished%n",
+                intendedRate, completedInWindow.get() / window, window, completed,
+                completed - completedInWindow.get(), unfinished);
+
+        out.println("outcomes:");
+        for (Map.Entry<Operation, ConcurrentMap<String, AtomicLong>> entry
+                : new TreeMap<Operation, ConcurrentMap<String, AtomicLong>>(outcomes).entrySet()) {
+            StringBuilder line = new StringBuilder(String.format("  %-10s", entry.getKey().label()));
+            for (Map.Entry<String, AtomicLong> count : new TreeMap<String, AtomicLong>(entry.getValue()).entrySet()) {
+                line.append("  ").append(count.getKey()).append(' ').append(count.getValue().get());
+            }
+            out.println(line);
+        }
+
+        out.printf("latency (ms)  %12s %12s%n", "corrected", "service");
+        for (double percentile : PERCENTILES) {
+            out.printf("  p%-10s  %12.3f %12.3f%n", format(percentile),
+                    corrected.getValueAtPercentile(percentile) / 1000.0, service.getValueAtPercentile(percentile) / 1000.0);
+        }
+        out.printf("  %-11s  %12.3f %12.3f%n", "max", corrected.getMaxValue() / 1000.0, service.getMaxValue() / 1000.0);
+        out.printf("  %-11s  %12.3f %12.3f%n", "mean", corrected.getMean() / 1000.0, service.getMean() / 1000.0);
+
+        if (poolSamples > 0) {
+            out.printf("pool: leased mean %.1f, max %d of %d, at limit in %.1f%% of samples; "
+                            + "pending max %d, non-zero in %.1f%% of samples%n",
+                    (double) leasedSum / poolSamples, maxLeased, poolMax, 100.0 * saturatedSamples / poolSamples,
+                    maxPending, 100.0 * pendingSamples / poolSamples);
+        }
+
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        StringBuilder gc = new StringBuilder("gc:");
+        long pauseMillis = 0;
+        for (int i = 0; i < collectors.size(); i++) {
+            long count = gcEnd[2 * i] - gcStart[2 * i];
+            long millis = gcEnd[2 * i + 1] - gcStart[2 * i + 1];
+            pauseMillis += millis;
+            gc.append(' ').append(collectors.get(i).getName()).append(' ').append(count)
+                    .append(" (").append(millis).append("ms)");
+        }
+        out.printf("%s, %.2f%% of the run%n", gc, 100.0 * pauseMillis / TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        if (allocated >= 0 && completed > 0) {
+            out.printf("allocation: %.1f KB/request on client threads (%.1f MB in total)%n",
+                    allocated / 1024.0 / completed, allocated / 1024.0 / 1024.0);
+        }
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    private static long[] gcCounters() {
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        long[] counters = new long[collectors.size() * 2];
+        for (int i = 0; i < collectors.size(); i++) {
+            counters[2 * i] = collectors.get(i).getCollectionCount();
+            counters[2 * i + 1] = collectors.get(i).getCollectionTime();
+        }
+        return counters;
+    }
+
+    /**
+     * 客户端线程累计分配的字节数, JVM不支持时返回-1
+     */
+    private long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        List<Long> ids = new ArrayList<Long>();
+        synchronized (clientThreads) {
+            for (Thread thread : clientThreads) {
+                ids.add(thread.getId());
+            }
+        }
+        long total = 0;
+        for (Long id : ids) {
+            long bytes = threads.getThreadAllocatedBytes(id);
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,65 @@
+package com.leespy.benchmark.load;
+
+import com.leespy.http.Http;
+import com.leespy.http.HttpAgent;
+import com.leespy.http.Response;
+
+import java.io.IOException;
+
+/**
+ * 压测中的请求类型, 都以Response形式返回, 以便区分状态码与异常
+ */
+public enum Operation {
+
+    AGENT_GET("agentGet") {
+        @Override
+        Response execute(HttpAgent agent, String url, String content) throws IOException {
+            return agent.get(url);
+        }
+    },
+
+    AGENT_POST("agentPost") {
+        @Override
+        Response execute(HttpAgent agent, String url, String content) throws IOException {
+            return agent.post(url, content, null);
+        }
+    },
+
+    HTTP_GET("httpGet") {
+        @Override
+        Response execute(HttpAgent agent, String url, String content) throws IOException {
+            return Http.get(url).response();
+        }
+    },
+
+    HTTP_POST("httpPost") {
+        @Override
+        Response execute(HttpAgent agent, String url, String content) throws IOException {
+            return Http.post(url).body(content).response();
+        }
+    };
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * 按命令行中的名称查找, 不存在时返回null
+     */
+    public static Operation of(String label) {
+        for (Operation operation : values()) {
+            if (operation.label.equals(label)) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    abstract Response execute(HttpAgent agent, String url, String content) throws IOException;
+}
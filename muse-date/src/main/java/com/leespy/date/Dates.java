@@ -1,10 +1,15 @@
 package com.leespy.date;
 
-import com.google.common.base.Strings;
 import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
 
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -19,6 +24,29 @@ public class Dates {
 
     private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
 
+    /**
+     * 由TimestampParser直接解析的格式, 其他格式交给joda
+     */
+    private static final Map<String, Integer> FAST_PATTERNS = new HashMap<String, Integer>();
+
+    private static final DateTimeFormatter ISO_PARSER = ISODateTimeFormat.dateOptionalTimeParser();
+
+    private static final ThreadLocal<TimestampParser.AsciiSequence> ASCII
+            = new ThreadLocal<TimestampParser.AsciiSequence>() {
+        @Override
+        protected TimestampParser.AsciiSequence initialValue() {
+            return new TimestampParser.AsciiSequence();
+        }
+    };
+
+    static {
+        FAST_PATTERNS.put(DEFAULT_DATE_FORMAT, TimestampParser.SPACE);
+        FAST_PATTERNS.put("yyyy-MM-dd", TimestampParser.DATE_ONLY);
+        FAST_PATTERNS.put("yyyy-MM-dd'T'HH:mm:ss", TimestampParser.T);
+        FAST_PATTERNS.put("yyyy-MM-dd HH:mm:ss.SSS", TimestampParser.SPACE | TimestampParser.MILLIS);
+        FAST_PATTERNS.put("yyyy-MM-dd'T'HH:mm:ss.SSS", TimestampParser.T | TimestampParser.MILLIS);
+    }
+
     /**
      * 简单的日期格式校验(yyyy-MM-dd)
      * @param date 输入日期
@@ -34,7 +62,7 @@ public class Dates {
      * @return 有效返回true, 反之false
      */
     public static Boolean isValidDate(String date, String pattern){
-        return !Strings.isNullOrEmpty(date)
+        return date != null && !date.isEmpty()
                 && Pattern.compile(pattern).matcher(date).matches();
     }
 
@@ -61,7 +89,7 @@ public class Dates {
      * @return 日期对象
      */
     public static Date toDate(String dateStr){
-        return toDate(dateStr, "yyyy-MM-dd HH:mm:ss");
+        return toDate(dateStr, DEFAULT_DATE_FORMAT);
     }
 
     /**
@@ -70,7 +98,117 @@ public class Dates {
      * @return 日期对象
      */
     public static Date toDate(String dateStr, String pattern){
-        return DateTime.parse(dateStr, DateTimeFormat.forPattern(pattern)).toDate();
+        return new Date(parseMillis(dateStr, pattern));
+    }
+
+    /**
+     * 解析时间戳为epoch毫秒, 自动识别 yyyy-MM-dd、yyyy-MM-dd HH:mm[:ss] 与ISO-8601(可带小数秒与偏移量),
+     * 没有偏移量时按本地时区. 这些格式不创建任何对象, 其他格式交给joda的ISO解析
+     * @param text 时间戳
+     * @return epoch毫秒
+     * @throws IllegalArgumentException 无法解析
+     */
+    public static long parseMillis(CharSequence text){
+        return parseMillis(text, 0, text.length());
+    }
+
+    /**
+     * 解析字符序列中的一段, 如日志行中的时间戳字段
+     * @see #parseMillis(CharSequence)
+     */
+    public static long parseMillis(CharSequence text, int offset, int length){
+        long millis = TimestampParser.parse(text, offset, length, TimestampParser.ANY, DateTimeZone.getDefault());
+        if (millis != TimestampParser.UNPARSED) {
+            return millis;
+        }
+        return ISO_PARSER.parseMillis(text.subSequence(offset, offset + length).toString());
+    }
+
+    /**
+     * 解析byte[]中的一段ASCII时间戳
+     * @see #parseMillis(CharSequence)
+     */
+    public static long parseMillis(byte[] bytes, int offset, int length){
+        return parseMillis(ASCII.get().reset(bytes, offset, length));
+    }
+
+    /**
+     * 按格式解析时间戳为epoch毫秒, 与toDate(text, pattern)的结果相同.
+     * yyyy-MM-dd HH:mm:ss、yyyy-MM-dd、yyyy-MM-dd'T'HH:mm:ss 及带.SSS的格式直接解析, 其他格式或
+     * 不规整的输入(如个位数的月份)交给joda
+     * @param text 时间戳
+     * @param pattern 格式
+     * @return epoch毫秒
+     * @throws IllegalArgumentException 无法解析
+     */
+    public static long parseMillis(CharSequence text, String pattern){
+        Integer flags = FAST_PATTERNS.get(pattern);
+        if (flags != null) {
+            long millis = TimestampParser.parse(text, 0, text.length(), flags, DateTimeZone.getDefault());
+            if (millis != TimestampParser.UNPARSED) {
+                return millis;
+            }
+        }
+        return DateTimeFormat.forPattern(pattern).parseMillis(text.toString());
+    }
+
+    /**
+     * 批量解析一列时间戳, pattern为null时自动识别格式
+     * @param column 时间戳
+     * @param pattern 格式, 可以为null
+     * @param into 结果, 长度不小于column
+     * @throws IllegalArgumentException 其中一个无法解析, 消息中带有行号
+     */
+    public static void parseMillis(List<? extends CharSequence> column, String pattern, long[] into){
+        if (into.length < column.size()) {
+            throw new IllegalArgumentException("result array is shorter than the column: " + into.length);
+        }
+        Integer fast = pattern == null ? Integer.valueOf(TimestampParser.ANY) : FAST_PATTERNS.get(pattern);
+        int flags = fast == null ? 0 : fast;
+        DateTimeZone zone = DateTimeZone.getDefault();
+        for (int i = 0, size = column.size(); i < size; i++) {
+            CharSequence text = column.get(i);
+            long millis = flags == 0 ? TimestampParser.UNPARSED
+                    : TimestampParser.parse(text, 0, text.length(), flags, zone);
+            if (millis == TimestampParser.UNPARSED) {
+                millis = parseRow(i, text, 0, text.length(), pattern);
+            }
+            into[i] = millis;
+        }
+    }
+
+    /**
+     * 批量解析byte[]中的一列ASCII时间戳, 如按分隔符切分好的日志, 自动识别格式
+     * @param bytes 数据
+     * @param offsets 每个时间戳的起始位置
+     * @param lengths 每个时间戳的长度
+     * @param count 时间戳个数
+     * @param into 结果, 长度不小于count
+     * @throws IllegalArgumentException 其中一个无法解析, 消息中带有行号
+     */
+    public static void parseMillis(byte[] bytes, int[] offsets, int[] lengths, int count, long[] into){
+        if (into.length < count || offsets.length < count || lengths.length < count) {
+            throw new IllegalArgumentException("arrays are shorter than count: " + count);
+        }
+        TimestampParser.AsciiSequence text = ASCII.get();
+        DateTimeZone zone = DateTimeZone.getDefault();
+        for (int i = 0; i < count; i++) {
+            text.reset(bytes, offsets[i], lengths[i]);
+            long millis = TimestampParser.parse(text, 0, lengths[i], TimestampParser.ANY, zone);
+            if (millis == TimestampParser.UNPARSED) {
+                millis = parseRow(i, text, 0, lengths[i], null);
+            }
+            into[i] = millis;
+        }
+    }
+
+    private static long parseRow(int row, CharSequence text, int offset, int length, String pattern) {
+        String value = text.subSequence(offset, offset + length).toString();
+        try {
+            return pattern == null ? ISO_PARSER.parseMillis(value) : DateTimeFormat.forPattern(pattern).parseMillis(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("row " + row + ": " + e.getMessage(), e);
+        }
     }
 
     /**
@@ -0,0 +1,285 @@
+package com.leespy.date;
+
+import org.joda.time.DateTimeZone;
+
+/**
+ * 定长时间戳的快速解析, 直接读取字符序列并计算epoch毫秒, 不创建任何对象.
+ * 支持 yyyy-MM-dd、yyyy-MM-dd HH:mm[:ss]、ISO-8601的 yyyy-MM-ddTHH:mm[:ss[.S...]][Z|±hh[[:]mm]];
+ * 没有偏移量时按本地时区(与joda的默认时区一致)换算, 夏令时切换处的处理与joda的解析相同.
+ * 格式不符或字段越界时返回{@link #UNPARSED}, 由调用方交给joda解析, 以保持原有的结果与异常
+ */
+final class TimestampParser {
+
+    /**
+     * 未能按快速路径解析, 4位年份的时间戳不会取到该值
+     */
+    static final long UNPARSED = Long.MIN_VALUE;
+
+    /**
+     * 日期与时间之间可以是空格
+     */
+    static final int SPACE = 1;
+
+    /**
+     * 日期与时间之间可以是'T'
+     */
+    static final int T = 1 << 1;
+
+    /**
+     * 秒可以省略
+     */
+    static final int OPTIONAL_SECONDS = 1 << 2;
+
+    /**
+     * 秒之后可以有1~9位小数
+     */
+    static final int FRACTION = 1 << 3;
+
+    /**
+     * 秒之后必须恰好有3位小数
+     */
+    static final int MILLIS = 1 << 4;
+
+    /**
+     * 可以带偏移量
+     */
+    static final int OFFSET = 1 << 5;
+
+    /**
+     * 可以只有日期
+     */
+    static final int DATE = 1 << 6;
+
+    /**
+     * 必须只有日期
+     */
+    static final int DATE_ONLY = 1 << 7;
+
+    /**
+     * 不指定格式时自动识别的范围
+     */
+    static final int ANY = SPACE | T | OPTIONAL_SECONDS | FRACTION | OFFSET | DATE;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private TimestampParser() {
+    }
+
+    /**
+     * @param flags 允许的格式, 见各常量
+     * @return epoch毫秒, 格式不符或字段越界时返回UNPARSED
+     */
+    static long parse(CharSequence text, int offset, int length, int flags, DateTimeZone zone) {
+        if (length < 10 || offset < 0 || offset + length > text.length()) {
+            return UNPARSED;
+        }
+        int end = offset + length;
+        int year = digits4(text, offset);
+        int month = digits2(text, offset + 5);
+        int day = digits2(text, offset + 8);
+        if (year < 1 || month < 1 || month > 12 || day < 1
+                || text.charAt(offset + 4) != '-' || text.charAt(offset + 7) != '-'
+                || day > daysInMonth(year, month)) {
+            return UNPARSED;
+        }
+        long epochDay = epochDay(year, month, day);
+        if (length == 10) {
+            return (flags & (DATE | DATE_ONLY)) == 0 ? UNPARSED : toUtc(epochDay * MILLIS_PER_DAY, zone);
+        }
+        if ((flags & DATE_ONLY) != 0 || length < 16) {
+            return UNPARSED;
+        }
+
+        char separator = text.charAt(offset + 10);
+        if (!(separator == ' ' && (flags & SPACE) != 0 || separator == 'T' && (flags & T) != 0)) {
+            return UNPARSED;
+        }
+        int hour = digits2(text, offset + 11);
+        int minute = digits2(text, offset + 14);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || text.charAt(offset + 13) != ':') {
+            return UNPARSED;
+        }
+        int i = offset + 16;
+        int second = 0;
+        if (i < end && text.charAt(i) == ':') {
+            if (i + 3 > end) {
+                return UNPARSED;
+            }
+            second = digits2(text, i + 1);
+            if (second < 0 || second > 59) {
+                return UNPARSED;
+            }
+            i += 3;
+        } else if ((flags & OPTIONAL_SECONDS) == 0) {
+            return UNPARSED;
+        }
+
+        int millis = 0;
+        char mark = i < end ? text.charAt(i) : 0;
+        if ((mark == '.' && (flags & (FRACTION | MILLIS)) != 0 || mark == ',' && (flags & FRACTION) != 0)
+                && i == offset + 19) {
+            int start = ++i;
+            while (i < end && i - start < 9) {
+                int digit = text.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                if (i - start < 3) {
+                    millis = millis * 10 + digit;
+                }
+                i++;
+            }
+            int count = i - start;
+            if (count == 0 || (flags & FRACTION) == 0 && count != 3) {
+                return UNPARSED;
+            }
+            for (; count < 3; count++) {
+                millis *= 10;
+            }
+        } else if ((flags & MILLIS) != 0) {
+            return UNPARSED;
+        }
+
+        long local = epochDay * MILLIS_PER_DAY + hour * 3600000L + minute * 60000L + second * 1000L + millis;
+        if (i == end) {
+            return toUtc(local, zone);
+        }
+        if ((flags & OFFSET) == 0) {
+            return UNPARSED;
+        }
+        int offsetMillis = zoneOffset(text, i, end);
+        return offsetMillis == Integer.MIN_VALUE ? UNPARSED : local - offsetMillis;
+    }
+
+    /**
+     * 解析 Z、±hh、±hhmm、±hh:mm, 不合法时返回Integer.MIN_VALUE
+     */
+    private static int zoneOffset(CharSequence text, int i, int end) {
+        char sign = text.charAt(i);
+        if (sign == 'Z') {
+            return i + 1 == end ? 0 : Integer.MIN_VALUE;
+        }
+        if (sign != '+' && sign != '-' || i + 3 > end) {
+            return Integer.MIN_VALUE;
+        }
+        int hours = digits2(text, i + 1);
+        int minutes = 0;
+        i += 3;
+        if (i < end) {
+            if (text.charAt(i) == ':') {
+                i++;
+            }
+            if (i + 2 != end) {
+                return Integer.MIN_VALUE;
+            }
+            minutes = digits2(text, i);
+        }
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+        int millis = hours * 3600000 + minutes * 60000;
+        return sign == '-' ? -millis : millis;
+    }
+
+    /**
+     * 本地时间换算为UTC, 与joda解析时的处理相同: 重叠时取较早的偏移量;
+     * 落在切换的间隙内时返回UNPARSED, 由joda抛出同样的异常
+     */
+    private static long toUtc(long local, DateTimeZone zone) {
+        if (zone == DateTimeZone.UTC) {
+            return local;
+        }
+        int offset = zone.getOffsetFromLocal(local);
+        long utc = local - offset;
+        if (offset != zone.getOffset(utc)) {
+            return UNPARSED;
+        }
+        return utc;
+    }
+
+    /**
+     * 公历(proleptic Gregorian)日期距1970-01-01的天数
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2 && (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0))) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * 两位数字, 有非数字时返回负数
+     */
+    private static int digits2(CharSequence text, int i) {
+        int high = text.charAt(i) - '0';
+        int low = text.charAt(i + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) {
+            return -1;
+        }
+        return high * 10 + low;
+    }
+
+    private static int digits4(CharSequence text, int i) {
+        int high = digits2(text, i);
+        int low = digits2(text, i + 2);
+        return high < 0 || low < 0 ? -1 : high * 100 + low;
+    }
+
+    /**
+     * 把byte[]中的一段ASCII当作CharSequence, 供批量解析时复用
+     */
+    static final class AsciiSequence implements CharSequence {
+
+        private byte[] bytes;
+
+        private int offset;
+
+        private int length;
+
+        AsciiSequence reset(byte[] bytes, int offset, int length) {
+            if (offset < 0 || length < 0 || offset + length > bytes.length) {
+                throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                        + ", array length " + bytes.length);
+            }
+            this.bytes = bytes;
+            this.offset = offset;
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[offset + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = charAt(i);
+            }
+            return new String(chars);
+        }
+    }
+}
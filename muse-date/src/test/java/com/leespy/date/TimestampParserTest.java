@@ -0,0 +1,109 @@
+package com.leespy.date;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 夏令时的间隙与重叠处, 快速路径与joda的解析结果一致
+ */
+public class TimestampParserTest {
+
+    private static final DateTimeZone NEW_YORK = DateTimeZone.forID("America/New_York");
+
+    private static final DateTimeZone LORD_HOWE = DateTimeZone.forID("Australia/Lord_Howe");
+
+    private static final DateTimeZone SAO_PAULO = DateTimeZone.forID("America/Sao_Paulo");
+
+    private static final DateTimeZone LONDON = DateTimeZone.forID("Europe/London");
+
+    private static final DateTimeFormatter LOCAL = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final DateTimeZone defaultZone = DateTimeZone.getDefault();
+
+    @After
+    public void restoreZone() {
+        DateTimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void overlapTakesEarlierOffset() {
+        // 01:00-02:00 happens twice, first at -04:00 then at -05:00
+        assertEquals(utc("2016-11-06T05:30:00Z"), parse("2016-11-06 01:30:00", NEW_YORK));
+        assertEquals(utc("2016-11-06T07:00:00Z"), parse("2016-11-06 02:00:00", NEW_YORK));
+        // a half hour shift: 01:30-02:00 happens first at +11:00 then at +10:30
+        assertEquals(utc("2016-04-02T14:45:00Z"), parse("2016-04-03 01:45:00", LORD_HOWE));
+        assertEquals(utc("2016-10-30T00:30:00Z"), parse("2016-10-30 01:30:00", LONDON));
+    }
+
+    @Test
+    public void gapIsLeftToJoda() {
+        assertEquals(TimestampParser.UNPARSED, parse("2016-03-13 02:30:00", NEW_YORK));
+        assertEquals(TimestampParser.UNPARSED, parse("2016-10-02 02:15:00", LORD_HOWE));
+        // midnight does not exist on the day the clocks move forward
+        assertEquals(TimestampParser.UNPARSED, parse("2016-10-16", SAO_PAULO));
+        assertEquals(utc("2016-03-13T07:00:00Z"), parse("2016-03-13 03:00:00", NEW_YORK));
+
+        DateTimeZone.setDefault(NEW_YORK);
+        try {
+            Dates.parseMillis("2016-03-13 02:30:00");
+            fail("parsed a local time inside the gap");
+        } catch (IllegalArgumentException expected) {
+            // raised by joda
+        }
+        try {
+            Dates.parseMillis("2016-03-13 02:30:00", "yyyy-MM-dd HH:mm:ss");
+            fail("parsed a local time inside the gap");
+        } catch (IllegalArgumentException expected) {
+            // raised by joda
+        }
+    }
+
+    @Test
+    public void quarterHoursMatchJoda() {
+        DateTimeZone[] zones = {NEW_YORK, LORD_HOWE, SAO_PAULO, LONDON};
+        for (DateTimeZone zone : zones) {
+            DateTimeZone.setDefault(zone);
+            DateTimeFormatter local = LOCAL.withZone(zone);
+            DateTimeFormatter iso = ISODateTimeFormat.dateOptionalTimeParser().withZone(zone);
+            DateTime day = new DateTime(2016, 1, 1, 0, 0, DateTimeZone.UTC);
+            DateTime end = new DateTime(2017, 1, 1, 0, 0, DateTimeZone.UTC);
+            for (DateTime t = day; t.isBefore(end); t = t.plusMinutes(15)) {
+                String text = LOCAL.withZone(DateTimeZone.UTC).print(t);
+                assertMatches(text, zone, local, TimestampParser.SPACE);
+                assertMatches(text.replace(' ', 'T'), zone, iso, TimestampParser.ANY);
+                if (t.getMinuteOfDay() == 0) {
+                    assertMatches(text.substring(0, 10), zone, iso, TimestampParser.ANY);
+                }
+            }
+        }
+    }
+
+    private static void assertMatches(String text, DateTimeZone zone, DateTimeFormatter joda, int flags) {
+        long fast = TimestampParser.parse(text, 0, text.length(), flags, zone);
+        long expected;
+        try {
+            expected = joda.parseMillis(text);
+        } catch (IllegalArgumentException e) {
+            assertEquals(zone + " " + text, TimestampParser.UNPARSED, fast);
+            return;
+        }
+        assertEquals(zone + " " + text, expected, fast);
+        assertEquals(zone + " " + text, expected, Dates.parseMillis(text));
+    }
+
+    private static long parse(String text, DateTimeZone zone) {
+        return TimestampParser.parse(text, 0, text.length(), TimestampParser.ANY, zone);
+    }
+
+    private static long utc(String text) {
+        return ISODateTimeFormat.dateTimeParser().parseMillis(text);
+    }
+}
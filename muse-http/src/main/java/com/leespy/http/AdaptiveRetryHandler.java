@@ -0,0 +1,74 @@
+package com.leespy.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpRequestRetryHandler;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在基础重试判断之上增加重试预算与指数退避:
+ * delegate判定可重试后, 先从目标主机的重试预算中取令牌, 再按 random(0, min(max, base * 2^n)) 休眠后重试.
+ * 请求带有截止时间时, 剩余时间不足以退避则不再重试, 重试的各项超时也限制在剩余时间之内
+ */
+public class AdaptiveRetryHandler implements HttpRequestRetryHandler {
+
+    private final HttpRequestRetryHandler delegate;
+
+    private final HttpAgent agent;
+
+    private final long backoffMillis;
+
+    private final long maxBackoffMillis;
+
+    public AdaptiveRetryHandler(HttpRequestRetryHandler delegate, HttpAgent agent) {
+        this.delegate = delegate;
+        this.agent = agent;
+        this.backoffMillis = agent.getConfiguration().getRetryBackoffMillis();
+        this.maxBackoffMillis = agent.getConfiguration().getRetryMaxBackoffMillis();
+    }
+
+    @Override
+    public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+        if (!delegate.retryRequest(exception, executionCount, context)) {
+            return false;
+        }
+        HttpClientContext clientContext = HttpClientContext.adapt(context);
+        Deadline deadline = clientContext.getAttribute(Deadline.CONTEXT_ATTRIBUTE, Deadline.class);
+        long backoff = backoff(executionCount);
+        if (deadline != null && deadline.remaining(TimeUnit.MILLISECONDS) <= backoff) {
+            return false;
+        }
+        HttpHost host = clientContext.getTargetHost();
+        if (host != null && !agent.routeState(host).getRetryBudget().tryWithdraw()) {
+            return false;
+        }
+        if (backoff > 0) {
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        if (deadline != null) {
+            clientContext.setRequestConfig(deadline.limit(clientContext.getRequestConfig()));
+        }
+        return true;
+    }
+
+    /**
+     * full jitter: 在[0, min(max, base * 2^(n-1))]中随机取值
+     */
+    private long backoff(int executionCount) {
+        if (backoffMillis <= 0) {
+            return 0;
+        }
+        int shift = Math.min(executionCount - 1, 30);
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << shift);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,174 @@
+package com.leespy.http;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * HttpAgent发出的请求的响应, 关闭时释放连接并记录熔断、并发限制与延迟统计
+ */
+class AgentResponse extends Response {
+
+    private final HttpResponse response;
+
+    private final HttpUriRequest request;
+
+    private final RouteState route;
+
+    /**
+     * 截止时间的定时任务, 没有截止时间时为null
+     */
+    private final ScheduledFuture<?> watchdog;
+
+    private final long startNanos;
+
+    private boolean failed;
+
+    AgentResponse(HttpResponse response, String defaultCharset, HttpUriRequest request, RouteState route,
+                  ScheduledFuture<?> watchdog, long startNanos) {
+        super(defaultCharset);
+        this.response = response;
+        this.request = request;
+        this.route = route;
+        this.watchdog = watchdog;
+        this.startNanos = startNanos;
+    }
+
+    @Override
+    public int status() {
+        return response.getStatusLine().getStatusCode();
+    }
+
+    @Override
+    public String reason() {
+        return response.getStatusLine().getReasonPhrase();
+    }
+
+    @Override
+    public String header(String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    @Override
+    public List<String> headers(String name) {
+        Header[] headers = response.getHeaders(name);
+        List<String> values = new ArrayList<String>(headers.length);
+        for (Header header : headers) {
+            values.add(header.getValue());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, List<String>> headers() {
+        Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        for (Header header : response.getAllHeaders()) {
+            List<String> values = headers.get(header.getName());
+            if (values == null) {
+                values = new ArrayList<String>(1);
+                headers.put(header.getName(), values);
+            }
+            values.add(header.getValue());
+        }
+        return Collections.unmodifiableMap(headers);
+    }
+
+    @Override
+    public long contentLength() {
+        HttpEntity entity = response.getEntity();
+        return entity != null ? entity.getContentLength() : 0;
+    }
+
+    @Override
+    protected Charset contentCharset() {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return null;
+        }
+        try {
+            ContentType contentType = ContentType.get(entity);
+            return contentType != null ? contentType.getCharset() : null;
+        } catch (RuntimeException e) {
+            // malformed or unsupported charset, fall back to the request encoding
+            return null;
+        }
+    }
+
+    @Override
+    protected InputStream openStream() throws IOException {
+        HttpEntity entity = response.getEntity();
+        return entity != null ? entity.getContent() : null;
+    }
+
+    @Override
+    protected void release(boolean drained) {
+        complete();
+        try {
+            if (drained) {
+                EntityUtils.consume(response.getEntity());
+            }
+        } catch (IOException ignore) {
+            // closing below drops the connection instead of reusing it
+        } finally {
+            if (response instanceof Closeable) {
+                try {
+                    ((Closeable) response).close();
+                } catch (IOException ignore) {
+                    // nothing left to release
+                }
+            } else if (!drained) {
+                request.abort();
+            }
+        }
+    }
+
+    /**
+     * 读取body失败, 关闭时按失败记录
+     */
+    void fail() {
+        failed = true;
+    }
+
+    HttpResponse raw() {
+        return response;
+    }
+
+    /**
+     * 被取消的请求不计入熔断, 只释放可能占用的探测名额; 4xx不算上游故障
+     */
+    private void complete() {
+        boolean aborted = request.isAborted();
+        long latency = aborted ? -1 : System.nanoTime() - startNanos;
+        int status = status();
+        CircuitBreaker breaker = route.getCircuitBreaker();
+        if (aborted) {
+            breaker.onAbort();
+        } else if (failed || status >= 500) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+        if (!aborted && !failed && status < 300) {
+            route.getLatency().record(latency);
+        }
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+        route.release(latency, aborted || failed || status >= 500);
+    }
+}
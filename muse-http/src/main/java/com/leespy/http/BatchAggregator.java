@@ -0,0 +1,26 @@
+package com.leespy.http;
+
+import java.util.List;
+
+/**
+ * 聚合模式下批量请求的合并与响应拆分
+ */
+public interface BatchAggregator {
+
+    /**
+     * 将一批请求内容合并为一个请求body
+     *
+     * @param contents 请求内容, 按提交顺序
+     * @return 合并后的body
+     */
+    String aggregate(List<String> contents);
+
+    /**
+     * 将合并请求的响应拆分为每个请求各自的结果
+     *
+     * @param response 合并请求的响应
+     * @param size     本批请求数
+     * @return 与请求顺序一致、长度为size的结果列表
+     */
+    List<String> split(String response, int size);
+}
@@ -0,0 +1,145 @@
+package com.leespy.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Joiner;
+import com.leespy.json.Jsoner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HttpBatcher配置
+ */
+public class BatchConfig {
+
+    /**
+     * 把多个JSON请求合并为JSON数组提交; 若响应是等长的JSON数组则按下标拆分, 否则每个请求都得到完整响应
+     */
+    public static final BatchAggregator JSON_ARRAY = new BatchAggregator() {
+        @Override
+        public String aggregate(List<String> contents) {
+            return "[" + Joiner.on(',').join(contents) + "]";
+        }
+
+        @Override
+        public List<String> split(String response, int size) {
+            try {
+                JsonNode node = response == null ? null : Jsoner.DEFAULT.treeFromJson(response);
+                if (node != null && node.isArray() && node.size() == size) {
+                    List<String> results = new ArrayList<String>(size);
+                    for (JsonNode element : node) {
+                        results.add(element.toString());
+                    }
+                    return results;
+                }
+            } catch (IOException e) {
+                // not a json array, fall through
+            }
+            return Collections.nCopies(size, response);
+        }
+    };
+
+    /**
+     * 提交模式
+     */
+    private BatchMode mode = BatchMode.CONCURRENT;
+
+    /**
+     * 每批最多请求数, 达到即刷出
+     */
+    private int maxBatchSize = 100;
+
+    /**
+     * 批次最长等待时间(ms), 到期即刷出
+     */
+    private long lingerMillis = 5;
+
+    /**
+     * 等待队列容量, 队列满时提交直接失败
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 最大并发请求数, 不应超过HttpConfig的maxConnectionsPerRoute
+     */
+    private int maxInFlight = 16;
+
+    /**
+     * 请求及响应编码
+     */
+    private String encoding = "UTF-8";
+
+    /**
+     * 聚合模式下的合并方式
+     */
+    private BatchAggregator aggregator = JSON_ARRAY;
+
+    public BatchMode getMode() {
+        return mode;
+    }
+
+    public void setMode(BatchMode mode) {
+        this.mode = mode;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public void setLingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(String encoding) {
+        this.encoding = encoding;
+    }
+
+    public BatchAggregator getAggregator() {
+        return aggregator;
+    }
+
+    public void setAggregator(BatchAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    public static enum BatchMode {
+        /**
+         * 每个请求单独提交, 复用连接池并发发送
+         */
+        CONCURRENT,
+        /**
+         * 一批请求合并为一个body提交
+         */
+        AGGREGATE
+    }
+}
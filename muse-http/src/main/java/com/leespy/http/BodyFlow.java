@@ -0,0 +1,58 @@
+package com.leespy.http;
+
+/**
+ * 响应body的推送接口, 与java.util.concurrent.Flow(Reactive Streams 1.0)的方法和语义一一对应.
+ * 本库以Java 8字节码发布, 无法直接引用Flow; JDK 9+的调用方可以用几行代码适配到Flow或其他Reactive Streams实现
+ */
+public final class BodyFlow {
+
+    private BodyFlow() {
+    }
+
+    /**
+     * 数据的生产者, 按订阅者的需求推送
+     */
+    public interface Publisher<T> {
+
+        /**
+         * 订阅, 先回调onSubscribe, 之后只在request的数量内回调onNext
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * 数据的消费者, 同一订阅的回调不会并发执行
+     */
+    public interface Subscriber<T> {
+
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        /**
+         * 失败结束, 之后不再有回调
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * 正常结束, 之后不再有回调
+         */
+        void onComplete();
+    }
+
+    /**
+     * 订阅者与生产者之间的需求通道
+     */
+    public interface Subscription {
+
+        /**
+         * 增加需求, n必须大于0, 否则以IllegalArgumentException结束订阅
+         */
+        void request(long n);
+
+        /**
+         * 取消订阅, 之后的回调被丢弃
+         */
+        void cancel();
+    }
+}
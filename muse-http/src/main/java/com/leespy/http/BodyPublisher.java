@@ -0,0 +1,597 @@
+package com.leespy.http;
+
+import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.leespy.io.BufferPool;
+import com.leespy.io.PooledByteArrayOutputStream;
+import com.leespy.json.JsonFeedHandler;
+import com.leespy.json.JsonFeeder;
+import com.leespy.json.Jsoner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把响应body按订阅者的需求推送出去, 适用于chunked、server-sent events等长时间不结束的body.
+ * 只在有需求时才从连接读取下一块(8KB), 解码出的元素暂存不超过一块的量, 无需求时不读取, 由tcp流控向上游施加背压;
+ * 读取在executor中进行, 同一订阅的回调串行执行. body读完后连接放回连接池, 取消或失败时关闭响应并归还连接,
+ * 未读完的body无法复用连接, 此时连接被丢弃. 取消时若正阻塞在读取上, 要等到下一块数据到达或读超时才生效.
+ * body结束要在读取时才能发现, 需求恰好用完时onComplete要等到下一次request
+ * <p/>
+ * 只能被订阅一次, 订阅之后不要再通过Response读取body
+ */
+public final class BodyPublisher<T> implements BodyFlow.Publisher<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BodyPublisher.class);
+
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * 单行允许的最大字节数, 超过时以IOException结束, 避免没有换行的body耗尽内存
+     */
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-body-publisher-%d").build());
+
+    private static final BodyFlow.Subscription EMPTY_SUBSCRIPTION = new BodyFlow.Subscription() {
+        @Override
+        public void request(long n) {
+            // nothing to deliver
+        }
+
+        @Override
+        public void cancel() {
+            // nothing to release
+        }
+    };
+
+    private final Response response;
+
+    private final Decoder<T> decoder;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private Executor executor = DEFAULT_EXECUTOR;
+
+    private BodyPublisher(Response response, Decoder<T> decoder) {
+        this.response = response;
+        this.decoder = decoder;
+    }
+
+    /**
+     * 按读到的块推送, 每个ByteBuffer是独立的副本
+     */
+    public static BodyPublisher<ByteBuffer> bytes(Response response) {
+        return new BodyPublisher<ByteBuffer>(response, new ChunkDecoder());
+    }
+
+    /**
+     * 按行推送, 行尾可以是"\n"、"\r\n"或"\r", 不含行尾; 按Content-Type声明的字符集解码, 未声明时使用请求指定的编码
+     */
+    public static BodyPublisher<String> lines(Response response) {
+        return new BodyPublisher<String>(response, new LineDecoder(response.charset()));
+    }
+
+    /**
+     * 按text/event-stream格式推送事件, 注释行与不完整的末尾事件被忽略
+     */
+    public static BodyPublisher<ServerSentEvent> events(Response response) {
+        return new BodyPublisher<ServerSentEvent>(response, new EventDecoder());
+    }
+
+    /**
+     * 推送body中首尾相接或以空白分隔的json值, 如NDJSON. 元素不能为null, json的null值以IOException结束订阅
+     *
+     * @see Jsoner#feeder(Class, JsonFeedHandler)
+     */
+    public static <T> BodyPublisher<T> json(Response response, Jsoner jsoner, Class<T> type) {
+        return new BodyPublisher<T>(response, new JsonDecoder<T>(jsoner, type, false));
+    }
+
+    /**
+     * 推送body顶层数组中的元素, 不必等整个数组读完. 元素为null时以IOException结束订阅
+     *
+     * @see Jsoner#arrayFeeder(Class, JsonFeedHandler)
+     */
+    public static <T> BodyPublisher<T> jsonArray(Response response, Jsoner jsoner, Class<T> type) {
+        return new BodyPublisher<T>(response, new JsonDecoder<T>(jsoner, type, true));
+    }
+
+    /**
+     * 读取body与回调订阅者的线程池, 默认为共享的daemon线程池; 每个订阅在读取期间占用一个线程, 须在subscribe之前设置
+     */
+    public BodyPublisher<T> executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    @Override
+    public void subscribe(BodyFlow.Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(EMPTY_SUBSCRIPTION);
+            subscriber.onError(new IllegalStateException("response body already subscribed"));
+            return;
+        }
+        BodySubscription subscription = new BodySubscription(subscriber);
+        try {
+            subscriber.onSubscribe(subscription);
+        } catch (RuntimeException e) {
+            logger.warn("subscriber {} failed on subscribe", subscriber, e);
+            subscription.cancel();
+        }
+        subscription.subscribed();
+    }
+
+    /**
+     * 一个订阅的状态: 需求与取消可以来自任意线程, 读取、解码与回调只在持有wip的线程中进行
+     */
+    private final class BodySubscription implements BodyFlow.Subscription, Runnable {
+
+        private final BodyFlow.Subscriber<? super T> subscriber;
+
+        /**
+         * 待处理的信号数, 不为0时有且只有一个线程在drain; onSubscribe返回之前保持为1, 保证回调不会与之并发
+         */
+        private final AtomicInteger wip = new AtomicInteger(1);
+
+        private final AtomicLong requested = new AtomicLong();
+
+        private volatile boolean cancelled;
+
+        /**
+         * 收到过不大于0的request参数
+         */
+        private volatile boolean invalidRequest;
+
+        private volatile RejectedExecutionException rejected;
+
+        private final ArrayDeque<T> pending = new ArrayDeque<T>();
+
+        private InputStream in;
+
+        private byte[] chunk;
+
+        private boolean eof;
+
+        private boolean done;
+
+        private BodySubscription(BodyFlow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = true;
+            } else {
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, next));
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void subscribed() {
+            if (wip.decrementAndGet() != 0) {
+                execute();
+            }
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                execute();
+            }
+        }
+
+        private void execute() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // fail on the caller, which holds the drain
+                rejected = e;
+                run();
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                if (!done) {
+                    drain();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            try {
+                if (cancelled) {
+                    finish(null, false);
+                    return;
+                }
+                if (rejected != null) {
+                    finish(rejected, true);
+                    return;
+                }
+                if (invalidRequest) {
+                    finish(new IllegalArgumentException("request must be positive"), true);
+                    return;
+                }
+                long r = requested.get();
+                long emitted = 0;
+                while (emitted != r) {
+                    if (cancelled) {
+                        finish(null, false);
+                        return;
+                    }
+                    T item = pending.poll();
+                    if (item == null) {
+                        if (eof) {
+                            break;
+                        }
+                        fill();
+                        continue;
+                    }
+                    try {
+                        subscriber.onNext(item);
+                    } catch (RuntimeException e) {
+                        logger.warn("subscriber {} failed on next, cancelling", subscriber, e);
+                        finish(null, false);
+                        return;
+                    }
+                    emitted++;
+                }
+                if (eof && pending.isEmpty()) {
+                    finish(null, true);
+                } else if (emitted != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+            } catch (Throwable e) {
+                finish(e, true);
+            }
+        }
+
+        /**
+         * 读一块并解码到pending中, 可能解码出0个元素
+         */
+        private void fill() throws IOException {
+            if (in == null) {
+                in = response.stream();
+                chunk = BufferPool.DEFAULT.acquire(CHUNK_SIZE);
+            }
+            int n = in.read(chunk, 0, CHUNK_SIZE);
+            if (n == -1) {
+                eof = true;
+                decoder.end(pending);
+            } else if (n > 0) {
+                decoder.decode(chunk, 0, n, pending);
+            }
+        }
+
+        private void finish(Throwable error, boolean signal) {
+            done = true;
+            pending.clear();
+            decoder.close();
+            if (chunk != null) {
+                BufferPool.DEFAULT.release(chunk);
+                chunk = null;
+            }
+            // eof leaves the connection reusable, otherwise it is dropped
+            response.close();
+            if (!signal) {
+                return;
+            }
+            try {
+                if (error != null) {
+                    subscriber.onError(error);
+                } else {
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException e) {
+                logger.warn("subscriber {} failed on {}", subscriber, error != null ? "error" : "complete", e);
+            }
+        }
+    }
+
+    /**
+     * 把读到的字节解码为元素, 只在drain的线程中调用
+     */
+    private interface Decoder<T> {
+
+        void decode(byte[] b, int off, int len, Queue<? super T> out) throws IOException;
+
+        /**
+         * body结束, 输出剩余的元素
+         */
+        void end(Queue<? super T> out) throws IOException;
+
+        /**
+         * 释放缓冲区, 可能在body结束之前调用
+         */
+        void close();
+    }
+
+    private static final class ChunkDecoder implements Decoder<ByteBuffer> {
+
+        @Override
+        public void decode(byte[] b, int off, int len, Queue<? super ByteBuffer> out) {
+            out.add(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+        }
+
+        @Override
+        public void end(Queue<? super ByteBuffer> out) {
+            // chunks are emitted as read
+        }
+
+        @Override
+        public void close() {
+            // nothing buffered
+        }
+    }
+
+    /**
+     * 按行切分, 完整落在一块中的行直接交给line, 跨块的行先拼接在池化数组中
+     */
+    private abstract static class LineSplitter<T> implements Decoder<T> {
+
+        private PooledByteArrayOutputStream partial;
+
+        /**
+         * 上一个字节是'\r', 紧跟的'\n'属于同一个行尾
+         */
+        private boolean skipLf;
+
+        /**
+         * 一行内容, 不含行尾
+         */
+        protected abstract void line(byte[] b, int off, int len, Queue<? super T> out) throws IOException;
+
+        @Override
+        public void decode(byte[] b, int off, int len, Queue<? super T> out) throws IOException {
+            int end = off + len;
+            int start = off;
+            for (int i = off; i < end; i++) {
+                byte c = b[i];
+                if (skipLf) {
+                    skipLf = false;
+                    if (c == '\n') {
+                        start = i + 1;
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    skipLf = c == '\r';
+                    if (partial == null || partial.size() == 0) {
+                        line(b, start, i - start, out);
+                    } else {
+                        append(b, start, i - start);
+                        line(partial.array(), 0, partial.size(), out);
+                        partial.reset();
+                    }
+                    start = i + 1;
+                }
+            }
+            if (start < end) {
+                append(b, start, end - start);
+            }
+        }
+
+        @Override
+        public void end(Queue<? super T> out) throws IOException {
+            if (partial != null && partial.size() > 0) {
+                line(partial.array(), 0, partial.size(), out);
+                partial.reset();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (partial != null) {
+                partial.close();
+                partial = null;
+            }
+        }
+
+        private void append(byte[] b, int off, int len) throws IOException {
+            if (partial == null) {
+                partial = new PooledByteArrayOutputStream(Math.max(256, len));
+            }
+            if (partial.size() + len > MAX_LINE_LENGTH) {
+                throw new IOException("line exceeds " + MAX_LINE_LENGTH + " bytes");
+            }
+            partial.write(b, off, len);
+        }
+    }
+
+    private static final class LineDecoder extends LineSplitter<String> {
+
+        private final Charset charset;
+
+        private LineDecoder(Charset charset) {
+            this.charset = charset;
+        }
+
+        @Override
+        protected void line(byte[] b, int off, int len, Queue<? super String> out) {
+            out.add(new String(b, off, len, charset));
+        }
+    }
+
+    /**
+     * text/event-stream解析, 始终按UTF-8解码
+     */
+    private static final class EventDecoder extends LineSplitter<ServerSentEvent> {
+
+        private static final byte[] DATA = "data".getBytes(Charsets.US_ASCII);
+
+        private static final byte[] EVENT = "event".getBytes(Charsets.US_ASCII);
+
+        private static final byte[] ID = "id".getBytes(Charsets.US_ASCII);
+
+        private static final byte[] RETRY = "retry".getBytes(Charsets.US_ASCII);
+
+        private final StringBuilder data = new StringBuilder();
+
+        private boolean hasData;
+
+        private String event;
+
+        private String lastId = "";
+
+        /**
+         * 与lastId一样跨事件保留, 只带retry字段的块不派发事件, 但更新后续事件的值
+         */
+        private long retry = -1;
+
+        private boolean first = true;
+
+        @Override
+        protected void line(byte[] b, int off, int len, Queue<? super ServerSentEvent> out) {
+            if (first) {
+                first = false;
+                // a leading byte order mark is not part of the first field
+                if (len >= 3 && b[off] == (byte) 0xef && b[off + 1] == (byte) 0xbb && b[off + 2] == (byte) 0xbf) {
+                    off += 3;
+                    len -= 3;
+                }
+            }
+            if (len == 0) {
+                dispatch(out);
+                return;
+            }
+            if (b[off] == ':') {
+                return;
+            }
+            int end = off + len;
+            int colon = off;
+            while (colon < end && b[colon] != ':') {
+                colon++;
+            }
+            int valueStart = colon < end ? colon + 1 : end;
+            if (valueStart < end && b[valueStart] == ' ') {
+                valueStart++;
+            }
+            int nameLength = colon - off;
+            if (is(b, off, nameLength, DATA)) {
+                if (hasData) {
+                    data.append('\n');
+                }
+                data.append(new String(b, valueStart, end - valueStart, Charsets.UTF_8));
+                hasData = true;
+            } else if (is(b, off, nameLength, EVENT)) {
+                event = new String(b, valueStart, end - valueStart, Charsets.UTF_8);
+            } else if (is(b, off, nameLength, ID)) {
+                String id = new String(b, valueStart, end - valueStart, Charsets.UTF_8);
+                if (id.indexOf('\0') == -1) {
+                    lastId = id;
+                }
+            } else if (is(b, off, nameLength, RETRY)) {
+                retry = parseRetry(b, valueStart, end, retry);
+            }
+        }
+
+        private void dispatch(Queue<? super ServerSentEvent> out) {
+            if (hasData) {
+                out.add(new ServerSentEvent(lastId, event == null || event.isEmpty() ? "message" : event,
+                        data.toString(), retry));
+            }
+            data.setLength(0);
+            hasData = false;
+            event = null;
+        }
+
+        private static boolean is(byte[] b, int off, int len, byte[] name) {
+            if (len != name.length) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (b[off + i] != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 只接受纯数字, 否则保留原值
+         */
+        private static long parseRetry(byte[] b, int start, int end, long current) {
+            if (start == end || end - start > 18) {
+                return current;
+            }
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                if (b[i] < '0' || b[i] > '9') {
+                    return current;
+                }
+                value = value * 10 + (b[i] - '0');
+            }
+            return value;
+        }
+    }
+
+    private static final class JsonDecoder<T> implements Decoder<T>, JsonFeedHandler<T> {
+
+        private final JsonFeeder<T> feeder;
+
+        private Queue<? super T> out;
+
+        private JsonDecoder(Jsoner jsoner, Class<T> type, boolean array) {
+            this.feeder = array ? jsoner.arrayFeeder(type, this) : jsoner.feeder(type, this);
+        }
+
+        @Override
+        public void onValue(T value) throws IOException {
+            // a stream item can not be null
+            if (value == null) {
+                throw new IOException("json null can not be published as an item");
+            }
+            out.add(value);
+        }
+
+        @Override
+        public void decode(byte[] b, int off, int len, Queue<? super T> out) throws IOException {
+            this.out = out;
+            feeder.feed(b, off, len);
+        }
+
+        @Override
+        public void end(Queue<? super T> out) throws IOException {
+            this.out = out;
+            feeder.end();
+        }
+
+        @Override
+        public void close() {
+            out = null;
+        }
+    }
+}
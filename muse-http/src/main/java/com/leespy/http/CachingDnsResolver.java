@@ -0,0 +1,205 @@
+package com.leespy.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 带缓存的DNS解析:
+ * <ul>
+ * <li>解析结果缓存ttl时间, 过期后继续返回旧结果, 同时在后台线程刷新, 热路径上不阻塞</li>
+ * <li>每次返回的地址按轮询旋转, 连接分散到主机的所有A/AAAA记录上</li>
+ * <li>连接失败的地址在一段时间内排到最后, HttpClient按顺序尝试下一个地址实现快速故障转移</li>
+ * <li>IPv6与IPv4地址交错排列, 一个地址族不可用时尽快尝试另一个</li>
+ * </ul>
+ * 实际解析委托给delegate, 测试时可传入InMemoryDnsResolver而不依赖真实网络
+ */
+public class CachingDnsResolver implements DnsResolver, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingDnsResolver.class);
+
+    private final DnsResolver delegate;
+
+    private final long ttlNanos;
+
+    private final long failureBackoffNanos;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * 连接失败的地址及其恢复时间
+     */
+    private final ConcurrentMap<InetAddress, Long> failed = new ConcurrentHashMap<InetAddress, Long>();
+
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-dns-refresher-%d").build());
+
+    public CachingDnsResolver(long ttlMillis) {
+        this(SystemDefaultDnsResolver.INSTANCE, ttlMillis, ttlMillis);
+    }
+
+    /**
+     * @param delegate           实际的解析器
+     * @param ttlMillis          缓存时间(ms)
+     * @param failureBackoffMillis 连接失败的地址被排到最后的时间(ms)
+     */
+    public CachingDnsResolver(DnsResolver delegate, long ttlMillis, long failureBackoffMillis) {
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.failureBackoffNanos = TimeUnit.MILLISECONDS.toNanos(failureBackoffMillis);
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        Entry entry = cache.get(host);
+        if (entry == null) {
+            // first lookup of a host has nothing to serve stale, resolve inline
+            entry = new Entry(order(delegate.resolve(host)));
+            Entry existing = cache.putIfAbsent(host, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        } else if (System.nanoTime() - entry.resolvedAt >= ttlNanos) {
+            refresh(host, entry);
+        }
+        return entry.next(this);
+    }
+
+    /**
+     * 标记地址连接失败
+     */
+    public void markFailed(InetAddress address) {
+        failed.put(address, System.nanoTime() + failureBackoffNanos);
+    }
+
+    /**
+     * 丢弃主机的缓存, 下次解析时重新查询
+     */
+    public void evict(String host) {
+        cache.remove(host);
+    }
+
+    @Override
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private void refresh(final String host, final Entry stale) {
+        if (!stale.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        cache.replace(host, stale, new Entry(order(delegate.resolve(host))));
+                    } catch (UnknownHostException e) {
+                        // keep serving the stale addresses, retry on next lookup
+                        logger.warn("failed to refresh dns of host({}), cause: {}", host, e.getMessage());
+                    } catch (RuntimeException e) {
+                        logger.warn("failed to refresh dns of host(" + host + ")", e);
+                    } finally {
+                        // a replaced entry is no longer served, resetting its flag is harmless
+                        stale.refreshing.set(false);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed, keep serving the stale addresses
+            stale.refreshing.set(false);
+        }
+    }
+
+    private boolean isFailed(InetAddress address) {
+        Long until = failed.get(address);
+        if (until == null) {
+            return false;
+        }
+        if (System.nanoTime() - until >= 0) {
+            failed.remove(address, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * IPv6与IPv4交错排列
+     */
+    private static InetAddress[] order(InetAddress[] addresses) {
+        List<InetAddress> v6 = new ArrayList<InetAddress>();
+        List<InetAddress> v4 = new ArrayList<InetAddress>();
+        for (InetAddress address : addresses) {
+            (address instanceof Inet6Address ? v6 : v4).add(address);
+        }
+        if (v6.isEmpty() || v4.isEmpty()) {
+            return addresses;
+        }
+        InetAddress[] ordered = new InetAddress[addresses.length];
+        int i = 0;
+        for (int k = 0; k < Math.max(v6.size(), v4.size()); k++) {
+            if (k < v6.size()) {
+                ordered[i++] = v6.get(k);
+            }
+            if (k < v4.size()) {
+                ordered[i++] = v4.get(k);
+            }
+        }
+        return ordered;
+    }
+
+    private static class Entry {
+
+        private final InetAddress[] addresses;
+
+        private final long resolvedAt = System.nanoTime();
+
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        private Entry(InetAddress[] addresses) {
+            this.addresses = addresses;
+        }
+
+        /**
+         * 从轮询位置开始旋转, 失败的地址排到最后
+         */
+        private InetAddress[] next(CachingDnsResolver resolver) {
+            int n = addresses.length;
+            if (n <= 1) {
+                return addresses.clone();
+            }
+            int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % n;
+            InetAddress[] result = new InetAddress[n];
+            int head = 0;
+            int tail = n - 1;
+            for (int k = 0; k < n; k++) {
+                InetAddress address = addresses[(start + k) % n];
+                if (resolver.isFailed(address)) {
+                    result[tail--] = address;
+                } else {
+                    result[head++] = address;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.leespy.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 熔断器: 连续失败达到阈值后打开, 打开期间拒绝请求;
+ * 超过openMillis后进入半开状态, 只放行一个探测请求, 探测成功则关闭, 失败则重新打开;
+ * 探测请求被取消(截止时间、对冲请求落败)时同样重新打开, 下一个openMillis后再放行新的探测
+ */
+public class CircuitBreaker {
+
+    public static final int CLOSED = 0;
+
+    public static final int OPEN = 1;
+
+    public static final int HALF_OPEN = 2;
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicLong openedAt = new AtomicLong();
+
+    /**
+     * @param failureThreshold 连续失败次数阈值, 0表示不熔断
+     * @param openMillis       打开状态持续时间(ms)
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * 是否允许发出请求, 返回true后必须调用onSuccess、onFailure或onAbort之一
+     */
+    public boolean allowRequest() {
+        if (failureThreshold <= 0) {
+            return true;
+        }
+        switch (state.get()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return System.nanoTime() - openedAt.get() >= openNanos
+                        && state.compareAndSet(OPEN, HALF_OPEN);
+            default:
+                // a probe is already in flight
+                return false;
+        }
+    }
+
+    /**
+     * 只有半开状态下的成功才关闭熔断器, 打开之前发出的慢请求在打开期间成功不会跳过探测
+     */
+    public void onSuccess() {
+        failures.set(0);
+        state.compareAndSet(HALF_OPEN, CLOSED);
+    }
+
+    /**
+     * 打开期间结束的慢请求失败不计数, 也不延长打开时间
+     */
+    public void onFailure() {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        switch (state.get()) {
+            case HALF_OPEN:
+                trip(HALF_OPEN);
+                break;
+            case CLOSED:
+                if (failures.incrementAndGet() >= failureThreshold) {
+                    trip(CLOSED);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 请求被取消, 结果不代表目标主机的状况, 不计入连续失败;
+     * 被取消的若是半开状态的探测请求, 则重新打开以便之后再次探测, 否则会一直停留在半开状态
+     */
+    public void onAbort() {
+        if (failureThreshold > 0 && state.get() == HALF_OPEN) {
+            trip(HALF_OPEN);
+        }
+    }
+
+    /**
+     * 当前状态: CLOSED, OPEN或HALF_OPEN
+     */
+    public int getState() {
+        return state.get();
+    }
+
+    private void trip(int from) {
+        openedAt.set(System.nanoTime());
+        state.compareAndSet(from, OPEN);
+    }
+}
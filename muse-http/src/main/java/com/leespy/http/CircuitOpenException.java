@@ -0,0 +1,24 @@
+package com.leespy.http;
+
+import org.apache.http.HttpHost;
+
+import java.io.IOException;
+
+/**
+ * 目标主机熔断中, 请求未发出
+ */
+public class CircuitOpenException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpHost host;
+
+    public CircuitOpenException(HttpHost host) {
+        super("circuit open: " + host);
+        this.host = host;
+    }
+
+    public HttpHost getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,80 @@
+package com.leespy.http;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Inflater/Deflater对象池. 二者都持有native内存, 创建与end()代价较高, 复用可以避免每个请求都重新分配
+ */
+final class CodecPool {
+
+    private static final int MAX_POOLED = 64;
+
+    /**
+     * 不带zlib头, 用于gzip
+     */
+    private static final Pool<Inflater> RAW_INFLATERS = new Pool<Inflater>();
+
+    private static final Pool<Inflater> ZLIB_INFLATERS = new Pool<Inflater>();
+
+    private static final Pool<Deflater> RAW_DEFLATERS = new Pool<Deflater>();
+
+    private static final Pool<Deflater> ZLIB_DEFLATERS = new Pool<Deflater>();
+
+    private CodecPool() {
+    }
+
+    static Inflater inflater(boolean nowrap) {
+        Inflater inflater = (nowrap ? RAW_INFLATERS : ZLIB_INFLATERS).poll();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    static void release(Inflater inflater, boolean nowrap) {
+        inflater.reset();
+        if (!(nowrap ? RAW_INFLATERS : ZLIB_INFLATERS).offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    static Deflater deflater(boolean nowrap) {
+        Deflater deflater = (nowrap ? RAW_DEFLATERS : ZLIB_DEFLATERS).poll();
+        return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+    }
+
+    static void release(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (!(nowrap ? RAW_DEFLATERS : ZLIB_DEFLATERS).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 有界无锁池
+     */
+    private static class Pool<T> {
+
+        private final Queue<T> items = new ConcurrentLinkedQueue<T>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        T poll() {
+            T item = items.poll();
+            if (item != null) {
+                size.decrementAndGet();
+            }
+            return item;
+        }
+
+        boolean offer(T item) {
+            if (size.incrementAndGet() > MAX_POOLED) {
+                size.decrementAndGet();
+                return false;
+            }
+            items.offer(item);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.leespy.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 自适应并发限制(AIMD): 请求成功且耗时未明显超过基线时, 每完成limit个请求上限加1;
+ * 请求失败或耗时超过基线的tolerance倍时, 上限乘以backoffRatio.
+ * 基线取最近窗口内的最小耗时, 所有状态均为原子变量, 不加锁
+ */
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private static final double TOLERANCE = 2.0;
+
+    /**
+     * 每完成该数量的请求重置一次耗时基线, 跟随上游的变化
+     */
+    private static final int BASELINE_WINDOW = 1000;
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final AtomicInteger limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger successes = new AtomicInteger();
+
+    private final AtomicInteger samples = new AtomicInteger();
+
+    private final AtomicLong baseline = new AtomicLong(Long.MAX_VALUE);
+
+    public ConcurrencyLimiter(int minLimit, int maxLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = new AtomicInteger(this.maxLimit);
+    }
+
+    /**
+     * 立即获取并发名额, 不等待
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * 在timeout内获取并发名额
+     *
+     * @param timeout 最长等待时间, Long.MAX_VALUE表示一直等待
+     * @param unit    时间单位
+     * @return 获取成功返回true
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + unit.toNanos(timeout);
+        long park = 1000;
+        while (!tryAcquire()) {
+            long remaining = deadline == Long.MAX_VALUE ? MAX_PARK_NANOS : deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(Math.min(park, remaining));
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            park = Math.min(park << 1, MAX_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * 释放名额并反馈请求结果
+     *
+     * @param latencyNanos 请求耗时(ns), 小于0表示请求未真正发出, 不参与调整
+     * @param dropped      请求是否失败(超时、连接错误、5xx)
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        inFlight.decrementAndGet();
+        if (latencyNanos < 0) {
+            return;
+        }
+        if (samples.incrementAndGet() % BASELINE_WINDOW == 0) {
+            baseline.set(latencyNanos);
+        } else {
+            long min;
+            do {
+                min = baseline.get();
+            } while (latencyNanos < min && !baseline.compareAndSet(min, latencyNanos));
+        }
+        if (dropped || latencyNanos > baseline.get() * TOLERANCE) {
+            decrease();
+        } else {
+            increase();
+        }
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * 当前在途请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void increase() {
+        int current = limit.get();
+        if (current < maxLimit && successes.incrementAndGet() >= current) {
+            successes.set(0);
+            limit.compareAndSet(current, current + 1);
+        }
+    }
+
+    private void decrease() {
+        int current;
+        int next;
+        do {
+            current = limit.get();
+            next = Math.max(minLimit, (int) (current * BACKOFF_RATIO));
+        } while (next != current && !limit.compareAndSet(current, next));
+        successes.set(0);
+    }
+}
@@ -0,0 +1,102 @@
+package com.leespy.http;
+
+import com.github.kevinsawicki.http.HttpRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Http发出的请求的响应, 基于HttpURLConnection; body读完时连接留给keep-alive复用, 否则断开
+ */
+class ConnectionResponse extends Response {
+
+    private final HttpRequest request;
+
+    /**
+     * 截止时间的定时任务, 没有截止时间时为null
+     */
+    private final ScheduledFuture<?> watchdog;
+
+    ConnectionResponse(HttpRequest request, String defaultCharset, ScheduledFuture<?> watchdog) {
+        super(defaultCharset);
+        this.request = request;
+        this.watchdog = watchdog;
+    }
+
+    @Override
+    public int status() {
+        return request.code();
+    }
+
+    @Override
+    public String reason() {
+        return request.message();
+    }
+
+    @Override
+    public String header(String name) {
+        return request.header(name);
+    }
+
+    @Override
+    public List<String> headers(String name) {
+        return Arrays.asList(request.headers(name));
+    }
+
+    @Override
+    public Map<String, List<String>> headers() {
+        Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : request.headers().entrySet()) {
+            // HttpURLConnection reports the status line under a null key
+            if (header.getKey() != null) {
+                headers.put(header.getKey(), header.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(headers);
+    }
+
+    @Override
+    public long contentLength() {
+        return request.contentLength();
+    }
+
+    @Override
+    protected Charset contentCharset() {
+        String charset = request.charset();
+        if (charset == null) {
+            return null;
+        }
+        try {
+            return FormEncoder.charset(charset);
+        } catch (RuntimeException e) {
+            // unsupported charset, fall back to the request charset
+            return null;
+        }
+    }
+
+    @Override
+    protected InputStream openStream() throws IOException {
+        try {
+            return request.stream();
+        } catch (HttpRequest.HttpRequestException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    protected void release(boolean drained) {
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+        if (!drained) {
+            request.disconnect();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.leespy.http;
+
+import com.leespy.io.BufferPool;
+import com.leespy.io.PooledByteArrayOutputStream;
+import org.apache.http.client.entity.InputStreamFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 请求/响应body的压缩编码. 压缩与解压使用池化的Deflater/Inflater
+ */
+public enum ContentCoding {
+
+    GZIP("gzip") {
+        @Override
+        public void compress(byte[] data, int off, int len, PooledByteArrayOutputStream out) {
+            out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            deflate(data, off, len, true, out);
+            CRC32 crc = new CRC32();
+            crc.update(data, off, len);
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, len);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) {
+            return new GzipInputStream(in);
+        }
+    },
+
+    DEFLATE("deflate") {
+        @Override
+        public void compress(byte[] data, int off, int len, PooledByteArrayOutputStream out) {
+            deflate(data, off, len, false, out);
+        }
+
+        @Override
+        public InputStream decompress(InputStream in) throws IOException {
+            // "deflate" should be zlib wrapped, but some servers send raw deflate
+            PushbackInputStream pushback = new PushbackInputStream(in, 2);
+            byte[] head = new byte[2];
+            int n = 0;
+            // a chunked or slow body may deliver the header one byte at a time
+            while (n < head.length) {
+                int read = pushback.read(head, n, head.length - n);
+                if (read < 0) {
+                    break;
+                }
+                n += read;
+            }
+            if (n == 0) {
+                return pushback;
+            }
+            pushback.unread(head, 0, n);
+            int cmf = head[0] & 0xff;
+            boolean zlib = n == 2 && (cmf & 0x0f) == 8 && ((cmf << 8) | (head[1] & 0xff)) % 31 == 0;
+            return new PooledInflaterInputStream(pushback, !zlib);
+        }
+    };
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final String name;
+
+    ContentCoding(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Content-Encoding头中的名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 压缩数据
+     */
+    public byte[] compress(byte[] data, int off, int len) {
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(len / 4 + 32);
+        try {
+            compress(data, off, len, out);
+            return out.toByteArray();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 压缩数据, 写入池化的输出流
+     */
+    public abstract void compress(byte[] data, int off, int len, PooledByteArrayOutputStream out);
+
+    /**
+     * 包装为解压流
+     */
+    public abstract InputStream decompress(InputStream in) throws IOException;
+
+    /**
+     * HttpClient的响应解码器注册表, 替换默认的gzip/deflate实现
+     */
+    public static Map<String, InputStreamFactory> decoders() {
+        Map<String, InputStreamFactory> decoders = new HashMap<String, InputStreamFactory>();
+        decoders.put("gzip", factory(GZIP));
+        decoders.put("x-gzip", factory(GZIP));
+        decoders.put("deflate", factory(DEFLATE));
+        return decoders;
+    }
+
+    private static InputStreamFactory factory(final ContentCoding coding) {
+        return new InputStreamFactory() {
+            @Override
+            public InputStream create(InputStream in) throws IOException {
+                return coding.decompress(in);
+            }
+        };
+    }
+
+    private static void deflate(byte[] data, int off, int len, boolean nowrap, PooledByteArrayOutputStream out) {
+        Deflater deflater = CodecPool.deflater(nowrap);
+        byte[] chunk = BufferPool.DEFAULT.acquire(PooledInflaterInputStream.BUFFER_SIZE);
+        try {
+            deflater.setInput(data, off, len);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+        } finally {
+            BufferPool.DEFAULT.release(chunk);
+            CodecPool.release(deflater, nowrap);
+        }
+    }
+
+    private static void writeIntLE(PooledByteArrayOutputStream out, int v) {
+        out.write(v & 0xff);
+        out.write((v >>> 8) & 0xff);
+        out.write((v >>> 16) & 0xff);
+        out.write((v >>> 24) & 0xff);
+    }
+}
@@ -0,0 +1,118 @@
+package com.leespy.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.client.config.RequestConfig;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次调用的截止时间, 覆盖排队、借出连接、建立连接、重试与读取body的全过程.
+ * 剩余时间可通过remaining获取, 用于向下游传递
+ */
+public final class Deadline {
+
+    /**
+     * HttpContext中保存Deadline的属性名
+     */
+    static final String CONTEXT_ATTRIBUTE = "muse.deadline";
+
+    /**
+     * 基于System.nanoTime
+     */
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * 从现在起经过给定时长后截止
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        long now = System.nanoTime();
+        long nanos = unit.toNanos(duration);
+        // saturate instead of wrapping around for huge budgets
+        return new Deadline(nanos > Long.MAX_VALUE / 2 ? now + Long.MAX_VALUE / 2 : now + nanos);
+    }
+
+    /**
+     * 在给定的时刻截止
+     *
+     * @param epochMillis 截止时刻(ms)
+     */
+    public static Deadline at(long epochMillis) {
+        return after(epochMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 剩余时间, 已过期时返回0
+     */
+    public long remaining(TimeUnit unit) {
+        long remaining = deadlineNanos - System.nanoTime();
+        return remaining > 0 ? unit.convert(remaining, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * 两个截止时间中较早的一个
+     *
+     * @param other 可以为null
+     */
+    public Deadline min(Deadline other) {
+        return other == null || deadlineNanos - other.deadlineNanos <= 0 ? this : other;
+    }
+
+    /**
+     * 把超时时间限制在剩余时间之内
+     *
+     * @param timeoutMillis 原超时时间(ms), 不大于0表示不限
+     * @return 不超过剩余时间的超时时间(ms), 至少为1, 避免0被当作不限
+     */
+    int limit(int timeoutMillis) {
+        int remaining = (int) Math.max(1, Math.min(Integer.MAX_VALUE, remaining(TimeUnit.MILLISECONDS)));
+        return timeoutMillis <= 0 ? remaining : Math.min(timeoutMillis, remaining);
+    }
+
+    /**
+     * 把借出连接、建立连接与socket读的超时限制在剩余时间之内
+     */
+    RequestConfig limit(RequestConfig config) {
+        return RequestConfig.copy(config)
+                .setConnectionRequestTimeout(limit(config.getConnectionRequestTimeout()))
+                .setConnectTimeout(limit(config.getConnectTimeout()))
+                .setSocketTimeout(limit(config.getSocketTimeout()))
+                .build();
+    }
+
+    /**
+     * 到期时执行给定的任务, 请求正常结束后应取消返回的future
+     */
+    ScheduledFuture<?> watch(Runnable onExpire) {
+        return Watchdog.EXECUTOR.schedule(onExpire, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline(remaining=" + remaining(TimeUnit.MILLISECONDS) + "ms)";
+    }
+
+    /**
+     * 首次使用时才创建的定时线程
+     */
+    private static class Watchdog {
+
+        private static final ScheduledThreadPoolExecutor EXECUTOR = create();
+
+        private static ScheduledThreadPoolExecutor create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-deadline-watchdog").build());
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
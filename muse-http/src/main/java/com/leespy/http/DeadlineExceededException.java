@@ -0,0 +1,20 @@
+package com.leespy.http;
+
+import java.io.InterruptedIOException;
+
+/**
+ * 调用超过了截止时间, 请求已被取消或未发出
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message);
+        initCause(cause);
+    }
+}
@@ -0,0 +1,78 @@
+package com.leespy.http;
+
+import com.leespy.io.BufferPool;
+import com.leespy.io.PooledByteArrayOutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * 按指定编码读取响应内容, 非2xx响应抛出HttpResponseException
+ */
+public class EncodingResponseHandler implements ResponseHandler<String> {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    /**
+     * Content-Length超过该值时不按其预分配, 避免一次借出过大的数组
+     */
+    private static final int MAX_PRESIZE = 1 << 20;
+
+    private final String encoding;
+
+    public EncodingResponseHandler(String encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public String handleResponse(HttpResponse response) throws IOException {
+        StatusLine statusLine = response.getStatusLine();
+        HttpEntity entity = response.getEntity();
+        if (statusLine.getStatusCode() >= 300) {
+            EntityUtils.consume(entity);
+            throw new HttpResponseException(statusLine.getStatusCode(), statusLine.getReasonPhrase());
+        }
+        return entity == null ? null : toString(entity, encoding);
+    }
+
+    /**
+     * 与EntityUtils.toString相同的字符集选择, 但body先读入池化的数组, 只在最后构造一次String
+     */
+    static String toString(HttpEntity entity, String defaultCharset) throws IOException {
+        InputStream in = entity.getContent();
+        if (in == null) {
+            return null;
+        }
+        long length = entity.getContentLength();
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(
+                length > 0 && length < MAX_PRESIZE ? (int) length : DEFAULT_BUFFER_SIZE);
+        byte[] chunk = BufferPool.DEFAULT.acquire(DEFAULT_BUFFER_SIZE);
+        try {
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                out.write(chunk, 0, n);
+            }
+            Charset charset = null;
+            ContentType contentType = ContentType.get(entity);
+            if (contentType != null) {
+                charset = contentType.getCharset();
+            }
+            if (charset == null) {
+                charset = FormEncoder.charset(defaultCharset);
+            }
+            return new String(out.array(), 0, out.size(), charset);
+        } finally {
+            BufferPool.DEFAULT.release(chunk);
+            out.close();
+            in.close();
+        }
+    }
+}
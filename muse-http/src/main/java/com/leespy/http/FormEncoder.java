@@ -0,0 +1,212 @@
+package com.leespy.http;
+
+import com.google.common.base.Charsets;
+import com.leespy.io.PooledByteArrayOutputStream;
+
+import java.lang.reflect.Array;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * application/x-www-form-urlencoded编码: 按预计算的表逐字符编码, 直接写入池化数组.
+ * 字母数字与"-_.*"原样输出, 与UrlEncodedFormEntity/URLEncoder的结果一致; 纯ASCII的参数不产生中间对象,
+ * UTF-8的非ASCII字符直接编码, 其他字符集只对非ASCII的片段调用String.getBytes
+ */
+public final class FormEncoder {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(Charsets.US_ASCII);
+
+    /**
+     * ASCII字符是否原样输出
+     */
+    private static final boolean[] SAFE = new boolean[128];
+
+    /**
+     * url中必须编码的ASCII字符, 出现时整个url交给HttpRequest.encode
+     */
+    private static final boolean[] ILLEGAL_IN_URL = new boolean[128];
+
+    private static final ConcurrentMap<String, Charset> CHARSETS = new ConcurrentHashMap<String, Charset>();
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            SAFE[c] = true;
+            SAFE[c - 'a' + 'A'] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            SAFE[c] = true;
+        }
+        for (char c : "-_.*".toCharArray()) {
+            SAFE[c] = true;
+        }
+        for (int c = 0; c <= ' '; c++) {
+            ILLEGAL_IN_URL[c] = true;
+        }
+        ILLEGAL_IN_URL[0x7f] = true;
+        for (char c : "\"<>\\^`{|}".toCharArray()) {
+            ILLEGAL_IN_URL[c] = true;
+        }
+    }
+
+    private FormEncoder() {
+    }
+
+    /**
+     * 按名称取字符集, 结果缓存, 避免每个请求都经过Charset.forName的查找
+     *
+     * @throws java.nio.charset.UnsupportedCharsetException 不支持的字符集
+     */
+    public static Charset charset(String name) {
+        Charset charset = CHARSETS.get(name);
+        if (charset == null) {
+            charset = Charset.forName(name);
+            CHARSETS.putIfAbsent(name, charset);
+        }
+        return charset;
+    }
+
+    /**
+     * 把参数编码为表单body写入out, 形如k1=v1&amp;k2=v2, 空格编码为'+'.
+     * 值为数组或Iterable时每个元素输出一次同名参数, 值为null时输出"k="
+     */
+    public static void writeForm(Map<String, ?> params, Charset charset, PooledByteArrayOutputStream out) {
+        writeParams(params, charset, true, out);
+    }
+
+    /**
+     * 把参数编码为查询串拼到url后, 空格编码为"%20".
+     * url已带查询串时以'&amp;'连接, 只有域名时补上路径'/'
+     *
+     * @param url     不含需编码字符的url
+     * @param params  参数, 为空时原样返回url
+     * @param charset 参数的字符集, 通常为UTF-8
+     */
+    public static String appendQuery(String url, Map<String, ?> params, Charset charset) {
+        if (params == null || params.isEmpty()) {
+            return url;
+        }
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(url.length() + params.size() * 32);
+        try {
+            out.writeString(url, Charsets.ISO_8859_1);
+            int scheme = url.indexOf("://");
+            if (scheme != -1 && url.indexOf('/', scheme + 3) == -1) {
+                out.write('/');
+            }
+            int query = url.indexOf('?');
+            if (query == -1) {
+                out.write('?');
+            } else if (query < url.length() - 1 && !url.endsWith("&")) {
+                out.write('&');
+            }
+            writeParams(params, charset, false, out);
+            return new String(out.array(), 0, out.size(), Charsets.ISO_8859_1);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 编码一个名称或值
+     *
+     * @param spaceAsPlus 空格是否编码为'+', 否则为"%20"
+     */
+    public static void write(CharSequence s, Charset charset, boolean spaceAsPlus, PooledByteArrayOutputStream out) {
+        int len = s.length();
+        boolean utf8 = Charsets.UTF_8.equals(charset);
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (SAFE[c]) {
+                    out.write(c);
+                } else if (c == ' ' && spaceAsPlus) {
+                    out.write('+');
+                } else {
+                    writeEscaped(c, out);
+                }
+            } else if (utf8) {
+                if (c < 0x800) {
+                    writeEscaped(0xc0 | (c >> 6), out);
+                    writeEscaped(0x80 | (c & 0x3f), out);
+                } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    writeEscaped(0xf0 | (cp >> 18), out);
+                    writeEscaped(0x80 | ((cp >> 12) & 0x3f), out);
+                    writeEscaped(0x80 | ((cp >> 6) & 0x3f), out);
+                    writeEscaped(0x80 | (cp & 0x3f), out);
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired surrogate, same replacement as String.getBytes
+                    writeEscaped('?', out);
+                } else {
+                    writeEscaped(0xe0 | (c >> 12), out);
+                    writeEscaped(0x80 | ((c >> 6) & 0x3f), out);
+                    writeEscaped(0x80 | (c & 0x3f), out);
+                }
+            } else {
+                int end = i + 1;
+                while (end < len && s.charAt(end) >= 0x80) {
+                    end++;
+                }
+                byte[] bytes = s.subSequence(i, end).toString().getBytes(charset);
+                for (byte b : bytes) {
+                    writeEscaped(b & 0xff, out);
+                }
+                i = end - 1;
+            }
+        }
+    }
+
+    /**
+     * url中是否有必须编码的字符(空白、控制字符、非ASCII字符或"&lt;&gt;等)
+     */
+    public static boolean needsEncoding(CharSequence url) {
+        for (int i = 0, len = url.length(); i < len; i++) {
+            char c = url.charAt(i);
+            if (c >= 0x80 || ILLEGAL_IN_URL[c]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeParams(Map<String, ?> params, Charset charset, boolean spaceAsPlus,
+                                    PooledByteArrayOutputStream out) {
+        boolean first = true;
+        for (Map.Entry<String, ?> param : params.entrySet()) {
+            Object value = param.getValue();
+            if (value instanceof Iterable) {
+                for (Object element : (Iterable<?>) value) {
+                    writeParam(param.getKey(), element, charset, spaceAsPlus, out, first);
+                    first = false;
+                }
+            } else if (value != null && value.getClass().isArray()) {
+                for (int i = 0, n = Array.getLength(value); i < n; i++) {
+                    writeParam(param.getKey(), Array.get(value, i), charset, spaceAsPlus, out, first);
+                    first = false;
+                }
+            } else {
+                writeParam(param.getKey(), value, charset, spaceAsPlus, out, first);
+                first = false;
+            }
+        }
+    }
+
+    private static void writeParam(String name, Object value, Charset charset, boolean spaceAsPlus,
+                                   PooledByteArrayOutputStream out, boolean first) {
+        if (!first) {
+            out.write('&');
+        }
+        write(name, charset, spaceAsPlus, out);
+        out.write('=');
+        if (value != null) {
+            write(value instanceof CharSequence ? (CharSequence) value : value.toString(), charset, spaceAsPlus, out);
+        }
+    }
+
+    private static void writeEscaped(int b, PooledByteArrayOutputStream out) {
+        out.write('%');
+        out.write(HEX[b >> 4]);
+        out.write(HEX[b & 0xf]);
+    }
+}
@@ -0,0 +1,118 @@
+package com.leespy.http;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * gzip解压流, 与GZIPInputStream相同的格式处理, 但Inflater来自对象池.
+ * 只解压第一个member
+ */
+class GzipInputStream extends PooledInflaterInputStream {
+
+    private static final int MAGIC = 0x8b1f;
+
+    private static final int FHCRC = 2;
+
+    private static final int FEXTRA = 4;
+
+    private static final int FNAME = 8;
+
+    private static final int FCOMMENT = 16;
+
+    private final CRC32 crc = new CRC32();
+
+    private boolean headerRead = false;
+
+    private boolean eof = false;
+
+    GzipInputStream(InputStream in) {
+        super(in, true);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (!headerRead) {
+            readHeader();
+            headerRead = true;
+        }
+        if (eof) {
+            return -1;
+        }
+        int n = super.read(b, off, len);
+        if (n == -1) {
+            readTrailer();
+            eof = true;
+        } else {
+            crc.update(b, off, n);
+        }
+        return n;
+    }
+
+    private void readHeader() throws IOException {
+        if (readUShort(in) != MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (readUByte(in) != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = readUByte(in);
+        // MTIME, XFL, OS
+        skipBytes(in, 6);
+        if ((flags & FEXTRA) == FEXTRA) {
+            skipBytes(in, readUShort(in));
+        }
+        if ((flags & FNAME) == FNAME) {
+            while (readUByte(in) != 0) {
+                // skip file name
+            }
+        }
+        if ((flags & FCOMMENT) == FCOMMENT) {
+            while (readUByte(in) != 0) {
+                // skip comment
+            }
+        }
+        if ((flags & FHCRC) == FHCRC) {
+            skipBytes(in, 2);
+        }
+    }
+
+    private void readTrailer() throws IOException {
+        // the inflater may have consumed part of the trailer into buf
+        byte[] trailer = new byte[8];
+        int remaining = Math.min(inf.getRemaining(), trailer.length);
+        System.arraycopy(buf, len - inf.getRemaining(), trailer, 0, remaining);
+        for (int i = remaining; i < trailer.length; i++) {
+            trailer[i] = (byte) readUByte(in);
+        }
+        long expectedCrc = littleEndianInt(trailer, 0);
+        long expectedSize = littleEndianInt(trailer, 4);
+        if (expectedCrc != crc.getValue() || expectedSize != (inf.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+    }
+
+    private static long littleEndianInt(byte[] b, int off) {
+        return (b[off] & 0xffL) | (b[off + 1] & 0xffL) << 8 | (b[off + 2] & 0xffL) << 16 | (b[off + 3] & 0xffL) << 24;
+    }
+
+    private static int readUShort(InputStream in) throws IOException {
+        return readUByte(in) | readUByte(in) << 8;
+    }
+
+    private static int readUByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static void skipBytes(InputStream in, int n) throws IOException {
+        for (int i = 0; i < n; i++) {
+            readUByte(in);
+        }
+    }
+}
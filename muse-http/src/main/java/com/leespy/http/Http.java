@@ -0,0 +1,537 @@
+package com.leespy.http;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.github.kevinsawicki.http.HttpRequest;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import com.leespy.json.Jsoner;
+import org.apache.http.HttpHost;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Http请求服务类
+ * <p/>
+ * Date: 16/5/6
+ * Time: 下午3:47
+ *
+ * @author i@leespy.com
+ */
+public class Http {
+
+    private static final Logger logger = LoggerFactory.getLogger(Http.class);
+
+    /**
+     * 所有请求共用的监听器, 默认包含通过ServiceLoader发现的HttpListeners.installed()
+     */
+    private static final List<HttpListener> LISTENERS = new CopyOnWriteArrayList<HttpListener>(HttpListeners.installed());
+
+    private String url;
+
+    private HttpMethod method = HttpMethod.GET;
+
+    private Map<String, String> headers = Collections.emptyMap();
+
+    private Map<String, ?> params = Collections.emptyMap();
+
+    /**
+     * 请求body
+     */
+    private String body;
+
+    private Boolean ssl = Boolean.FALSE;
+
+    private Integer connectTimeout = 1000 * 5;
+
+    private Integer readTimeout = 1000 * 5;
+
+    /**
+     * 是否编码
+     */
+    private Boolean encode = Boolean.TRUE;
+
+    /**
+     * 请求内容类型
+     */
+    private String contentType = "";
+
+    /**
+     * 编码字符集
+     */
+    private String charset = HttpRequest.CHARSET_UTF8;
+
+    /**
+     * 接收类型
+     */
+    private String accept = "";
+
+    /**
+     * 是否接受gzip
+     */
+    private Boolean acceptGzip = Boolean.TRUE;
+
+    /**
+     * 请求body压缩编码, 为null时不压缩
+     */
+    private ContentCoding compress;
+
+    /**
+     * 请求body达到该字节数才压缩
+     */
+    private Integer compressThreshold = 1024;
+
+    /**
+     * 截止时间, 限制连接、读超时与整个请求的耗时
+     */
+    private Deadline deadline;
+
+    private Http(String url) {
+        this.url = url;
+    }
+
+    private Http method(HttpMethod method) {
+        this.method = method;
+        return this;
+    }
+
+    public Http ssl() {
+        this.ssl = Boolean.TRUE;
+        return this;
+    }
+
+    public Http headers(Map<String, String> headers) {
+        this.headers = headers;
+        return this;
+    }
+
+    public Http params(Map<String, ?> params) {
+        this.params = params;
+        return this;
+    }
+
+    /**
+     * 请求body
+     */
+    public Http body(String body) {
+        this.body = body;
+        return this;
+    }
+
+    public Http encode(Boolean encode) {
+        this.encode = encode;
+        return this;
+    }
+
+    public Http contentType(String contentType) {
+        this.contentType = contentType;
+        return this;
+    }
+
+    public Http charset(String charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    public Http accept(String accept) {
+        this.accept = accept;
+        return this;
+    }
+
+    public Http acceptGzip(Boolean acceptGzip) {
+        this.acceptGzip = acceptGzip;
+        return this;
+    }
+
+    /**
+     * 压缩请求body, 服务端需支持对应的Content-Encoding
+     *
+     * @param compress 压缩编码
+     */
+    public Http compress(ContentCoding compress) {
+        this.compress = compress;
+        return this;
+    }
+
+    /**
+     * 压缩请求body, body小于threshold字节时不压缩
+     *
+     * @param compress  压缩编码
+     * @param threshold 压缩阈值(byte)
+     */
+    public Http compress(ContentCoding compress, Integer threshold) {
+        this.compress = compress;
+        this.compressThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * set connect timeout
+     *
+     * @param connectTimeout (s)
+     */
+    public Http connTimeout(Integer connectTimeout) {
+        this.connectTimeout = connectTimeout * 1000;
+        return this;
+    }
+
+    /**
+     * set read timeout
+     *
+     * @param readTimeout (s)
+     */
+    public Http readTimeout(Integer readTimeout) {
+        this.readTimeout = readTimeout * 1000;
+        return this;
+    }
+
+    /**
+     * set deadline, connect and read timeouts are capped by the remaining time
+     * and the request is cancelled once it passes
+     *
+     * @param deadline deadline
+     */
+    public Http deadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
+    public String request() {
+        return execute(prepare(), hasBody());
+    }
+
+    /**
+     * send the request and return once the response head arrives, non-2xx responses are returned as well
+     *
+     * @return the response, must be closed after reading the body
+     * @throws DeadlineExceededException the deadline passed
+     * @throws IOException               connect or read failed
+     */
+    public Response response() throws IOException {
+        return open(prepare(), hasBody());
+    }
+
+    public <T> T requestJson(Class<T> clazz) {
+        return Jsoner.DEFAULT.fromJson(request(), clazz);
+    }
+
+    public <T> T requestType(JavaType type) {
+        return Jsoner.DEFAULT.fromJson(request(), type);
+    }
+
+    /**
+     * GET不发送body, 其他方法有body时发送
+     */
+    private boolean hasBody() {
+        return method != HttpMethod.GET && !Strings.isNullOrEmpty(body);
+    }
+
+    private HttpRequest prepare() {
+        HttpRequest request = create()
+                .headers(headers)
+                .connectTimeout(deadline == null ? connectTimeout : deadline.limit(connectTimeout))
+                .readTimeout(deadline == null ? readTimeout : deadline.limit(readTimeout))
+                .uncompress(true);
+
+        if (acceptGzip) {
+            request.acceptGzipEncoding();
+        }
+
+        if (ssl) {
+            trustHttps(request);
+        }
+        setOptionalHeaders(request);
+        return request;
+    }
+
+    private HttpRequest create() {
+        switch (method) {
+            case POST:
+                return encode ? HttpRequest.post(encodedUrl()) : HttpRequest.post(url, params, false);
+            case PUT:
+                return encode ? HttpRequest.put(encodedUrl()) : HttpRequest.put(url, params, false);
+            case DELETE:
+                return encode ? HttpRequest.delete(encodedUrl()) : HttpRequest.delete(url, params, false);
+            default:
+                return encode ? HttpRequest.get(encodedUrl()) : HttpRequest.get(url, params, false);
+        }
+    }
+
+    private String execute(final HttpRequest request, boolean withBody) {
+        if (deadline != null && deadline.isExpired()) {
+            throw new HttpRequest.HttpRequestException(
+                    new DeadlineExceededException("deadline exceeded before request: " + url));
+        }
+        RequestTiming timing = begin(request);
+        ScheduledFuture<?> watchdog = watch(request);
+        try {
+            send(request, withBody, timing);
+            return request.body();
+        } catch (RuntimeException e) {
+            if (deadline != null && deadline.isExpired() && e instanceof HttpRequest.HttpRequestException) {
+                e = new HttpRequest.HttpRequestException(
+                        new DeadlineExceededException("deadline exceeded: " + url, e.getCause()));
+            }
+            timing.fail(e);
+            throw e;
+        } finally {
+            if (watchdog != null) {
+                watchdog.cancel(false);
+            }
+            timing.end();
+        }
+    }
+
+    /**
+     * HttpURLConnection不暴露DNS与TLS握手, 都计入CONNECT; 请求body在读取响应码时才写出, 计入FIRST_BYTE
+     */
+    private RequestTiming begin(HttpRequest request) {
+        URL target = request.url();
+        return RequestTiming.begin(new HttpHost(target.getHost(), target.getPort(), target.getProtocol()),
+                request.method(), url, LISTENERS);
+    }
+
+    private Response open(final HttpRequest request, boolean withBody) throws IOException {
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException("deadline exceeded before request: " + url);
+        }
+        RequestTiming timing = begin(request);
+        ScheduledFuture<?> watchdog = watch(request);
+        Response response = null;
+        try {
+            send(request, withBody, timing);
+            timing.detachBody();
+            response = new ConnectionResponse(request, charset, watchdog);
+            return response;
+        } catch (HttpRequest.HttpRequestException e) {
+            IOException cause = e.getCause();
+            if (deadline != null && deadline.isExpired() && !(cause instanceof DeadlineExceededException)) {
+                cause = new DeadlineExceededException("deadline exceeded: " + url, cause);
+            }
+            timing.fail(cause);
+            throw cause;
+        } catch (RuntimeException e) {
+            timing.fail(e);
+            throw e;
+        } finally {
+            if (response == null && watchdog != null) {
+                watchdog.cancel(false);
+            }
+            timing.end();
+        }
+    }
+
+    /**
+     * disconnect once the deadline passes
+     */
+    private ScheduledFuture<?> watch(final HttpRequest request) {
+        if (deadline == null) {
+            return null;
+        }
+        return deadline.watch(new Runnable() {
+            @Override
+            public void run() {
+                request.getConnection().disconnect();
+            }
+        });
+    }
+
+    /**
+     * connect, send the request and wait for the response head
+     */
+    private void send(HttpRequest request, boolean withBody, RequestTiming timing) {
+        long start = System.nanoTime();
+        if (withBody) {
+            // opens the connection, the body itself is buffered until the response is read
+            sendBody(request);
+        } else {
+            connect(request);
+        }
+        timing.add(RequestPhase.CONNECT, System.nanoTime() - start);
+        start = System.nanoTime();
+        int code = request.code();
+        timing.received0(code, System.nanoTime() - start);
+    }
+
+    private void connect(HttpRequest request) {
+        try {
+            request.getConnection().connect();
+        } catch (IOException e) {
+            throw new HttpRequest.HttpRequestException(e);
+        }
+    }
+
+
+    /**
+     * 参数按UTF-8逐个编码后拼到url, 参数值中的'&amp;'、'='、'+'等也会被编码;
+     * url本身有需编码的字符时才交给HttpRequest.encode
+     */
+    private String encodedUrl() {
+        String base = FormEncoder.needsEncoding(url) ? HttpRequest.encode(url) : url;
+        return FormEncoder.appendQuery(base, params, Charsets.UTF_8);
+    }
+
+    private void sendBody(HttpRequest request) {
+        if (compress == null) {
+            request.send(body);
+            return;
+        }
+        byte[] bytes = body.getBytes(FormEncoder.charset(charset));
+        if (bytes.length < compressThreshold) {
+            request.send(bytes);
+            return;
+        }
+        request.header(HttpRequest.HEADER_CONTENT_ENCODING, compress.getName());
+        request.send(compress.compress(bytes, 0, bytes.length));
+    }
+
+    private void setOptionalHeaders(HttpRequest request) {
+        if (!Strings.isNullOrEmpty(contentType)) {
+            request.contentType(contentType, charset);
+        }
+        if (!Strings.isNullOrEmpty(accept)) {
+            request.accept(accept);
+        }
+    }
+
+    private void trustHttps(HttpRequest request) {
+        request.trustAllCerts().trustAllHosts();
+    }
+
+    /**
+     * 添加所有请求共用的监听器
+     */
+    public static void addListener(HttpListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(HttpListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static Http get(String url) {
+        return new Http(url);
+    }
+
+    public static Http post(String url) {
+        return new Http(url).method(HttpMethod.POST);
+    }
+
+    public static Http put(String url) {
+        return new Http(url).method(HttpMethod.PUT);
+    }
+
+    public static Http delete(String url) {
+        return new Http(url).method(HttpMethod.DELETE);
+    }
+
+    /**
+     * upload file
+     *
+     * @param url       url
+     * @param fieldName field name
+     * @param file      file
+     * @return string response
+     */
+    public static String upload(String url, String fieldName, File file) {
+        try {
+            return upload(url, fieldName, file.getName(), new FileInputStream(file));
+        } catch (Exception e) {
+            logger.error("failed to upload file(url={}, fieldName={}, file={})",
+                    url, fieldName, file, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * upload file
+     *
+     * @param url       url
+     * @param fieldName field name
+     * @param in        InputStream
+     * @return string response
+     */
+    public static String upload(String url, String fieldName, String fileName, InputStream in) {
+        try {
+            HttpRequest request = HttpRequest.post(url);
+            request.part(fieldName, fileName, null, in);
+            return request.body();
+        } catch (Exception e) {
+            logger.error("failed to upload file(url={}, fieldName={}, fileName={})",
+                    url, fieldName, fileName, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * download a file
+     *
+     * @param url  http url
+     * @param into the file which downloaded content will fill into
+     */
+    public static void download(String url, File into) {
+        try {
+            download(url, new FileOutputStream(into));
+        } catch (FileNotFoundException e) {
+            logger.error("failed to download ({}) into file({})", url, into, e);
+        }
+    }
+
+    /**
+     * download a file
+     *
+     * @param url    http url
+     * @param output the output which downloaded content will fill into
+     */
+    public static void download(String url, OutputStream output) {
+        try {
+            HttpRequest request = HttpRequest.get(url);
+            if (request.ok()) {
+                request.receive(output);
+            } else {
+                logger.warn("download request(url={}) isn't ok: {}, {}",
+                        url, request.code(), request.body());
+            }
+        } catch (Exception e) {
+            logger.error("failed to download file(url={})", url, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * download a file
+     *
+     * @param url http url
+     * @return the file content or null if request isn't ok
+     */
+    public static String download(String url) {
+        try {
+            HttpRequest request = HttpRequest.get(url);
+            if (request.ok()) {
+                File downloading = File.createTempFile("download", "");
+                request.receive(downloading);
+                return Files.toString(downloading, Charsets.UTF_8);
+            } else {
+                logger.warn("download request(url={}) isn't ok: {}, {}",
+                        url, request.code(), request.body());
+            }
+            return null;
+        } catch (Exception e) {
+            logger.error("failed to download file(url={})", url, e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static enum HttpMethod {
+        GET, POST, PUT, DELETE
+    }
+
+}
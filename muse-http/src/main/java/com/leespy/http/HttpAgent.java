@@ -0,0 +1,1102 @@
+package com.leespy.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.leespy.io.PooledByteArrayOutputStream;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpRequestRetryHandler;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLContextBuilder;
+import org.apache.http.conn.ssl.SSLContexts;
+import org.apache.http.conn.ssl.TrustStrategy;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.NoConnectionReuseStrategy;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.KeyStore;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date: 16/5/6
+ * Time: 下午3:47
+ *
+ * @author i@leespy.com
+ */
+public class HttpAgent {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpAgent.class);
+
+    /**
+     * 对冲请求在主机延迟样本数达到该值之后才启用
+     */
+    private static final long HEDGE_MIN_SAMPLES = 100;
+
+    private HttpConfig config;
+    private PoolingHttpClientConnectionManager connManager;
+
+    /**
+     * 各目标主机的熔断、重试预算与延迟统计
+     */
+    private final ConcurrentMap<HttpHost, RouteState> routes = new ConcurrentHashMap<HttpHost, RouteState>();
+
+    /**
+     * 连接池自动调整, 未开启时为null
+     */
+    private PoolTuner poolTuner;
+
+    /**
+     * 连接预热, 未配置预热目标时为null
+     */
+    private PoolWarmer poolWarmer;
+
+    /**
+     * DNS缓存, 未开启HttpConfig.dnsCacheTtlMillis时为null
+     */
+    private CachingDnsResolver dnsCache;
+
+    /**
+     * 单向https客户端, 首次使用时创建
+     */
+    private volatile HttpClient sslClient;
+
+    /**
+     * 对冲请求线程池, 首次使用时创建
+     */
+    private volatile ExecutorService hedgeExecutor;
+
+    private HttpAgent() {
+    }
+
+    public HttpConfig getConfiguration() {
+        return config;
+    }
+
+    public void setConfiguration(HttpConfig configuration) {
+        this.config = configuration;
+    }
+
+    public PoolingHttpClientConnectionManager getConnManager() {
+        return connManager;
+    }
+
+    public void setConnManager(PoolingHttpClientConnectionManager connManager) {
+        this.connManager = connManager;
+    }
+
+    /**
+     * 连接池自动调整, 未开启HttpConfig.adaptivePool时为null
+     */
+    public PoolTuner getPoolTuner() {
+        return poolTuner;
+    }
+
+    /**
+     * 连接预热, 未配置HttpConfig.warmupTargets时为null
+     */
+    public PoolWarmer getPoolWarmer() {
+        return poolWarmer;
+    }
+
+    /**
+     * 关闭: 停止连接池自动调整与连接预热的定时任务与DNS缓存的刷新线程, 关闭对冲请求线程池与连接池中的所有连接.
+     * 不再使用的HttpAgent必须关闭, 否则定时任务一直持有其连接池, 预热的连接也会一直被补充; 关闭后不能再发出请求
+     */
+    public void shutdown() {
+        if (poolTuner != null) {
+            poolTuner.stop();
+        }
+        if (poolWarmer != null) {
+            poolWarmer.stop();
+        }
+        ExecutorService hedges = hedgeExecutor;
+        if (hedges != null) {
+            hedges.shutdownNow();
+        }
+        connManager.shutdown();
+        if (dnsCache != null) {
+            dnsCache.close();
+        }
+    }
+
+    public static HttpAgent create() {
+        return create(new HttpConfig());
+    }
+
+    public static HttpAgent create(HttpConfig config) {
+        HttpAgent agent = new HttpAgent();
+        agent.setConfiguration(config);
+        if (config.getDnsCacheTtlMillis() > 0) {
+            DnsResolver dnsResolver = config.getDnsResolver() != null
+                    ? config.getDnsResolver() : SystemDefaultDnsResolver.INSTANCE;
+            long dnsTtl = config.getDnsCacheTtlMillis();
+            agent.dnsCache = new CachingDnsResolver(dnsResolver, dnsTtl, dnsTtl);
+        }
+        TracingConnectionManager manager = createConnectionManager(config, agent.dnsCache);
+        agent.setConnManager(manager);
+        if (config.isAdaptivePool()) {
+            agent.poolTuner = new PoolTuner(manager, config);
+            agent.poolTuner.start();
+        }
+        if (!config.getWarmupTargets().isEmpty()) {
+            agent.poolWarmer = new PoolWarmer(manager, config);
+            agent.poolWarmer.start();
+        }
+        return agent;
+    }
+
+    /**
+     * 提交get请求
+     *
+     * @param urlPath
+     * @return
+     */
+    public String doGet(String urlPath) {
+        return doGet(urlPath, (Deadline) null);
+    }
+
+    /**
+     * 提交get请求，限定截止时间，到期未完成时取消请求并返回null
+     *
+     * @param urlPath
+     * @param deadline
+     * @return
+     */
+    public String doGet(String urlPath, Deadline deadline) {
+        HttpClient client = buildClient();
+        try {
+            String response = get(client, urlPath, deadline);
+            return response;
+        } catch (HttpResponseException e) {
+            logger.warn("get request(url={}) isn't ok: {}, {}", urlPath, e.getStatusCode(), e.getMessage());
+        } catch (IOException e) {
+            logger.error("failed to get(url={})", urlPath, e);
+        }
+        return null;
+    }
+
+    /**
+     * 提交get请求，收到响应头即返回，非2xx响应不抛异常，调用方读取body后必须关闭响应
+     *
+     * @param urlPath
+     * @return
+     * @throws DeadlineExceededException 超过HttpConfig.requestTimeout
+     * @throws IOException               连接、读取失败或被熔断、限流
+     */
+    public Response get(String urlPath) throws IOException {
+        return get(urlPath, (Deadline) null);
+    }
+
+    /**
+     * 提交get请求，限定截止时间，读取body同样受其限制
+     *
+     * @param urlPath
+     * @param deadline
+     * @return
+     * @throws DeadlineExceededException 到达截止时间
+     * @throws IOException               连接、读取失败或被熔断、限流
+     */
+    public Response get(String urlPath, Deadline deadline) throws IOException {
+        return open(buildClient(), new HttpGet(urlPath), "UTF-8", deadline);
+    }
+
+    /**
+     * 提交post请求，直接把内容写在body里，收到响应头即返回，调用方读取body后必须关闭响应
+     *
+     * @param urlPath
+     * @param content
+     * @param headers 可以为null
+     * @return
+     * @throws IOException
+     */
+    public Response post(String urlPath, String content, Map<String, String> headers) throws IOException {
+        return post(urlPath, content, headers, null);
+    }
+
+    /**
+     * 提交post请求，限定截止时间，读取body同样受其限制
+     *
+     * @param urlPath
+     * @param content
+     * @param headers  可以为null
+     * @param deadline
+     * @return
+     * @throws DeadlineExceededException 到达截止时间
+     * @throws IOException
+     */
+    public Response post(String urlPath, String content, Map<String, String> headers, Deadline deadline)
+            throws IOException {
+        PooledPost post = new PooledPost(urlPath, content, "UTF-8", headers);
+        try {
+            return open(buildClient(), post.request, "UTF-8", deadline);
+        } finally {
+            // the request has been written once the response head arrived
+            post.close();
+        }
+    }
+
+    /**
+     * 提交单向https get请求
+     *
+     * @param urlPath
+     * @return
+     */
+    public String doGetWithSSL(String urlPath) {
+        HttpClient client = buildSSLClient();
+        try {
+            String response = get(client, urlPath, null);
+            return response;
+        } catch (HttpResponseException e) {
+            logger.warn("get request(url={}) isn't ok: {}, {}", urlPath, e.getStatusCode(), e.getMessage());
+        } catch (IOException e) {
+            logger.error("failed to get(url={})", urlPath, e);
+        }
+        return null;
+    }
+
+    /**
+     * 提交单向https post请求
+     *
+     * @param urlPath
+     * @param content
+     * @return
+     */
+    public String doPostWithSSL(String urlPath, String content) {
+        HttpClient client = buildSSLClient();
+        return doPost(client, urlPath, content, "UTF-8", null);
+    }
+
+    /**
+     * 提交单向https post请求，包含自定义请求头
+     *
+     * @param urlPath
+     * @param content
+     * @param headers
+     * @return
+     */
+    public String doPostWithSSL(String urlPath, String content, Map<String, String> headers) {
+        HttpClient client = buildSSLClient();
+        return doPost(client, urlPath, content, "UTF-8", headers);
+    }
+
+    /**
+     * 提交双向https post请求
+     *
+     * @param urlPath
+     * @param content
+     * @return
+     */
+    public String doPostWithSSL(String urlPath, String content, String certFile, String password) {
+        HttpClient client = buildTwoWaySSLClient(certFile, password);
+        return doPost(client, urlPath, content, "UTF-8", null);
+    }
+
+    /**
+     * 提交单向https post请求
+     *
+     * @param urlPath
+     * @param params
+     * @return
+     */
+    public String doPostWithSSL(String urlPath, Map<String, String> params) {
+        HttpClient client = buildSSLClient();
+        return doPost(client, urlPath, params, "UTF-8");
+    }
+
+    /**
+     * 提交双向https post请求
+     *
+     * @param urlPath
+     * @param params
+     * @return
+     */
+    public String doPostWithSSL(String urlPath, Map<String, String> params, String certFile, String password) {
+        HttpClient client = buildTwoWaySSLClient(certFile, password);
+        return doPost(client, urlPath, params, "UTF-8");
+    }
+
+    /**
+     * 提交普通http post请求
+     *
+     * @param urlPath
+     * @param content
+     * @return
+     */
+    public String doPost(String urlPath, String content) {
+        HttpClient client = buildClient();
+        return doPost(client, urlPath, content, "UTF-8", null);
+    }
+
+    /**
+     * 提交普通http post请求，包含自定义请求头
+     *
+     * @param urlPath
+     * @param content
+     * @param headers
+     * @return
+     */
+    public String doPost(String urlPath, String content, Map<String, String> headers) {
+        HttpClient client = buildClient();
+        return doPost(client, urlPath, content, "UTF-8", headers);
+    }
+
+    /**
+     * 提交普通http post请求，包含自定义请求头，限定截止时间，到期未完成时取消请求并返回null
+     *
+     * @param urlPath
+     * @param content
+     * @param headers
+     * @param deadline
+     * @return
+     */
+    public String doPost(String urlPath, String content, Map<String, String> headers, Deadline deadline) {
+        HttpClient client = buildClient();
+        try {
+            return post(client, urlPath, content, "UTF-8", headers, deadline);
+        } catch (HttpResponseException e) {
+            logger.warn("post request(url={}) isn't ok: {}, {}", urlPath, e.getStatusCode(), e.getMessage());
+        } catch (IOException e) {
+            logger.error("failed to post(url={})", urlPath, e);
+        }
+        return null;
+    }
+
+    /**
+     * 提交post请求，自己指定编码
+     *
+     * @param urlPath
+     * @param content
+     * @param encoding
+     * @return
+     */
+    public String doPost(String urlPath, String content, String encoding) {
+        HttpClient client = buildClient();
+        return doPost(client, urlPath, content, encoding, null);
+    }
+
+    /**
+     * 提交post请求，自己指定编码，包含自定义请求头
+     *
+     * @param urlPath
+     * @param content
+     * @param encoding
+     * @param headers
+     * @return
+     */
+    public String doPost(String urlPath, String content, String encoding, Map<String, String> headers) {
+        HttpClient client = buildClient();
+        return doPost(client, urlPath, content, encoding, headers);
+    }
+
+    /**
+     * 提交post请求，直接把内容写在body里
+     *
+     * @param client
+     * @param urlPath
+     * @param content
+     * @param encoding
+     * @param headers
+     * @return
+     */
+    private String doPost(HttpClient client, String urlPath, String content, String encoding, Map<String, String> headers) {
+        try {
+            return post(client, urlPath, content, encoding, headers);
+        } catch (HttpResponseException e) {
+            logger.warn("post request(url={}) isn't ok: {}, {}", urlPath, e.getStatusCode(), e.getMessage());
+        } catch (IOException e) {
+            logger.error("failed to post(url={})", urlPath, e);
+        }
+        return null;
+    }
+
+    /**
+     * 提交post请求，直接把内容写在body里，失败时抛出异常
+     *
+     * @param client
+     * @param urlPath
+     * @param content
+     * @param encoding
+     * @param headers
+     * @return
+     * @throws IOException
+     */
+    String post(HttpClient client, String urlPath, String content, String encoding, Map<String, String> headers) throws IOException {
+        return post(client, urlPath, content, encoding, headers, null);
+    }
+
+    private String post(HttpClient client, String urlPath, String content, String encoding, Map<String, String> headers,
+                        Deadline deadline) throws IOException {
+        PooledPost post = new PooledPost(urlPath, content, encoding, headers);
+        try {
+            return execute(client, post.request, new EncodingResponseHandler(encoding), deadline);
+        } finally {
+            // the entity is fully written once execute returns
+            post.close();
+        }
+    }
+
+    /**
+     * body写在池化数组中的post请求, 请求发出后关闭以归还数组
+     */
+    private class PooledPost implements Closeable {
+
+        private final HttpPost request;
+
+        private final PooledByteArrayOutputStream body;
+
+        private PooledByteArrayOutputStream compressed;
+
+        private PooledPost(String urlPath, String content, String encoding, Map<String, String> headers) {
+            request = new HttpPost(urlPath);
+            if (headers != null) {
+                for (Map.Entry<String, String> kv : headers.entrySet()) {
+                    request.setHeader(kv.getKey(), kv.getValue());
+                }
+            }
+            body = new PooledByteArrayOutputStream(content.length() + 16);
+            body.writeString(content, FormEncoder.charset(encoding));
+            ContentCoding coding = config.getRequestCompression();
+            if (coding != null && body.size() >= config.getCompressionThreshold()) {
+                compressed = new PooledByteArrayOutputStream(body.size() / 4 + 32);
+                coding.compress(body.array(), 0, body.size(), compressed);
+                request.setHeader(HTTP.CONTENT_ENCODING, coding.getName());
+                request.setEntity(new ByteArrayEntity(compressed.array(), 0, compressed.size()));
+            } else {
+                request.setEntity(new ByteArrayEntity(body.array(), 0, body.size()));
+            }
+        }
+
+        @Override
+        public void close() {
+            body.close();
+            if (compressed != null) {
+                compressed.close();
+            }
+        }
+    }
+
+    /**
+     * 创建批量提交器，对同一url的post请求进行攒批
+     *
+     * @param urlPath
+     * @param headers
+     * @param batchConfig
+     * @return
+     * @see HttpBatcher
+     */
+    public HttpBatcher batcher(String urlPath, Map<String, String> headers, BatchConfig batchConfig) {
+        return new HttpBatcher(this, urlPath, headers, batchConfig);
+    }
+
+    /**
+     * 提交post请求，默认UTF-8编码
+     *
+     * @param urlPath
+     * @param params
+     * @return
+     */
+    public String doPost(String urlPath, Map<String, String> params) {
+        return doPost(urlPath, params, "UTF-8");
+    }
+
+    /**
+     * 提交post请求，默认UTF-8编码，http协议
+     *
+     * @param urlPath
+     * @param params
+     * @param encoding
+     * @return
+     */
+    public String doPost(String urlPath, Map<String, String> params, String encoding) {
+        HttpClient client = buildClient();
+        return doPost(client, urlPath, params, encoding);
+    }
+
+    /**
+     * 提交post请求，参数为key/value的Map
+     *
+     * @param client
+     * @param urlPath
+     * @param params
+     * @return
+     */
+    public String doPost(HttpClient client, String urlPath, Map<String, String> params, String encoding) {
+        PooledByteArrayOutputStream body = new PooledByteArrayOutputStream(params.size() * 32 + 16);
+        try {
+            Charset charset = FormEncoder.charset(encoding);
+            FormEncoder.writeForm(params, charset, body);
+            ByteArrayEntity entity = new ByteArrayEntity(body.array(), 0, body.size(),
+                    ContentType.create(URLEncodedUtils.CONTENT_TYPE, charset));
+            HttpUriRequest request = RequestBuilder.post().setUri(new URI(urlPath)).setEntity(entity).build();
+
+            return execute(client, request, new EncodingResponseHandler(encoding));
+        } catch (URISyntaxException e) {
+            logger.error("invalid url: {}", urlPath, e);
+        } catch (HttpResponseException e) {
+            logger.warn("post request(url={}) isn't ok: {}, {}", urlPath, e.getStatusCode(), e.getMessage());
+        } catch (IOException e) {
+            logger.error("failed to post(url={})", urlPath, e);
+        } finally {
+            // the entity is fully written once execute returns
+            body.close();
+        }
+        return null;
+    }
+
+    /**
+     * 获取目标主机的运行状态
+     *
+     * @param host 目标主机
+     * @return 主机状态
+     */
+    public RouteState routeState(HttpHost host) {
+        RouteState state = routes.get(host);
+        if (state == null) {
+            RouteState created = new RouteState(host, config);
+            state = routes.putIfAbsent(host, created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 执行请求, 记录各阶段耗时并通知监听器
+     *
+     * @param client
+     * @param request
+     * @param handler
+     * @return
+     * @throws IOException
+     */
+    <T> T execute(HttpClient client, HttpUriRequest request, ResponseHandler<T> handler) throws IOException {
+        return execute(client, request, handler, null);
+    }
+
+    /**
+     * 执行请求, 记录各阶段耗时并通知监听器
+     *
+     * @param client
+     * @param request
+     * @param handler
+     * @param deadline 截止时间, 为null时按HttpConfig.requestTimeout
+     * @return
+     * @throws DeadlineExceededException 到达截止时间, 请求已被取消
+     * @throws IOException
+     */
+    <T> T execute(HttpClient client, HttpUriRequest request, ResponseHandler<T> handler,
+                  Deadline deadline) throws IOException {
+        deadline = deadlineOrDefault(deadline);
+        RouteState route = routeState(URIUtils.extractHost(request.getURI()));
+        RequestTiming timing = RequestTiming.begin(route.getHost(), request.getMethod(),
+                request.getURI().toString(), config.getListeners());
+        try {
+            AgentResponse response = open(client, request, "UTF-8", route, deadline);
+            boolean failed = true;
+            try {
+                T result = handler.handleResponse(response.raw());
+                failed = false;
+                return result;
+            } catch (HttpResponseException e) {
+                // the upstream answered, only 5xx means it is unhealthy
+                failed = false;
+                throw e;
+            } finally {
+                if (failed) {
+                    response.fail();
+                }
+                response.closeConsumed(!failed);
+            }
+        } catch (IOException e) {
+            e = failure(e, request, deadline);
+            timing.fail(e);
+            throw e;
+        } catch (RuntimeException e) {
+            timing.fail(e);
+            throw e;
+        } finally {
+            timing.end();
+            route.record(timing);
+        }
+    }
+
+    /**
+     * 发出请求, 收到响应头即返回, body由调用方读取
+     *
+     * @param client
+     * @param request
+     * @param encoding 响应未声明字符集时使用的编码
+     * @param deadline 截止时间, 为null时按HttpConfig.requestTimeout; 读取body同样受其限制
+     * @return 调用方必须关闭的响应
+     * @throws IOException
+     */
+    Response open(HttpClient client, HttpUriRequest request, String encoding, Deadline deadline) throws IOException {
+        deadline = deadlineOrDefault(deadline);
+        RouteState route = routeState(URIUtils.extractHost(request.getURI()));
+        RequestTiming timing = RequestTiming.begin(route.getHost(), request.getMethod(),
+                request.getURI().toString(), config.getListeners());
+        try {
+            Response response = open(client, request, encoding, route, deadline);
+            timing.detachBody();
+            return response;
+        } catch (IOException e) {
+            e = failure(e, request, deadline);
+            timing.fail(e);
+            throw e;
+        } catch (RuntimeException e) {
+            timing.fail(e);
+            throw e;
+        } finally {
+            timing.end();
+            route.record(timing);
+        }
+    }
+
+    /**
+     * 先按限流与并发限制获取许可, 目标主机熔断时直接失败, 否则发出请求;
+     * 许可与统计在响应关闭时释放和记录
+     */
+    private AgentResponse open(HttpClient client, final HttpUriRequest request, String encoding,
+                               RouteState route, Deadline deadline) throws IOException {
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException("deadline exceeded before request: " + request.getURI());
+        }
+        route.acquire(deadline);
+        long latency = -1;
+        ScheduledFuture<?> watchdog = null;
+        AgentResponse response = null;
+        try {
+            CircuitBreaker breaker = route.getCircuitBreaker();
+            if (!breaker.allowRequest()) {
+                throw new CircuitOpenException(route.getHost());
+            }
+            route.getRetryBudget().deposit();
+            HttpClientContext context = HttpClientContext.create();
+            if (deadline != null) {
+                // timeouts of every attempt stay within the deadline, the watchdog bounds slow body reads
+                context.setAttribute(Deadline.CONTEXT_ATTRIBUTE, deadline);
+                context.setRequestConfig(deadline.limit(requestConfig()));
+                if (config.getDeadlineHeader() != null) {
+                    request.setHeader(config.getDeadlineHeader(),
+                            String.valueOf(deadline.remaining(TimeUnit.MILLISECONDS)));
+                }
+                watchdog = deadline.watch(new Runnable() {
+                    @Override
+                    public void run() {
+                        request.abort();
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            try {
+                response = new AgentResponse(client.execute(request, context), encoding, request, route,
+                        watchdog, start);
+                return response;
+            } finally {
+                if (response == null) {
+                    latency = request.isAborted() ? -1 : System.nanoTime() - start;
+                    if (request.isAborted()) {
+                        breaker.onAbort();
+                    } else {
+                        breaker.onFailure();
+                    }
+                }
+            }
+        } finally {
+            if (response == null) {
+                if (watchdog != null) {
+                    watchdog.cancel(false);
+                }
+                route.release(latency, true);
+            }
+        }
+    }
+
+    private Deadline deadlineOrDefault(Deadline deadline) {
+        if (deadline == null && config.getRequestTimeout() > 0) {
+            return Deadline.after(config.getRequestTimeout(), TimeUnit.MILLISECONDS);
+        }
+        return deadline;
+    }
+
+    /**
+     * 到达截止时间后的失败统一报告为DeadlineExceededException
+     */
+    private static IOException failure(IOException e, HttpUriRequest request, Deadline deadline) {
+        if (deadline != null && deadline.isExpired()
+                && !(e instanceof DeadlineExceededException) && !(e instanceof HttpResponseException)) {
+            return new DeadlineExceededException("deadline exceeded: " + request.getURI(), e);
+        }
+        return e;
+    }
+
+    /**
+     * 与客户端默认一致的请求参数, 设置截止时间时在此基础上缩短超时
+     */
+    private RequestConfig requestConfig() {
+        RequestConfig.Builder rcBuilder = RequestConfig.custom();
+        rcBuilder.setConnectTimeout(config.getConnectionTimeout());
+        rcBuilder.setStaleConnectionCheckEnabled(Boolean.FALSE);
+        rcBuilder.setSocketTimeout(config.getTimeout());
+        return rcBuilder.build();
+    }
+
+    /**
+     * get请求, 开启对冲时超过主机的延迟百分位仍未返回则再发一个相同请求, 取先成功的结果
+     *
+     * @param client
+     * @param urlPath
+     * @param deadline 可以为null
+     * @return
+     * @throws IOException
+     */
+    private String get(final HttpClient client, String urlPath, Deadline deadline) throws IOException {
+        final HttpGet primary = new HttpGet(urlPath);
+        double percentile = config.getHedgePercentile();
+        if (percentile <= 0) {
+            return execute(client, primary, new BasicResponseHandler(), deadline);
+        }
+        LatencyHistogram latency = routeState(URIUtils.extractHost(primary.getURI())).getLatency();
+        if (latency.count() < HEDGE_MIN_SAMPLES) {
+            return execute(client, primary, new BasicResponseHandler(), deadline);
+        }
+        if (deadline == null && config.getRequestTimeout() > 0) {
+            // both attempts share one deadline
+            deadline = Deadline.after(config.getRequestTimeout(), TimeUnit.MILLISECONDS);
+        }
+        long delay = latency.percentile(percentile);
+
+        ExecutorCompletionService<String> completion = new ExecutorCompletionService<String>(hedgeExecutor());
+        List<HttpGet> requests = new ArrayList<HttpGet>(2);
+        requests.add(primary);
+        completion.submit(hedged(client, primary, deadline));
+        try {
+            Future<String> first = completion.poll(delay, TimeUnit.NANOSECONDS);
+            if (first == null && (deadline == null || deadline.remaining(TimeUnit.NANOSECONDS) > delay)) {
+                HttpGet backup = new HttpGet(urlPath);
+                requests.add(backup);
+                completion.submit(hedged(client, backup, deadline));
+            }
+            ExecutionException failure = null;
+            for (int i = 0; i < requests.size(); i++) {
+                Future<String> done = (i == 0 && first != null) ? first : completion.take();
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                }
+            }
+            Throwable cause = failure.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("hedged get interrupted: " + urlPath);
+        } finally {
+            for (HttpGet request : requests) {
+                request.abort();
+            }
+        }
+    }
+
+    private Callable<String> hedged(final HttpClient client, final HttpGet request, final Deadline deadline) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return execute(client, request, new BasicResponseHandler(), deadline);
+            }
+        };
+    }
+
+    private ExecutorService hedgeExecutor() {
+        if (hedgeExecutor == null) {
+            synchronized (this) {
+                if (hedgeExecutor == null) {
+                    hedgeExecutor = Executors.newCachedThreadPool(
+                            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-agent-hedge-%d").build());
+                }
+            }
+        }
+        return hedgeExecutor;
+    }
+
+    /**
+     * http客户端构造
+     *
+     * @return
+     */
+    HttpClient buildClient() {
+        return buildClient(null);
+    }
+
+    /**
+     * https客户端构造（单向https）
+     *
+     * @return
+     */
+    private HttpClient buildSSLClient() {
+        HttpClient client = sslClient;
+        if (client == null) {
+            synchronized (this) {
+                client = sslClient;
+                if (client == null) {
+                    client = createSSLClient();
+                    sslClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private HttpClient createSSLClient() {
+        try {
+            SSLContext sslContext = new SSLContextBuilder().loadTrustMaterial(null, new TrustStrategy() {
+                //信任所有
+                public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+                    return true;
+                }
+            }).build();
+
+            SSLConnectionSocketFactory sslFactory = new SSLConnectionSocketFactory(sslContext);
+            HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(connManager);
+
+            //设置UA
+            builder.setUserAgent(config.getUserAgent());
+
+            //设置请求参数
+            builder.setDefaultRequestConfig(requestConfig());
+
+            builder.setSSLSocketFactory(sslFactory);
+            builder.setContentDecoderRegistry(ContentCoding.decoders());
+
+            builder.setRetryHandler(new AdaptiveRetryHandler(SSL_RETRIES, this));
+            builder.setRequestExecutor(TracingRequestExecutor.INSTANCE);
+
+            return builder.build();
+        } catch (Exception e) {
+            logger.error("failed to build ssl client", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * https客户端构造（双向https）
+     *
+     * @return
+     */
+    private HttpClient buildTwoWaySSLClient(String certFile, String password) {
+        try {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            FileInputStream instream = new FileInputStream(new File(certFile));
+            try {
+                keyStore.load(instream, password.toCharArray());
+            } finally {
+                instream.close();
+            }
+            // Trust own CA and all self-signed certs
+            SSLContext sslcontext = SSLContexts.custom()
+                    .loadKeyMaterial(keyStore, password.toCharArray())
+                    .build();
+            // Allow TLSv1 protocol only
+            SSLConnectionSocketFactory sslFactory = new SSLConnectionSocketFactory(
+                    sslcontext,
+                    new String[]{"TLSv1"},
+                    null,
+                    SSLConnectionSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+
+            HttpClientBuilder builder = HttpClientBuilder.create();
+            builder.setSSLSocketFactory(sslFactory);
+            builder.setContentDecoderRegistry(ContentCoding.decoders());
+            builder.setRequestExecutor(TracingRequestExecutor.INSTANCE);
+            return builder.build();
+        } catch (Exception e) {
+            logger.error("failed to build two-way ssl client(certFile={})", certFile, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Http客户端构造（带认证机制）
+     *
+     * @param credentialsProvider
+     * @return
+     */
+    private HttpClient buildClient(CredentialsProvider credentialsProvider) {
+        HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(connManager);
+
+        //设置UA
+        builder.setUserAgent(config.getUserAgent());
+
+        //设置请求参数
+        builder.setDefaultRequestConfig(requestConfig());
+
+        //响应解压
+        builder.setContentDecoderRegistry(ContentCoding.decoders());
+
+        //设置proxy
+        if (config.isUseProxy()) {
+            builder.setProxy(new HttpHost(config.getProxyHost(), config.getProxyPort()));
+        }
+
+        //连接复用和keep-alive设置
+        final long keepAlive = config.getKeepAlive();
+        if (keepAlive == 0) {
+            builder.setConnectionReuseStrategy(new NoConnectionReuseStrategy());
+        } else {
+            builder.setConnectionReuseStrategy(new DefaultConnectionReuseStrategy());
+            builder.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+                @Override
+                public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                    final long duration = super.getKeepAliveDuration(response, context);
+                    return (duration == -1) ? keepAlive : duration;
+                }
+            });
+        }
+
+        //重试机制
+        final int retries = config.getRetries();
+        if (retries == 0) {
+            builder.setRetryHandler(NO_RETRIES);
+        } else {
+            builder.setRetryHandler(new AdaptiveRetryHandler(new DefaultHttpRequestRetryHandler(retries, false), this));
+        }
+
+        //阶段计时
+        builder.setRequestExecutor(TracingRequestExecutor.INSTANCE);
+
+        //认证机制
+        if (credentialsProvider != null) {
+            builder.setDefaultCredentialsProvider(credentialsProvider);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * 创建http连接池，配置最大连接数和每个Route的最大连接数
+     *
+     * @param cachingResolver DNS缓存, 未开启时为null
+     * @return
+     */
+    private static TracingConnectionManager createConnectionManager(HttpConfig configuration,
+                                                                    CachingDnsResolver cachingResolver) {
+        int ttl = configuration.getTimeToLive();
+        //dns设置
+        DnsResolver dnsResolver = cachingResolver;
+        if (dnsResolver == null) {
+            dnsResolver = configuration.getDnsResolver() != null
+                    ? configuration.getDnsResolver() : SystemDefaultDnsResolver.INSTANCE;
+        }
+        //连接、握手与借出连接计时
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", new TracingSocketFactory(PlainConnectionSocketFactory.getSocketFactory(), cachingResolver))
+                .register("https", new TracingSocketFactory(SSLConnectionSocketFactory.getSocketFactory(), cachingResolver))
+                .build();
+        TracingConnectionManager manager = new TracingConnectionManager(registry,
+                new TracingDnsResolver(dnsResolver), ttl, TimeUnit.SECONDS, configuration.isAdaptivePool());
+        manager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+        manager.setMaxTotal(configuration.getMaxConnections());
+        //socket设置
+        SocketConfig.Builder builder = SocketConfig.custom();
+        builder.setSoTimeout(configuration.getTimeout());
+        builder.setTcpNoDelay(Boolean.TRUE);
+        manager.setDefaultSocketConfig(builder.build());
+        //connectoin设置
+//        manager.setDefaultConnectionConfig();
+
+        return manager;
+    }
+
+    /**
+     * https客户端的重试判断: 最多3次, 只重试无响应与协议错误
+     */
+    private static final HttpRequestRetryHandler SSL_RETRIES = new HttpRequestRetryHandler() {
+        @Override
+        public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+            if (executionCount >= 3) {
+                return false;
+            }
+            if (exception instanceof NoHttpResponseException) {
+                return true;
+            } else if (exception instanceof ClientProtocolException) {
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * 不重试处理机制
+     */
+    private final HttpRequestRetryHandler NO_RETRIES = new HttpRequestRetryHandler() {
+        @Override
+        public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+            return false;
+        }
+    };
+
+    public static void main(String[] args) {
+        HttpAgent agent = HttpAgent.create();
+        String result = agent.doGet("http://www.baidu.com");
+        System.out.println(result);
+    }
+
+}
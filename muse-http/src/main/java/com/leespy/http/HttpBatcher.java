@@ -0,0 +1,218 @@
+package com.leespy.http;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.client.HttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对同一url的post请求攒批提交:
+ * 请求先进入有界队列, 数量达到maxBatchSize或等待超过lingerMillis时刷出一批,
+ * 按BatchConfig的模式并发提交或合并为一个body提交, 调用方通过future获取各自的结果
+ */
+public class HttpBatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpBatcher.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final HttpAgent agent;
+
+    private final HttpClient client;
+
+    private final String urlPath;
+
+    private final Map<String, String> headers;
+
+    private final BatchConfig config;
+
+    private final BlockingQueue<Item> queue;
+
+    /**
+     * 限制同时在途的请求数
+     */
+    private final Semaphore inFlight;
+
+    private final ExecutorService senders;
+
+    private final Thread flusher;
+
+    private volatile boolean closed = false;
+
+    HttpBatcher(HttpAgent agent, String urlPath, Map<String, String> headers, BatchConfig config) {
+        this.agent = agent;
+        this.client = agent.buildClient();
+        this.urlPath = urlPath;
+        this.headers = headers;
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<Item>(config.getQueueCapacity());
+        this.inFlight = new Semaphore(config.getMaxInFlight());
+        this.senders = Executors.newFixedThreadPool(config.getMaxInFlight(),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-batcher-sender-%d").build());
+        this.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "http-batcher-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * 提交一个请求, 队列已满或已关闭时返回的future直接失败
+     *
+     * @param content 请求内容
+     * @return 响应内容的future
+     */
+    public ListenableFuture<String> submit(String content) {
+        SettableFuture<String> future = SettableFuture.create();
+        if (closed) {
+            future.setException(new RejectedExecutionException("batcher closed: " + urlPath));
+        } else if (!queue.offer(new Item(content, future))) {
+            future.setException(new RejectedExecutionException("batch queue full: " + urlPath));
+        }
+        return future;
+    }
+
+    /**
+     * 当前排队中的请求数
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * 停止接收新请求, 刷出已排队的请求并等待其完成
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // submitted concurrently with close, after the flusher's last drain
+        List<Item> left = new ArrayList<Item>();
+        queue.drainTo(left);
+        for (Item item : left) {
+            item.future.setException(new RejectedExecutionException("batcher closed: " + urlPath));
+        }
+        senders.shutdown();
+        try {
+            senders.awaitTermination(config.getLingerMillis() + agent.getConfiguration().getTimeout() * 2L,
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Item first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Item> batch = new ArrayList<Item>(config.getMaxBatchSize());
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getLingerMillis());
+                while (batch.size() < config.getMaxBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    Item next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+            }
+        } catch (InterruptedException e) {
+            closed = true;
+            List<Item> left = new ArrayList<Item>();
+            queue.drainTo(left);
+            for (Item item : left) {
+                item.future.setException(new RejectedExecutionException("batcher interrupted: " + urlPath));
+            }
+        }
+    }
+
+    private void dispatch(final List<Item> batch) throws InterruptedException {
+        if (config.getMode() == BatchConfig.BatchMode.AGGREGATE) {
+            inFlight.acquire();
+            senders.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sendAggregated(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+            return;
+        }
+        for (final Item item : batch) {
+            inFlight.acquire();
+            senders.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        item.future.set(agent.post(client, urlPath, item.content, config.getEncoding(), headers));
+                    } catch (Throwable e) {
+                        item.future.setException(e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        }
+    }
+
+    private void sendAggregated(List<Item> batch) {
+        try {
+            List<String> contents = new ArrayList<String>(batch.size());
+            for (Item item : batch) {
+                contents.add(item.content);
+            }
+            BatchAggregator aggregator = config.getAggregator();
+            String response = agent.post(client, urlPath, aggregator.aggregate(contents), config.getEncoding(), headers);
+            List<String> results = aggregator.split(response, batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.set(results.get(i));
+            }
+        } catch (Throwable e) {
+            logger.warn("failed to post batch(url={}, size={})", urlPath, batch.size(), e);
+            for (Item item : batch) {
+                item.future.setException(e);
+            }
+        }
+    }
+
+    private static class Item {
+
+        private final String content;
+
+        private final SettableFuture<String> future;
+
+        private Item(String content, SettableFuture<String> future) {
+            this.content = content;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package com.leespy.http;
+
+import org.apache.http.conn.DnsResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * HttpAgent配置
+ */
+public class HttpConfig {
+
+    /**
+     * 请求UA
+     */
+    private String userAgent = "muse-http-agent";
+
+    /**
+     * 建立连接超时时间(ms)
+     */
+    private int connectionTimeout = 1000 * 5;
+
+    /**
+     * socket读超时时间(ms)
+     */
+    private int timeout = 1000 * 5;
+
+    /**
+     * 连接池中连接的存活时间(s)
+     */
+    private int timeToLive = 60;
+
+    /**
+     * keep-alive时间(ms), 0表示不复用连接
+     */
+    private long keepAlive = 1000 * 30;
+
+    /**
+     * 重试次数, 0表示不重试
+     */
+    private int retries = 0;
+
+    /**
+     * 重试退避基数(ms), 第n次重试在[0, min(retryMaxBackoffMillis, retryBackoffMillis * 2^(n-1))]中随机休眠
+     */
+    private long retryBackoffMillis = 50;
+
+    /**
+     * 重试退避上限(ms)
+     */
+    private long retryMaxBackoffMillis = 1000;
+
+    /**
+     * 重试预算比例, 每个目标主机的重试量不超过请求量的该比例
+     */
+    private double retryBudgetRatio = 0.2;
+
+    /**
+     * 重试预算的令牌上限
+     */
+    private int retryBudgetCapacity = 20;
+
+    /**
+     * 熔断阈值, 目标主机连续失败该次数后熔断, 0表示不熔断
+     */
+    private int circuitBreakerThreshold = 0;
+
+    /**
+     * 熔断持续时间(ms), 到期后放行一个探测请求
+     */
+    private long circuitBreakerOpenMillis = 1000 * 5;
+
+    /**
+     * get请求对冲的延迟百分位, 如95表示超过该主机p95耗时仍未返回时再发一个相同请求, 0表示不对冲
+     */
+    private double hedgePercentile = 0;
+
+    /**
+     * 每个目标主机每秒最多请求数, 0表示不限流
+     */
+    private double rateLimit = 0;
+
+    /**
+     * 限流允许的突发请求数
+     */
+    private int rateLimitBurst = 1;
+
+    /**
+     * 是否按上游延迟自适应限制每个目标主机的并发数, 上限为maxConnectionsPerRoute
+     */
+    private boolean adaptiveConcurrency = false;
+
+    /**
+     * 自适应并发的下限
+     */
+    private int minConcurrency = 1;
+
+    /**
+     * 达到限流或并发上限时的处理方式
+     */
+    private LimitMode limitMode = LimitMode.BLOCK;
+
+    /**
+     * DEADLINE模式下获取许可的最长等待时间(ms)
+     */
+    private long limitTimeoutMillis = 1000;
+
+    /**
+     * DNS解析结果缓存时间(ms), 0表示不缓存, 使用JVM默认的解析行为
+     */
+    private long dnsCacheTtlMillis = 0;
+
+    /**
+     * 自定义DNS解析器, 为null时使用系统解析
+     */
+    private DnsResolver dnsResolver;
+
+    /**
+     * 请求body的压缩编码, 为null时不压缩
+     */
+    private ContentCoding requestCompression;
+
+    /**
+     * 请求body达到该字节数才压缩
+     */
+    private int compressionThreshold = 1024;
+
+    /**
+     * 单次调用的总超时时间(ms), 覆盖等待许可、借出连接、建立连接、重试与读取body, 0表示不限
+     */
+    private long requestTimeout = 0;
+
+    /**
+     * 有截止时间的请求把剩余时间(ms)放在该请求头中传给下游, 为null时不传
+     */
+    private String deadlineHeader;
+
+    /**
+     * 请求监听器, 默认包含通过ServiceLoader发现的HttpListeners.installed()
+     */
+    private List<HttpListener> listeners = new CopyOnWriteArrayList<HttpListener>(HttpListeners.installed());
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxConnections = 200;
+
+    /**
+     * 每个Route的最大连接数
+     */
+    private int maxConnectionsPerRoute = 20;
+
+    /**
+     * 是否按借出连接的等待、连接占用数与占用时长自动调整每个Route的最大连接数,
+     * 初始为maxConnectionsPerRoute, 所有Route之和不超过maxConnections
+     */
+    private boolean adaptivePool = false;
+
+    /**
+     * 自动调整时每个Route的最小连接数
+     */
+    private int minConnectionsPerRoute = 2;
+
+    /**
+     * 自动调整时每个Route的最大连接数, 0表示不超过maxConnections
+     */
+    private int adaptivePoolMaxPerRoute = 0;
+
+    /**
+     * 自动调整的周期(ms)
+     */
+    private long adaptivePoolIntervalMillis = 1000 * 5;
+
+    /**
+     * 一个周期内借出连接的平均等待超过该值(ms)时认为该Route连接不足
+     */
+    private long adaptivePoolLeaseWaitMillis = 1;
+
+    /**
+     * 启动时预先建立连接的目标主机, 之后保持其最少空闲连接数
+     */
+    private List<WarmupTarget> warmupTargets = new ArrayList<WarmupTarget>();
+
+    /**
+     * 检查并补足预热目标空闲连接的周期(ms)
+     */
+    private long warmupIntervalMillis = 1000 * 5;
+
+    /**
+     * 是否使用代理
+     */
+    private boolean useProxy = false;
+
+    private String proxyHost;
+
+    private int proxyPort;
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public void setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    public int getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public void setConnectionTimeout(int connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getTimeToLive() {
+        return timeToLive;
+    }
+
+    public void setTimeToLive(int timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public int getRetries() {
+        return retries;
+    }
+
+    public void setRetries(int retries) {
+        this.retries = retries;
+    }
+
+    public long getRetryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    public void setRetryBackoffMillis(long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    public long getRetryMaxBackoffMillis() {
+        return retryMaxBackoffMillis;
+    }
+
+    public void setRetryMaxBackoffMillis(long retryMaxBackoffMillis) {
+        this.retryMaxBackoffMillis = retryMaxBackoffMillis;
+    }
+
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    public void setRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+    }
+
+    public int getRetryBudgetCapacity() {
+        return retryBudgetCapacity;
+    }
+
+    public void setRetryBudgetCapacity(int retryBudgetCapacity) {
+        this.retryBudgetCapacity = retryBudgetCapacity;
+    }
+
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    public void setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    public long getCircuitBreakerOpenMillis() {
+        return circuitBreakerOpenMillis;
+    }
+
+    public void setCircuitBreakerOpenMillis(long circuitBreakerOpenMillis) {
+        this.circuitBreakerOpenMillis = circuitBreakerOpenMillis;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(double rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public void setRateLimitBurst(int rateLimitBurst) {
+        this.rateLimitBurst = rateLimitBurst;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public void setMinConcurrency(int minConcurrency) {
+        this.minConcurrency = minConcurrency;
+    }
+
+    public LimitMode getLimitMode() {
+        return limitMode;
+    }
+
+    public void setLimitMode(LimitMode limitMode) {
+        this.limitMode = limitMode;
+    }
+
+    public long getLimitTimeoutMillis() {
+        return limitTimeoutMillis;
+    }
+
+    public void setLimitTimeoutMillis(long limitTimeoutMillis) {
+        this.limitTimeoutMillis = limitTimeoutMillis;
+    }
+
+    public long getDnsCacheTtlMillis() {
+        return dnsCacheTtlMillis;
+    }
+
+    public void setDnsCacheTtlMillis(long dnsCacheTtlMillis) {
+        this.dnsCacheTtlMillis = dnsCacheTtlMillis;
+    }
+
+    public DnsResolver getDnsResolver() {
+        return dnsResolver;
+    }
+
+    public void setDnsResolver(DnsResolver dnsResolver) {
+        this.dnsResolver = dnsResolver;
+    }
+
+    public ContentCoding getRequestCompression() {
+        return requestCompression;
+    }
+
+    public void setRequestCompression(ContentCoding requestCompression) {
+        this.requestCompression = requestCompression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public String getDeadlineHeader() {
+        return deadlineHeader;
+    }
+
+    public void setDeadlineHeader(String deadlineHeader) {
+        this.deadlineHeader = deadlineHeader;
+    }
+
+    public List<HttpListener> getListeners() {
+        return listeners;
+    }
+
+    public void setListeners(List<HttpListener> listeners) {
+        this.listeners = new CopyOnWriteArrayList<HttpListener>(listeners);
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    public boolean isAdaptivePool() {
+        return adaptivePool;
+    }
+
+    public void setAdaptivePool(boolean adaptivePool) {
+        this.adaptivePool = adaptivePool;
+    }
+
+    public int getMinConnectionsPerRoute() {
+        return minConnectionsPerRoute;
+    }
+
+    public void setMinConnectionsPerRoute(int minConnectionsPerRoute) {
+        this.minConnectionsPerRoute = minConnectionsPerRoute;
+    }
+
+    public int getAdaptivePoolMaxPerRoute() {
+        return adaptivePoolMaxPerRoute;
+    }
+
+    public void setAdaptivePoolMaxPerRoute(int adaptivePoolMaxPerRoute) {
+        this.adaptivePoolMaxPerRoute = adaptivePoolMaxPerRoute;
+    }
+
+    public long getAdaptivePoolIntervalMillis() {
+        return adaptivePoolIntervalMillis;
+    }
+
+    public void setAdaptivePoolIntervalMillis(long adaptivePoolIntervalMillis) {
+        this.adaptivePoolIntervalMillis = adaptivePoolIntervalMillis;
+    }
+
+    public long getAdaptivePoolLeaseWaitMillis() {
+        return adaptivePoolLeaseWaitMillis;
+    }
+
+    public void setAdaptivePoolLeaseWaitMillis(long adaptivePoolLeaseWaitMillis) {
+        this.adaptivePoolLeaseWaitMillis = adaptivePoolLeaseWaitMillis;
+    }
+
+    public List<WarmupTarget> getWarmupTargets() {
+        return warmupTargets;
+    }
+
+    public void setWarmupTargets(List<WarmupTarget> warmupTargets) {
+        this.warmupTargets = warmupTargets;
+    }
+
+    public long getWarmupIntervalMillis() {
+        return warmupIntervalMillis;
+    }
+
+    public void setWarmupIntervalMillis(long warmupIntervalMillis) {
+        this.warmupIntervalMillis = warmupIntervalMillis;
+    }
+
+    public boolean isUseProxy() {
+        return useProxy;
+    }
+
+    public void setUseProxy(boolean useProxy) {
+        this.useProxy = useProxy;
+    }
+
+    public String getProxyHost() {
+        return proxyHost;
+    }
+
+    public void setProxyHost(String proxyHost) {
+        this.proxyHost = proxyHost;
+    }
+
+    public int getProxyPort() {
+        return proxyPort;
+    }
+
+    public void setProxyPort(int proxyPort) {
+        this.proxyPort = proxyPort;
+    }
+}
@@ -0,0 +1,25 @@
+package com.leespy.http;
+
+/**
+ * 请求监听器, 在每个阶段结束与请求完成时回调.
+ * 回调在发出请求的线程上同步执行, 实现应尽量轻量且线程安全;
+ * RequestTiming在同一线程的下一个请求中会被复用, 不能在回调之外持有
+ */
+public interface HttpListener {
+
+    /**
+     * 一个阶段结束, 重试时同一阶段可能出现多次
+     *
+     * @param timing 当前请求
+     * @param phase  阶段
+     * @param nanos  该阶段本次耗时(ns)
+     */
+    void onPhase(RequestTiming timing, RequestPhase phase, long nanos);
+
+    /**
+     * 请求完成, 无论成功与否
+     *
+     * @param timing 当前请求
+     */
+    void onComplete(RequestTiming timing);
+}
@@ -0,0 +1,48 @@
+package com.leespy.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * 通过ServiceLoader发现的HttpListener: 在META-INF/services/com.leespy.http.HttpListener中
+ * 声明实现类即可把请求耗时接入自己的监控系统, 新建的HttpConfig与Http默认带上这些监听器
+ */
+public final class HttpListeners {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpListeners.class);
+
+    private static final List<HttpListener> INSTALLED = load();
+
+    private HttpListeners() {
+    }
+
+    /**
+     * classpath上声明的监听器
+     */
+    public static List<HttpListener> installed() {
+        return INSTALLED;
+    }
+
+    private static List<HttpListener> load() {
+        List<HttpListener> listeners = new ArrayList<HttpListener>();
+        Iterator<HttpListener> it = ServiceLoader.load(HttpListener.class).iterator();
+        while (true) {
+            try {
+                if (!it.hasNext()) {
+                    break;
+                }
+                listeners.add(it.next());
+            } catch (ServiceConfigurationError e) {
+                logger.warn("failed to load http listener", e);
+            }
+        }
+        return Collections.unmodifiableList(listeners);
+    }
+}
@@ -0,0 +1,50 @@
+package com.leespy.http;
+
+import org.apache.http.client.HttpResponseException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 收到了非2xx响应, 保留响应头与错误body(最多4KB)
+ */
+public class HttpStatusException extends HttpResponseException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, List<String>> headers;
+
+    private final String body;
+
+    public HttpStatusException(int statusCode, String reason, Map<String, List<String>> headers, String body) {
+        super(statusCode, statusCode + " " + reason);
+        this.headers = headers != null ? headers : Collections.<String, List<String>>emptyMap();
+        this.body = body;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 错误响应的body, 未能读取时为null
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * 是否为4xx响应
+     */
+    public boolean isClientError() {
+        return getStatusCode() >= 400 && getStatusCode() < 500;
+    }
+
+    /**
+     * 是否为5xx响应
+     */
+    public boolean isServerError() {
+        return getStatusCode() >= 500;
+    }
+}
@@ -0,0 +1,116 @@
+package com.leespy.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的延迟直方图: 以2的幂分段、每段再均分为4个子桶, 相对误差不超过25%.
+ * 记录只做一次原子自增, 不分配对象; 样本数超过上限后整体减半, 使统计偏向近期
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 以微秒计, 64段足以覆盖long的范围
+     */
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private static final long DECAY_THRESHOLD = 1 << 14;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时(ns)
+     */
+    public void record(long nanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        counts.incrementAndGet(indexOf(micros));
+        if (total.incrementAndGet() == DECAY_THRESHOLD) {
+            decay();
+        }
+    }
+
+    /**
+     * 当前样本数
+     */
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * 估算百分位耗时
+     *
+     * @param percentile 百分位, 如99.0
+     * @return 耗时(ns), 无样本时返回0
+     */
+    public long percentile(double percentile) {
+        long count = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return TimeUnit.MICROSECONDS.toNanos(upperBoundOf(i));
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos(upperBoundOf(BUCKETS - 1));
+    }
+
+    /**
+     * 清空统计
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+    }
+
+    private void decay() {
+        long remaining = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c;
+            do {
+                c = counts.get(i);
+            } while (!counts.compareAndSet(i, c, c >> 1));
+            remaining += c >> 1;
+        }
+        total.set(remaining);
+    }
+
+    private static int indexOf(long micros) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude < SUB_BUCKET_BITS) {
+            return (int) micros;
+        }
+        int sub = (int) (micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, magnitude * SUB_BUCKETS + sub);
+    }
+
+    private static long upperBoundOf(int index) {
+        int magnitude = index / SUB_BUCKETS;
+        if (magnitude < SUB_BUCKET_BITS) {
+            return index;
+        }
+        int sub = index % SUB_BUCKETS;
+        long base = 1L << magnitude;
+        long step = base >>> SUB_BUCKET_BITS;
+        return base + step * (sub + 1) - 1;
+    }
+}
@@ -0,0 +1,22 @@
+package com.leespy.http;
+
+/**
+ * 达到限流或并发上限时的处理方式
+ */
+public enum LimitMode {
+
+    /**
+     * 阻塞直到获取许可
+     */
+    BLOCK,
+
+    /**
+     * 立即失败
+     */
+    FAIL_FAST,
+
+    /**
+     * 排队等待, 超过HttpConfig的limitTimeoutMillis仍未获取则失败
+     */
+    DEADLINE
+}
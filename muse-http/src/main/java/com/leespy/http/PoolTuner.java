@@ -0,0 +1,312 @@
+package com.leespy.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接池自动调整: 每个周期内对各Route的连接池采样若干次, 按以下信号调整每个Route的最大连接数.
+ * <ul>
+ * <li>平均占用数(借出+排队): 即Little定律中的并发需求, 目标值为其1.25倍</li>
+ * <li>借出等待: 平均等待超过阈值、有请求排队或借出失败时认为连接不足, 按当前值的1.5倍扩容</li>
+ * <li>连接占用时长: 由平均借出数与借出次数推算(W = L / λ), 超过近期基线2倍时认为上游已饱和, 连接不足也不扩容</li>
+ * </ul>
+ * 缩容每次只回收一半的差值; 各Route之和超过maxConnections时, 不缺连接的Route直接降到目标值,
+ * 仍超出则按各Route超出最小值的部分等比分配, 容量从冷Route移向热Route
+ */
+public class PoolTuner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolTuner.class);
+
+    /**
+     * 每个周期的采样次数
+     */
+    private static final int SAMPLES_PER_INTERVAL = 10;
+
+    private static final double HEADROOM = 1.25;
+
+    private static final double GROWTH_RATIO = 0.5;
+
+    /**
+     * 占用时长超过基线的该倍数时认为上游已饱和
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * 每经过该数量的周期重置一次占用时长基线, 跟随上游的变化
+     */
+    private static final int BASELINE_WINDOWS = 30;
+
+    private static final ScheduledThreadPoolExecutor EXECUTOR = create();
+
+    private final TracingConnectionManager manager;
+
+    private final int minPerRoute;
+
+    private final int maxPerRoute;
+
+    private final int maxTotal;
+
+    private final long leaseWaitNanos;
+
+    private final long sampleNanos;
+
+    /**
+     * 各Route当前周期的采样, 只在调整线程中访问
+     */
+    private final Map<HttpRoute, Window> windows = new HashMap<HttpRoute, Window>();
+
+    private int samples;
+
+    private long windowStart = System.nanoTime();
+
+    private volatile ScheduledFuture<?> task;
+
+    PoolTuner(TracingConnectionManager manager, HttpConfig config) {
+        this.manager = manager;
+        this.maxTotal = config.getMaxConnections();
+        this.minPerRoute = Math.max(1, Math.min(config.getMinConnectionsPerRoute(), maxTotal));
+        int max = config.getAdaptivePoolMaxPerRoute() > 0 ? config.getAdaptivePoolMaxPerRoute() : maxTotal;
+        this.maxPerRoute = Math.max(minPerRoute, Math.min(max, maxTotal));
+        this.leaseWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getAdaptivePoolLeaseWaitMillis());
+        this.sampleNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.getAdaptivePoolIntervalMillis())
+                / SAMPLES_PER_INTERVAL);
+    }
+
+    private static ScheduledThreadPoolExecutor create() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-pool-tuner").build());
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * 开始周期性调整
+     */
+    synchronized void start() {
+        if (task != null) {
+            return;
+        }
+        task = EXECUTOR.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sample();
+                } catch (RuntimeException e) {
+                    logger.warn("failed to tune connection pool", e);
+                }
+            }
+        }, sampleNanos, sampleNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 停止调整, 各Route保持当前的最大连接数
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+    }
+
+    /**
+     * Route当前的最大连接数
+     */
+    public int getMaxPerRoute(HttpRoute route) {
+        return manager.getMaxPerRoute(route);
+    }
+
+    void sample() {
+        Set<HttpRoute> routes = manager.getRoutes();
+        for (HttpRoute route : routes) {
+            PoolStats stats = manager.getStats(route);
+            Window window = windows.get(route);
+            if (window == null) {
+                window = new Window(manager.leaseStats(route));
+                windows.put(route, window);
+            }
+            window.leasedSum += stats.getLeased();
+            window.pendingSum += stats.getPending();
+            window.maxPending = Math.max(window.maxPending, stats.getPending());
+            window.samples++;
+        }
+        if (++samples < SAMPLES_PER_INTERVAL) {
+            return;
+        }
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        windowStart = now;
+        samples = 0;
+        for (Iterator<HttpRoute> it = windows.keySet().iterator(); it.hasNext(); ) {
+            if (!routes.contains(it.next())) {
+                // purged by the pool after its connections were closed
+                it.remove();
+            }
+        }
+        adjust(elapsed);
+    }
+
+    private void adjust(long elapsedNanos) {
+        List<Decision> decisions = new ArrayList<Decision>(windows.size());
+        int total = 0;
+        for (Map.Entry<HttpRoute, Window> entry : windows.entrySet()) {
+            Decision decision = decide(entry.getKey(), entry.getValue(), elapsedNanos);
+            decisions.add(decision);
+            total += decision.target;
+        }
+        if (total > maxTotal) {
+            total = 0;
+            for (Decision decision : decisions) {
+                if (!decision.starving) {
+                    decision.target = clamp(decision.demand);
+                }
+                total += decision.target;
+            }
+        }
+        if (total > maxTotal) {
+            share(decisions);
+        }
+        for (Decision decision : decisions) {
+            if (decision.target != decision.current) {
+                manager.setMaxPerRoute(decision.route, decision.target);
+                logger.debug("max connections of {}: {} -> {} (busy={}, starving={}, saturated={})",
+                        decision.route, decision.current, decision.target, decision.busy,
+                        decision.starving, decision.saturated);
+            }
+        }
+    }
+
+    private Decision decide(HttpRoute route, Window window, long elapsedNanos) {
+        Decision decision = new Decision(route, manager.getMaxPerRoute(route));
+        long totalLeases = window.leaseStats.leases();
+        long totalWaitNanos = window.leaseStats.waitNanos();
+        long totalFailures = window.leaseStats.failures();
+        long leases = totalLeases - window.lastLeases;
+        long waitNanos = totalWaitNanos - window.lastWaitNanos;
+        long failures = totalFailures - window.lastFailures;
+        double leased = window.samples > 0 ? (double) window.leasedSum / window.samples : 0;
+        decision.busy = window.samples > 0 ? leased + (double) window.pendingSum / window.samples : 0;
+        decision.demand = (int) Math.ceil(decision.busy * HEADROOM);
+        decision.starving = failures > 0 || window.maxPending > 0
+                || (leases > 0 && waitNanos / leases > leaseWaitNanos);
+        if (leases > 0) {
+            // Little's law: average leased = lease rate * hold time
+            long holdNanos = (long) (leased * elapsedNanos / leases);
+            if (++window.windows % BASELINE_WINDOWS == 0 || window.baselineNanos == 0) {
+                window.baselineNanos = holdNanos;
+            } else {
+                window.baselineNanos = Math.min(window.baselineNanos, holdNanos);
+            }
+            decision.saturated = holdNanos > window.baselineNanos * LATENCY_TOLERANCE;
+        }
+
+        int current = decision.current;
+        int target = decision.demand;
+        if (decision.starving) {
+            target = decision.saturated
+                    ? Math.max(target, current) : Math.max(target, current + Math.max(1, (int) (current * GROWTH_RATIO)));
+        } else if (target < current) {
+            target = current - Math.max(1, (current - target) / 2);
+        }
+        decision.target = clamp(target);
+
+        window.reset(totalLeases, totalWaitNanos, totalFailures);
+        return decision;
+    }
+
+    /**
+     * 总数仍超过上限时, 每个Route保留最小值, 其余按超出最小值的部分等比分配
+     */
+    private void share(List<Decision> decisions) {
+        int spare = maxTotal - minPerRoute * decisions.size();
+        long weights = 0;
+        for (Decision decision : decisions) {
+            weights += decision.target - minPerRoute;
+        }
+        for (Decision decision : decisions) {
+            int extra = spare <= 0 || weights == 0 ? 0 : (int) (spare * (long) (decision.target - minPerRoute) / weights);
+            decision.target = minPerRoute + extra;
+        }
+    }
+
+    private int clamp(int target) {
+        return Math.max(minPerRoute, Math.min(maxPerRoute, target));
+    }
+
+    /**
+     * 一个Route在当前周期的采样与上一周期结束时的借出统计
+     */
+    private static class Window {
+
+        private final TracingConnectionManager.LeaseStats leaseStats;
+
+        private long leasedSum;
+
+        private long pendingSum;
+
+        private int maxPending;
+
+        private int samples;
+
+        private long lastLeases;
+
+        private long lastWaitNanos;
+
+        private long lastFailures;
+
+        private long baselineNanos;
+
+        private int windows;
+
+        private Window(TracingConnectionManager.LeaseStats leaseStats) {
+            this.leaseStats = leaseStats;
+            this.lastLeases = leaseStats.leases();
+            this.lastWaitNanos = leaseStats.waitNanos();
+            this.lastFailures = leaseStats.failures();
+        }
+
+        private void reset(long leases, long waitNanos, long failures) {
+            leasedSum = 0;
+            pendingSum = 0;
+            maxPending = 0;
+            samples = 0;
+            lastLeases = leases;
+            lastWaitNanos = waitNanos;
+            lastFailures = failures;
+        }
+    }
+
+    private static class Decision {
+
+        private final HttpRoute route;
+
+        private final int current;
+
+        private double busy;
+
+        private int demand;
+
+        private boolean starving;
+
+        private boolean saturated;
+
+        private int target;
+
+        private Decision(HttpRoute route, int current) {
+            this.route = route;
+            this.current = current;
+        }
+    }
+}
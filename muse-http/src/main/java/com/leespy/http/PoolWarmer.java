@@ -0,0 +1,270 @@
+package com.leespy.http;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接预热: 启动时在后台为HttpConfig.warmupTargets并行建立连接(https包括握手)并放入连接池,
+ * 之后周期性地把各Route的空闲连接补足到minIdle.
+ * 连接池总是先借出已有的空闲连接, 所以补充时连同它们一起借出才能拿到新连接; 已有的空闲连接在借出后立即归还,
+ * 建立连接与https握手期间只占用新连接, 不影响正在发出的请求. 借出不等待, 有请求在排队的Route本轮跳过;
+ * 各Route互不等待, 慢的Route不会推迟其他Route的连接可用
+ */
+public class PoolWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolWarmer.class);
+
+    /**
+     * 借出连接的等待时间(ms), 有空余容量时立即借到, 不在连接池中与请求一起排队
+     */
+    private static final long LEASE_TIMEOUT_MILLIS = 1;
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER = create();
+
+    private static final ExecutorService CONNECTORS = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-pool-warmer-%d").build());
+
+    private final TracingConnectionManager manager;
+
+    private final List<HttpRoute> routes = new ArrayList<HttpRoute>();
+
+    private final List<Integer> minIdle = new ArrayList<Integer>();
+
+    private final int connectTimeout;
+
+    private final long keepAlive;
+
+    private final long intervalMillis;
+
+    private final CountDownLatch warm = new CountDownLatch(1);
+
+    private volatile ScheduledFuture<?> task;
+
+    PoolWarmer(TracingConnectionManager manager, HttpConfig config) {
+        this.manager = manager;
+        this.connectTimeout = config.getConnectionTimeout();
+        this.keepAlive = config.getKeepAlive();
+        this.intervalMillis = config.getWarmupIntervalMillis();
+        HttpHost proxy = config.isUseProxy() ? new HttpHost(config.getProxyHost(), config.getProxyPort()) : null;
+        for (WarmupTarget target : config.getWarmupTargets()) {
+            boolean secure = "https".equalsIgnoreCase(target.getScheme());
+            if (secure && proxy != null) {
+                logger.warn("skip warming up {}: tunnelled connections are opened per request", target);
+                continue;
+            }
+            int port = target.getPort() > 0 ? target.getPort() : secure ? 443 : 80;
+            HttpHost host = new HttpHost(target.getHost(), port, target.getScheme());
+            routes.add(proxy != null ? new HttpRoute(host, null, proxy, false) : new HttpRoute(host, null, secure));
+            minIdle.add(target.getMinIdle());
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor create() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("http-pool-warmer-scheduler").build());
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * 立即开始预热, 之后按周期补足空闲连接
+     */
+    synchronized void start() {
+        if (task != null) {
+            return;
+        }
+        if (keepAlive == 0 || routes.isEmpty()) {
+            if (keepAlive == 0) {
+                logger.warn("connections are not reused with keepAlive 0, skip warming up");
+            }
+            warm.countDown();
+            return;
+        }
+        task = SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refill();
+                } catch (RuntimeException e) {
+                    logger.warn("failed to warm up connections", e);
+                } finally {
+                    warm.countDown();
+                }
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止补充空闲连接, 已建立的连接留在连接池中; 等待首轮预热的调用随之返回
+     */
+    public synchronized void stop() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        warm.countDown();
+    }
+
+    /**
+     * 等待首轮预热结束, 连接失败的目标也算结束
+     *
+     * @return 超时返回false
+     */
+    public boolean awaitWarm(long timeout, TimeUnit unit) throws InterruptedException {
+        return warm.await(timeout, unit);
+    }
+
+    /**
+     * 首轮预热是否已结束
+     */
+    public boolean isWarm() {
+        return warm.getCount() == 0;
+    }
+
+    void refill() {
+        long start = System.nanoTime();
+        manager.closeExpiredConnections();
+        List<Future<Integer>> warmings = new ArrayList<Future<Integer>>(routes.size());
+        try {
+            for (int i = 0; i < routes.size(); i++) {
+                List<HttpClientConnection> fresh = leaseNew(routes.get(i), minIdle.get(i));
+                if (!fresh.isEmpty()) {
+                    warmings.add(CONNECTORS.submit(new RouteWarming(routes.get(i), fresh)));
+                }
+            }
+            int opened = 0;
+            for (Future<Integer> warming : warmings) {
+                try {
+                    opened += warming.get();
+                } catch (ExecutionException e) {
+                    logger.warn("failed to warm up connections", e.getCause());
+                }
+            }
+            if (opened > 0) {
+                logger.info("warmed up {} connections in {}ms", opened,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 借出待建的新连接, 总数不超过该Route与连接池的剩余容量; 同时借到的已有空闲连接立即归还
+     *
+     * @return 尚未建立的新连接
+     */
+    private List<HttpClientConnection> leaseNew(HttpRoute route, int minIdle) throws InterruptedException {
+        List<HttpClientConnection> fresh = new ArrayList<HttpClientConnection>();
+        PoolStats stats = manager.getStats(route);
+        if (stats.getPending() > 0) {
+            // requests are waiting for this route, they take precedence
+            return fresh;
+        }
+        PoolStats total = manager.getTotalStats();
+        int missing = Math.min(minIdle - stats.getAvailable(),
+                Math.min(stats.getMax() - stats.getLeased() - stats.getAvailable(),
+                        total.getMax() - total.getLeased() - total.getAvailable()));
+        List<HttpClientConnection> idle = new ArrayList<HttpClientConnection>();
+        try {
+            for (int i = missing > 0 ? stats.getAvailable() + missing : 0; i > 0; i--) {
+                HttpClientConnection connection;
+                try {
+                    connection = manager.requestUntracked(route).get(LEASE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    release(fresh);
+                    throw e;
+                } catch (Exception e) {
+                    // taken by live traffic, try again next round
+                    break;
+                }
+                (connection.isOpen() ? idle : fresh).add(connection);
+            }
+        } finally {
+            release(idle);
+        }
+        return fresh;
+    }
+
+    private void release(List<HttpClientConnection> connections) {
+        for (HttpClientConnection connection : connections) {
+            if (connection.isOpen()) {
+                manager.releaseConnection(connection, null, keepAlive, TimeUnit.MILLISECONDS);
+                continue;
+            }
+            try {
+                connection.shutdown();
+            } catch (IOException ignore) {
+                // not connected
+            }
+            manager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 并行建立一个Route的新连接, 全部结束后归还, 不等待其他Route
+     */
+    private class RouteWarming implements Callable<Integer> {
+
+        private final HttpRoute route;
+
+        private final List<HttpClientConnection> connections;
+
+        private RouteWarming(HttpRoute route, List<HttpClientConnection> connections) {
+            this.route = route;
+            this.connections = connections;
+        }
+
+        @Override
+        public Integer call() throws InterruptedException {
+            List<Future<?>> opens = new ArrayList<Future<?>>();
+            try {
+                for (final HttpClientConnection connection : connections) {
+                    opens.add(CONNECTORS.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            HttpClientContext context = HttpClientContext.create();
+                            manager.connect(connection, route, connectTimeout, context);
+                            manager.routeComplete(connection, route, context);
+                            // binds the session buffers, otherwise the stale check before reuse fails on the unused connection
+                            connection.flush();
+                            return null;
+                        }
+                    }));
+                }
+                int opened = 0;
+                // connect and handshake are bounded by the socket timeouts, a connection must not be released mid-connect
+                for (Future<?> open : opens) {
+                    try {
+                        open.get();
+                        opened++;
+                    } catch (ExecutionException e) {
+                        logger.warn("failed to warm up connection to {}: {}", route, e.getCause().toString());
+                    }
+                }
+                return opened;
+            } finally {
+                release(connections);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.leespy.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 使用池化Inflater的解压流, 关闭时把Inflater归还对象池
+ */
+class PooledInflaterInputStream extends InflaterInputStream {
+
+    static final int BUFFER_SIZE = 8192;
+
+    private final boolean nowrap;
+
+    private boolean released = false;
+
+    PooledInflaterInputStream(InputStream in, boolean nowrap) {
+        super(in, CodecPool.inflater(nowrap), BUFFER_SIZE);
+        this.nowrap = nowrap;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (released) {
+            return;
+        }
+        released = true;
+        try {
+            super.close();
+        } finally {
+            CodecPool.release(inf, nowrap);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.leespy.http;
+
+import org.apache.http.HttpHost;
+
+import java.io.IOException;
+
+/**
+ * 目标主机的限流或并发限制未能在允许的时间内获取许可, 请求未发出
+ */
+public class RateLimitedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpHost host;
+
+    public RateLimitedException(HttpHost host, String reason) {
+        super(reason + ": " + host);
+        this.host = host;
+    }
+
+    public HttpHost getHost() {
+        return host;
+    }
+}
@@ -0,0 +1,103 @@
+package com.leespy.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁令牌桶限流(GCRA): 只维护"理论到达时间"一个原子变量, 每次获取许可一次CAS
+ */
+public class RateLimiter {
+
+    /**
+     * 每个许可的间隔(ns)
+     */
+    private final long interval;
+
+    /**
+     * 允许的突发量对应的时间容差(ns)
+     */
+    private final long tolerance;
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param permitsPerSecond 每秒许可数
+     * @param burst            允许的突发许可数, 至少为1
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.tolerance = interval * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * 立即获取许可, 不等待
+     *
+     * @return 获取成功返回true
+     */
+    public boolean tryAcquire() {
+        return reserve(0) == 0;
+    }
+
+    /**
+     * 在timeout内获取许可, 需要等待的时间超过timeout时立即返回false
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 获取成功返回true
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long wait = reserve(unit.toNanos(timeout));
+        if (wait < 0) {
+            return false;
+        }
+        sleep(wait);
+        return true;
+    }
+
+    /**
+     * 获取许可, 必要时阻塞等待
+     *
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException {
+        sleep(reserve(Long.MAX_VALUE));
+    }
+
+    /**
+     * 预留一个许可
+     *
+     * @param maxWait 可接受的最长等待时间(ns)
+     * @return 需要等待的时间(ns), 超过maxWait时返回-1且不预留
+     */
+    private long reserve(long maxWait) {
+        while (true) {
+            long now = System.nanoTime();
+            long tat = theoreticalArrival.get();
+            long wait = tat - now - tolerance;
+            if (wait < 0) {
+                wait = 0;
+            }
+            if (wait > maxWait) {
+                return -1;
+            }
+            long next = (tat - now > 0 ? tat : now) + interval;
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return wait;
+            }
+        }
+    }
+
+    private static void sleep(long nanos) throws InterruptedException {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
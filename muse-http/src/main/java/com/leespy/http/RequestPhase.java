@@ -0,0 +1,42 @@
+package com.leespy.http;
+
+/**
+ * 一次请求的各个阶段, 用于区分慢在连接池、网络还是上游
+ */
+public enum RequestPhase {
+
+    /**
+     * 等待从连接池借出连接
+     */
+    LEASE,
+
+    /**
+     * 域名解析, 复用连接时没有该阶段
+     */
+    DNS,
+
+    /**
+     * 建立TCP连接, 复用连接时没有该阶段
+     */
+    CONNECT,
+
+    /**
+     * TLS握手, 只在新建https连接时出现
+     */
+    TLS_HANDSHAKE,
+
+    /**
+     * 写出请求头与body
+     */
+    REQUEST_WRITE,
+
+    /**
+     * 请求写完到收到响应头
+     */
+    FIRST_BYTE,
+
+    /**
+     * 读取响应body
+     */
+    BODY_READ
+}
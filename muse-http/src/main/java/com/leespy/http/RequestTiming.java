@@ -0,0 +1,230 @@
+package com.leespy.http;
+
+import org.apache.http.HttpHost;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 一次请求的各阶段耗时.
+ * 每个线程复用同一个实例, 计时只写数组不分配对象; 连接池、解析器、socket工厂等
+ * 无法拿到请求对象的地方通过静态方法记录到当前线程正在进行的请求上
+ */
+public final class RequestTiming {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTiming.class);
+
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<RequestTiming>() {
+        @Override
+        protected RequestTiming initialValue() {
+            return new RequestTiming();
+        }
+    };
+
+    /**
+     * 各阶段累计耗时(ns), -1表示未经历该阶段
+     */
+    private final long[] phases = new long[PHASES.length];
+
+    private HttpHost host;
+
+    private String method;
+
+    private String url;
+
+    private int statusCode;
+
+    private Throwable failure;
+
+    private long startNanos;
+
+    private long totalNanos;
+
+    /**
+     * 收到响应头的时刻, 用于计算body读取耗时
+     */
+    private long responseNanos;
+
+    private List<HttpListener> listeners;
+
+    private boolean active;
+
+    private RequestTiming() {
+    }
+
+    /**
+     * 在当前线程开始一个请求的计时
+     *
+     * @param host      目标主机
+     * @param method    请求方法
+     * @param url       请求地址
+     * @param listeners 监听器, 按下标遍历, 应使用ArrayList或CopyOnWriteArrayList
+     * @return 当前线程的计时对象
+     */
+    static RequestTiming begin(HttpHost host, String method, String url, List<HttpListener> listeners) {
+        RequestTiming timing = CURRENT.get();
+        Arrays.fill(timing.phases, -1);
+        timing.host = host;
+        timing.method = method;
+        timing.url = url;
+        timing.statusCode = 0;
+        timing.failure = null;
+        timing.totalNanos = 0;
+        timing.responseNanos = 0;
+        timing.listeners = listeners;
+        timing.active = true;
+        timing.startNanos = System.nanoTime();
+        return timing;
+    }
+
+    /**
+     * 给当前线程正在进行的请求记录一个阶段, 没有进行中的请求时忽略
+     */
+    static void record(RequestPhase phase, long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing.active) {
+            timing.add(phase, nanos);
+        }
+    }
+
+    /**
+     * 当前线程的请求收到响应头
+     *
+     * @param statusCode 响应码
+     * @param nanos      请求写完到收到响应头的耗时(ns)
+     */
+    static void received(int statusCode, long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing.active) {
+            timing.received0(statusCode, nanos);
+        }
+    }
+
+    void add(RequestPhase phase, long nanos) {
+        int i = phase.ordinal();
+        phases[i] = phases[i] < 0 ? nanos : phases[i] + nanos;
+        for (int l = 0; l < listeners.size(); l++) {
+            try {
+                listeners.get(l).onPhase(this, phase, nanos);
+            } catch (RuntimeException e) {
+                logger.warn("http listener {} failed on phase {}", listeners.get(l), phase, e);
+            }
+        }
+    }
+
+    void received0(int statusCode, long nanos) {
+        add(RequestPhase.FIRST_BYTE, nanos);
+        this.statusCode = statusCode;
+        this.responseNanos = System.nanoTime();
+    }
+
+    /**
+     * body由调用方在请求结束之后读取, 不计入本次请求
+     */
+    void detachBody() {
+        responseNanos = 0;
+    }
+
+    void fail(Throwable failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * 结束计时: 收到过响应头时把之后的时间记为body读取, 然后通知监听器
+     */
+    void end() {
+        long now = System.nanoTime();
+        totalNanos = now - startNanos;
+        if (responseNanos != 0) {
+            add(RequestPhase.BODY_READ, now - responseNanos);
+        }
+        active = false;
+        for (int l = 0; l < listeners.size(); l++) {
+            try {
+                listeners.get(l).onComplete(this);
+            } catch (RuntimeException e) {
+                logger.warn("http listener {} failed on complete", listeners.get(l), e);
+            }
+        }
+    }
+
+    /**
+     * 目标主机
+     */
+    public HttpHost getHost() {
+        return host;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * 响应码, 未收到响应时为0
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * 请求抛出的异常, 包括非2xx响应的HttpResponseException, 成功时为null
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * 请求总耗时(ns), 包括等待限流许可
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * 阶段耗时(ns), 重试时为多次之和
+     *
+     * @return 未经历该阶段时返回-1
+     */
+    public long getPhaseNanos(RequestPhase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(160);
+        sb.append(method).append(' ').append(url).append(" status=").append(statusCode);
+        appendMillis(sb.append(" total="), totalNanos);
+        for (RequestPhase phase : PHASES) {
+            long nanos = phases[phase.ordinal()];
+            if (nanos >= 0) {
+                appendMillis(sb.append(' ').append(phase.name().toLowerCase(Locale.ENGLISH)).append('='), nanos);
+            }
+        }
+        if (failure != null) {
+            sb.append(" failure=").append(failure);
+        }
+        return sb.toString();
+    }
+
+    private static void appendMillis(StringBuilder sb, long nanos) {
+        long micros = nanos / 1000;
+        sb.append(micros / 1000).append('.');
+        long fraction = micros % 1000;
+        if (fraction < 100) {
+            sb.append('0');
+        }
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction).append("ms");
+    }
+}
@@ -0,0 +1,373 @@
+package com.leespy.http;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.leespy.io.BufferPool;
+import com.leespy.io.PooledByteArrayOutputStream;
+import com.leespy.json.Jsoner;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * http响应: 状态码与响应头在返回时已就绪, body按需读取.
+ * body只能以一种方式消费一次(stream/bytes/string/json), bytes与string的结果会被缓存;
+ * 用完必须关闭, 只关心状态码时直接关闭, 未读完的大body不会被读取, 连接随之关闭
+ */
+public abstract class Response implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    /**
+     * Content-Length超过该值时不按其预分配
+     */
+    private static final int MAX_PRESIZE = 1 << 20;
+
+    /**
+     * 错误响应的body最多保留的字节数
+     */
+    private static final int MAX_ERROR_BODY = 4096;
+
+    /**
+     * 关闭时未读的body不超过该长度则读完, 以便复用连接
+     */
+    private static final int MAX_DRAIN = 8192;
+
+    private final String defaultCharset;
+
+    private DrainTrackingStream stream;
+
+    private byte[] bytes;
+
+    /**
+     * body是否已读完
+     */
+    private boolean drained;
+
+    private boolean closed;
+
+    protected Response(String defaultCharset) {
+        this.defaultCharset = defaultCharset;
+    }
+
+    /**
+     * 响应码
+     */
+    public abstract int status();
+
+    /**
+     * 响应码的描述
+     */
+    public abstract String reason();
+
+    /**
+     * 第一个同名响应头的值, 不区分大小写
+     *
+     * @return 不存在时返回null
+     */
+    public abstract String header(String name);
+
+    /**
+     * 所有同名响应头的值, 不区分大小写
+     */
+    public abstract List<String> headers(String name);
+
+    /**
+     * 所有响应头
+     */
+    public abstract Map<String, List<String>> headers();
+
+    /**
+     * body长度
+     *
+     * @return 未知时返回-1
+     */
+    public abstract long contentLength();
+
+    /**
+     * Content-Type中声明的字符集
+     *
+     * @return 未声明时返回null
+     */
+    protected abstract Charset contentCharset();
+
+    /**
+     * 打开body流, 只会被调用一次
+     *
+     * @return 没有body时返回null
+     */
+    protected abstract InputStream openStream() throws IOException;
+
+    /**
+     * 释放连接
+     *
+     * @param drained body是否已读完, 读完的连接可以复用
+     */
+    protected abstract void release(boolean drained);
+
+    /**
+     * 是否为2xx响应
+     */
+    public boolean isOk() {
+        int status = status();
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * 非2xx响应时读取body并抛出HttpStatusException
+     *
+     * @return 本响应
+     */
+    public Response ensureOk() throws HttpStatusException {
+        if (isOk()) {
+            return this;
+        }
+        String body = null;
+        try {
+            body = errorBody();
+        } catch (IOException ignore) {
+            // the status is what matters
+        }
+        close();
+        throw new HttpStatusException(status(), reason(), headers(), body);
+    }
+
+    /**
+     * body流, 由调用方读取, 关闭响应时一并关闭
+     *
+     * @return 没有body时返回空流
+     */
+    public InputStream stream() throws IOException {
+        if (stream != null || bytes != null || closed) {
+            throw new IllegalStateException("response body already consumed");
+        }
+        InputStream in = openStream();
+        stream = new DrainTrackingStream(in != null ? in : new ByteArrayInputStream(new byte[0]));
+        return stream;
+    }
+
+    /**
+     * 读取整个body
+     *
+     * @return 没有body时返回长度为0的数组
+     */
+    public byte[] bytes() throws IOException {
+        if (bytes != null) {
+            return bytes;
+        }
+        InputStream in = stream();
+        long length = contentLength();
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(
+                length > 0 && length < MAX_PRESIZE ? (int) length : DEFAULT_BUFFER_SIZE);
+        byte[] chunk = BufferPool.DEFAULT.acquire(DEFAULT_BUFFER_SIZE);
+        try {
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                out.write(chunk, 0, n);
+            }
+            bytes = out.toByteArray();
+            drained = true;
+            return bytes;
+        } finally {
+            BufferPool.DEFAULT.release(chunk);
+            out.close();
+        }
+    }
+
+    /**
+     * 按Content-Type声明的字符集读取body, 未声明时使用请求指定的编码
+     */
+    public String string() throws IOException {
+        return new String(bytes(), charset());
+    }
+
+    /**
+     * 用Jsoner.DEFAULT从body流直接反序列化, 不先读成字符串
+     *
+     * @throws IOException 读取或解析失败
+     */
+    public <T> T json(Class<T> type) throws IOException {
+        return json(Jsoner.DEFAULT, TypeFactory.defaultInstance().constructType(type));
+    }
+
+    /**
+     * 用Jsoner.DEFAULT从body流直接反序列化为复杂类型
+     *
+     * @see Jsoner#createCollectionType(Class, Class...)
+     */
+    public <T> T json(JavaType type) throws IOException {
+        return json(Jsoner.DEFAULT, type);
+    }
+
+    /**
+     * 用指定的Jsoner从body流直接反序列化
+     *
+     * @throws IOException 读取或解析失败
+     */
+    public <T> T json(Jsoner jsoner, JavaType type) throws IOException {
+        InputStream in = bytes != null ? new ByteArrayInputStream(bytes) : stream();
+        Charset charset = contentCharset();
+        // jackson detects the unicode encodings itself
+        ObjectReader reader = jsoner.reader(type);
+        JsonParser parser = charset == null || charset.name().startsWith("UTF-")
+                ? reader.getFactory().createParser(in)
+                : reader.getFactory().createParser(new InputStreamReader(in, charset));
+        try {
+            T value = reader.readValue(parser);
+            // only trailing whitespace can be left
+            drained = true;
+            return value;
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * 按订阅者的需求推送body, 订阅后不要再通过本对象读取body
+     *
+     * @see BodyPublisher#lines(Response)
+     * @see BodyPublisher#events(Response)
+     * @see BodyPublisher#json(Response, Jsoner, Class)
+     */
+    public BodyPublisher<ByteBuffer> publisher() {
+        return BodyPublisher.bytes(this);
+    }
+
+    /**
+     * 释放连接, 可重复调用. body已读完时连接放回连接池, 否则关闭连接
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (!drained && stream != null) {
+            drained = stream.drained;
+        }
+        if (!drained) {
+            drained = drainSmallBody();
+        }
+        closed = true;
+        if (drained && stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ignore) {
+                // the connection is released below
+            }
+        }
+        release(drained);
+    }
+
+    /**
+     * body已绕过本对象读取时关闭
+     *
+     * @param drained body是否已读完
+     */
+    void closeConsumed(boolean drained) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        release(drained);
+    }
+
+    private boolean drainSmallBody() {
+        long length = contentLength();
+        if (length < 0 || length > MAX_DRAIN) {
+            return false;
+        }
+        try {
+            InputStream in = stream != null ? stream : stream();
+            byte[] skip = new byte[DEFAULT_BUFFER_SIZE];
+            while (in.read(skip) != -1) {
+                // discard
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Response(" + status() + " " + reason() + ")";
+    }
+
+    Charset charset() {
+        Charset charset = contentCharset();
+        return charset != null ? charset : FormEncoder.charset(defaultCharset);
+    }
+
+    private String errorBody() throws IOException {
+        if (stream != null) {
+            return null;
+        }
+        if (bytes == null) {
+            InputStream in = stream();
+            byte[] buffer = new byte[MAX_ERROR_BODY];
+            int length = 0;
+            int n;
+            while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += n;
+            }
+            return new String(buffer, 0, length, charset());
+        }
+        return new String(bytes, 0, Math.min(bytes.length, MAX_ERROR_BODY), charset());
+    }
+
+    /**
+     * 记录body是否已读到末尾, 决定关闭时连接能否复用
+     */
+    private static class DrainTrackingStream extends InputStream {
+
+        private final InputStream in;
+
+        private boolean drained;
+
+        private DrainTrackingStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                drained = true;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                drained = true;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return in.skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
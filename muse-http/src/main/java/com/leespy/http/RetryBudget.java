@@ -0,0 +1,67 @@
+package com.leespy.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重试预算: 每个请求存入ratio个令牌, 每次重试取出一个令牌, 令牌不足时不再重试.
+ * 上游故障时重试量被限制在正常请求量的ratio倍以内, 避免重试风暴
+ */
+public class RetryBudget {
+
+    /**
+     * 令牌以千分之一为单位存储
+     */
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+
+    private final long capacity;
+
+    private final AtomicLong balance;
+
+    /**
+     * @param ratio    每个请求可带来的重试次数, 如0.2表示重试量不超过请求量的20%
+     * @param capacity 令牌上限, 同时也是初始令牌数
+     */
+    public RetryBudget(double ratio, int capacity) {
+        this.deposit = (long) (ratio * SCALE);
+        this.capacity = capacity * SCALE;
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    /**
+     * 发出请求时调用, 存入令牌
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    /**
+     * 尝试为一次重试取出令牌
+     *
+     * @return 成功取出返回true
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    /**
+     * 当前可用的重试次数
+     */
+    public long available() {
+        return balance.get() / SCALE;
+    }
+}
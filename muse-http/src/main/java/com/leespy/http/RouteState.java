@@ -0,0 +1,182 @@
+package com.leespy.http;
+
+import org.apache.http.HttpHost;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个目标主机的运行状态: 熔断器、重试预算与延迟统计.
+ * 除用于对冲的成功请求延迟外, 还按响应码分类与请求阶段分别统计耗时
+ */
+public class RouteState {
+
+    private static final RequestPhase[] PHASES = RequestPhase.values();
+
+    private final HttpHost host;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final RetryBudget retryBudget;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * 按响应码分类的请求总耗时, 下标为响应码的百位数, 0表示未收到响应
+     */
+    private final LatencyHistogram[] statusLatency = histograms(6);
+
+    /**
+     * 各请求阶段的耗时, 下标为RequestPhase.ordinal()
+     */
+    private final LatencyHistogram[] phaseLatency = histograms(RequestPhase.values().length);
+
+    /**
+     * 限流器, 未开启时为null
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * 自适应并发限制, 未开启时为null
+     */
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    private final LimitMode limitMode;
+
+    private final long limitTimeoutMillis;
+
+    RouteState(HttpHost host, HttpConfig config) {
+        this.host = host;
+        this.circuitBreaker = new CircuitBreaker(config.getCircuitBreakerThreshold(), config.getCircuitBreakerOpenMillis());
+        this.retryBudget = new RetryBudget(config.getRetryBudgetRatio(), config.getRetryBudgetCapacity());
+        this.rateLimiter = config.getRateLimit() > 0
+                ? new RateLimiter(config.getRateLimit(), config.getRateLimitBurst()) : null;
+        this.concurrencyLimiter = config.isAdaptiveConcurrency()
+                ? new ConcurrencyLimiter(config.getMinConcurrency(), config.getMaxConnectionsPerRoute()) : null;
+        this.limitMode = config.getLimitMode();
+        this.limitTimeoutMillis = config.getLimitTimeoutMillis();
+    }
+
+    /**
+     * 按限流与并发限制获取发出请求的许可, 成功后必须调用release
+     *
+     * @param deadline 截止时间, 等待不超过其剩余时间, 可以为null
+     * @throws RateLimitedException 未能按LimitMode获取许可
+     * @throws DeadlineExceededException 等待许可时到达截止时间
+     * @throws InterruptedIOException 等待被中断
+     */
+    void acquire(Deadline deadline) throws IOException {
+        long timeout = limitTimeout();
+        if (deadline != null) {
+            timeout = Math.min(timeout, deadline.remaining(TimeUnit.MILLISECONDS));
+        }
+        try {
+            if (rateLimiter != null && !rateLimiter.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw limited(deadline, "rate limited");
+            }
+            if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw limited(deadline, "concurrency limited");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for permit: " + host);
+        }
+    }
+
+    private IOException limited(Deadline deadline, String reason) {
+        if (deadline != null && deadline.isExpired()) {
+            return new DeadlineExceededException(reason + " until deadline: " + host);
+        }
+        return new RateLimitedException(host, reason);
+    }
+
+    /**
+     * 释放acquire获取的并发名额
+     *
+     * @param latencyNanos 请求耗时(ns), 小于0表示请求未发出
+     * @param dropped      请求是否失败
+     */
+    void release(long latencyNanos, boolean dropped) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release(latencyNanos, dropped);
+        }
+    }
+
+    /**
+     * 记录一个已结束请求的总耗时与各阶段耗时
+     */
+    void record(RequestTiming timing) {
+        statusLatency[statusClass(timing.getStatusCode())].record(timing.getTotalNanos());
+        for (int i = 0; i < phaseLatency.length; i++) {
+            long nanos = timing.getPhaseNanos(PHASES[i]);
+            if (nanos >= 0) {
+                phaseLatency[i].record(nanos);
+            }
+        }
+    }
+
+    private static int statusClass(int statusCode) {
+        int statusClass = statusCode / 100;
+        return statusClass >= 1 && statusClass <= 5 ? statusClass : 0;
+    }
+
+    private static LatencyHistogram[] histograms(int size) {
+        LatencyHistogram[] histograms = new LatencyHistogram[size];
+        for (int i = 0; i < size; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    private long limitTimeout() {
+        switch (limitMode) {
+            case FAIL_FAST:
+                return 0;
+            case DEADLINE:
+                return limitTimeoutMillis;
+            default:
+                return Long.MAX_VALUE;
+        }
+    }
+
+    public HttpHost getHost() {
+        return host;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * 按响应码分类的请求总耗时
+     *
+     * @param statusCode 响应码, 如200、404, 0表示未收到响应的请求
+     */
+    public LatencyHistogram getStatusLatency(int statusCode) {
+        return statusLatency[statusClass(statusCode)];
+    }
+
+    /**
+     * 请求阶段的耗时
+     */
+    public LatencyHistogram getPhaseLatency(RequestPhase phase) {
+        return phaseLatency[phase.ordinal()];
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+}
@@ -0,0 +1,55 @@
+package com.leespy.http;
+
+/**
+ * text/event-stream中的一个事件
+ */
+public final class ServerSentEvent {
+
+    private final String id;
+
+    private final String event;
+
+    private final String data;
+
+    private final long retry;
+
+    ServerSentEvent(String id, String event, String data, long retry) {
+        this.id = id;
+        this.event = event;
+        this.data = data;
+        this.retry = retry;
+    }
+
+    /**
+     * 最近一次收到的id, 会延续到之后未带id的事件, 从未收到时为空串
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 事件类型, 未指定时为"message"
+     */
+    public String getEvent() {
+        return event;
+    }
+
+    /**
+     * 事件数据, 多个data行以'\n'连接
+     */
+    public String getData() {
+        return data;
+    }
+
+    /**
+     * 最近一次收到的重连间隔(ms), 会延续到之后未带retry的事件, 从未收到时为-1
+     */
+    public long getRetry() {
+        return retry;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerSentEvent(id=" + id + ", event=" + event + ", data=" + data + ")";
+    }
+}
@@ -0,0 +1,58 @@
+package com.leespy.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把请求各阶段耗时输出到日志: 慢请求以warn输出, 其余按采样率以info输出
+ */
+public class Slf4jHttpListener implements HttpListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(Slf4jHttpListener.class);
+
+    /**
+     * 每sampleRate个请求输出一个
+     */
+    private final int sampleRate;
+
+    /**
+     * 超过该耗时(ns)的请求总是输出
+     */
+    private final long slowNanos;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * 每100个请求采样一个, 超过1s的请求总是输出
+     */
+    public Slf4jHttpListener() {
+        this(100, 1000);
+    }
+
+    /**
+     * @param sampleRate 每sampleRate个请求输出一个, 1表示全部输出
+     * @param slowMillis 超过该耗时(ms)的请求总是以warn输出, 0表示不区分
+     */
+    public Slf4jHttpListener(int sampleRate, long slowMillis) {
+        this.sampleRate = Math.max(1, sampleRate);
+        this.slowNanos = slowMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(slowMillis) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public void onPhase(RequestTiming timing, RequestPhase phase, long nanos) {
+    }
+
+    @Override
+    public void onComplete(RequestTiming timing) {
+        if (timing.getTotalNanos() >= slowNanos) {
+            if (logger.isWarnEnabled()) {
+                logger.warn("slow http request: {}", timing.toString());
+            }
+        } else if (logger.isInfoEnabled() && counter.incrementAndGet() % sampleRate == 0) {
+            logger.info("http request: {}", timing.toString());
+        }
+    }
+}
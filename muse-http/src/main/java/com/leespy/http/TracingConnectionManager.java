@@ -0,0 +1,124 @@
+package com.leespy.http;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 记录从连接池借出连接的等待时间, 开启连接池自动调整时还按Route累计借出次数与等待时间
+ */
+class TracingConnectionManager extends PoolingHttpClientConnectionManager {
+
+    /**
+     * 各Route的借出统计, 未开启时为null
+     */
+    private final ConcurrentMap<HttpRoute, LeaseStats> leaseStats;
+
+    TracingConnectionManager(Registry<ConnectionSocketFactory> registry, DnsResolver dnsResolver,
+                             long timeToLive, TimeUnit unit, boolean collectLeaseStats) {
+        super(registry, null, null, dnsResolver, timeToLive, unit);
+        this.leaseStats = collectLeaseStats ? new ConcurrentHashMap<HttpRoute, LeaseStats>() : null;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final ConnectionRequest request = super.requestConnection(route, state);
+        final LeaseStats stats = leaseStats != null ? leaseStats(route) : null;
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                boolean leased = false;
+                try {
+                    HttpClientConnection connection = request.get(timeout, unit);
+                    leased = true;
+                    return connection;
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    RequestTiming.record(RequestPhase.LEASE, nanos);
+                    if (stats != null) {
+                        stats.record(nanos, leased);
+                    }
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    /**
+     * 不计入借出统计的借出请求, 用于预热连接
+     */
+    ConnectionRequest requestUntracked(HttpRoute route) {
+        return super.requestConnection(route, null);
+    }
+
+    /**
+     * Route的借出统计, 未开启时返回null
+     */
+    LeaseStats leaseStats(HttpRoute route) {
+        if (leaseStats == null) {
+            return null;
+        }
+        LeaseStats stats = leaseStats.get(route);
+        if (stats == null) {
+            LeaseStats created = new LeaseStats();
+            stats = leaseStats.putIfAbsent(route, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 一个Route累计的借出次数、等待时间与借出失败次数, 只增不减, 由读取方计算差值
+     */
+    static final class LeaseStats {
+
+        private final LongAdder leases = new LongAdder();
+
+        private final LongAdder waitNanos = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private void record(long nanos, boolean leased) {
+            if (leased) {
+                leases.increment();
+                waitNanos.add(nanos);
+            } else {
+                failures.increment();
+            }
+        }
+
+        long leases() {
+            return leases.sum();
+        }
+
+        long waitNanos() {
+            return waitNanos.sum();
+        }
+
+        /**
+         * 超时或被中断而未借到连接的次数
+         */
+        long failures() {
+            return failures.sum();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.leespy.http;
+
+import org.apache.http.conn.DnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * 记录域名解析耗时
+ */
+class TracingDnsResolver implements DnsResolver {
+
+    private final DnsResolver delegate;
+
+    TracingDnsResolver(DnsResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        long start = System.nanoTime();
+        try {
+            return delegate.resolve(host);
+        } finally {
+            RequestTiming.record(RequestPhase.DNS, System.nanoTime() - start);
+        }
+    }
+}
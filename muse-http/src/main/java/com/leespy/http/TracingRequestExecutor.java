@@ -0,0 +1,45 @@
+package com.leespy.http;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import java.io.IOException;
+
+/**
+ * 记录写请求与等待响应头的耗时
+ */
+class TracingRequestExecutor extends HttpRequestExecutor {
+
+    static final TracingRequestExecutor INSTANCE = new TracingRequestExecutor();
+
+    @Override
+    protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws IOException, HttpException {
+        long start = System.nanoTime();
+        try {
+            return super.doSendRequest(request, conn, context);
+        } finally {
+            RequestTiming.record(RequestPhase.REQUEST_WRITE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws HttpException, IOException {
+        long start = System.nanoTime();
+        HttpResponse response;
+        try {
+            response = super.doReceiveResponse(request, conn, context);
+        } catch (IOException e) {
+            // a read timeout here means the upstream is slow
+            RequestTiming.record(RequestPhase.FIRST_BYTE, System.nanoTime() - start);
+            throw e;
+        }
+        RequestTiming.received(response.getStatusLine().getStatusCode(), System.nanoTime() - start);
+        return response;
+    }
+}
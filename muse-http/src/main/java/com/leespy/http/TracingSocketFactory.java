@@ -0,0 +1,85 @@
+package com.leespy.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * 分别记录TCP连接与TLS握手的耗时; 配置了CachingDnsResolver时, 连接失败的地址
+ * 会通知解析器, 使其在之后的解析结果中排到最后
+ */
+class TracingSocketFactory implements LayeredConnectionSocketFactory {
+
+    private final ConnectionSocketFactory delegate;
+
+    /**
+     * 未开启DNS缓存时为null
+     */
+    private final CachingDnsResolver resolver;
+
+    TracingSocketFactory(ConnectionSocketFactory delegate, CachingDnsResolver resolver) {
+        this.delegate = delegate;
+        this.resolver = resolver;
+    }
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout, Socket sock, HttpHost host, InetSocketAddress remoteAddress,
+                                InetSocketAddress localAddress, HttpContext context) throws IOException {
+        if (!(delegate instanceof LayeredConnectionSocketFactory)) {
+            return connect(delegate, connectTimeout, sock, host, remoteAddress, localAddress, context);
+        }
+        // same steps as SSLConnectionSocketFactory.connectSocket, split so the handshake is timed on its own
+        if (sock != null && connectTimeout > 0 && sock.getSoTimeout() == 0) {
+            sock.setSoTimeout(connectTimeout);
+        }
+        Socket connected = connect(PlainConnectionSocketFactory.getSocketFactory(),
+                connectTimeout, sock, host, remoteAddress, localAddress, context);
+        long start = System.nanoTime();
+        try {
+            return createLayeredSocket(connected, host.getHostName(), remoteAddress.getPort(), context);
+        } catch (IOException e) {
+            try {
+                connected.close();
+            } catch (IOException ignore) {
+            }
+            throw e;
+        } finally {
+            RequestTiming.record(RequestPhase.TLS_HANDSHAKE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+        if (!(delegate instanceof LayeredConnectionSocketFactory)) {
+            throw new IOException("layered socket not supported by " + delegate);
+        }
+        return ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(socket, target, port, context);
+    }
+
+    private Socket connect(ConnectionSocketFactory factory, int connectTimeout, Socket sock, HttpHost host,
+                           InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+                           HttpContext context) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return factory.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+        } catch (IOException e) {
+            if (resolver != null) {
+                resolver.markFailed(remoteAddress.getAddress());
+            }
+            throw e;
+        } finally {
+            RequestTiming.record(RequestPhase.CONNECT, System.nanoTime() - start);
+        }
+    }
+}
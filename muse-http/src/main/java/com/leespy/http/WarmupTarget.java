@@ -0,0 +1,71 @@
+package com.leespy.http;
+
+/**
+ * 启动时预先建立连接的目标主机
+ */
+public class WarmupTarget {
+
+    private String host;
+
+    /**
+     * 端口, 不大于0时使用协议的默认端口
+     */
+    private int port = -1;
+
+    /**
+     * http或https, https连接在预热时完成握手
+     */
+    private String scheme = "http";
+
+    /**
+     * 保持的最少空闲连接数, 不超过该Route的最大连接数
+     */
+    private int minIdle = 1;
+
+    public WarmupTarget() {
+    }
+
+    public WarmupTarget(String host, int port, String scheme, int minIdle) {
+        this.host = host;
+        this.port = port;
+        this.scheme = scheme;
+        this.minIdle = minIdle;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getScheme() {
+        return scheme;
+    }
+
+    public void setScheme(String scheme) {
+        this.scheme = scheme;
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    @Override
+    public String toString() {
+        return scheme + "://" + host + (port > 0 ? ":" + port : "") + "(minIdle=" + minIdle + ")";
+    }
+}
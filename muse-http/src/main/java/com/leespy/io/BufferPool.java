@@ -0,0 +1,296 @@
+package com.leespy.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按大小分级的缓冲区池, 支持堆内byte[]与堆外ByteBuffer.
+ * <p/>
+ * 容量按2的幂分级(512B ~ 1MB), 超出范围的请求直接分配且不回收.
+ * 每个线程先从自己的缓存中取还, 缓存满或为空时再访问全局的无锁队列.
+ * 启动参数 -Dmuse.buffer.leakDetection=true 时记录每次借出的调用栈,
+ * 借出的缓冲区未归还就被回收时输出告警.
+ */
+public final class BufferPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(BufferPool.class);
+
+    private static final int MIN_SHIFT = 9;
+
+    private static final int MAX_SHIFT = 20;
+
+    private static final int CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+    /**
+     * 每个线程每级缓存的个数, 64KB以上的缓存更少
+     */
+    private static final int THREAD_CACHE_SMALL = 8;
+
+    private static final int THREAD_CACHE_LARGE = 2;
+
+    /**
+     * 全局队列每级最多保留的字节数
+     */
+    private static final int GLOBAL_BYTES_PER_CLASS = 4 << 20;
+
+    /**
+     * 全局共享的缓冲区池
+     */
+    public static final BufferPool DEFAULT = new BufferPool(Boolean.getBoolean("muse.buffer.leakDetection"));
+
+    private final Arena<byte[]> heap = new Arena<byte[]>() {
+        @Override
+        byte[] allocate(int capacity) {
+            return new byte[capacity];
+        }
+
+        @Override
+        int capacity(byte[] buffer) {
+            return buffer.length;
+        }
+    };
+
+    private final Arena<ByteBuffer> direct = new Arena<ByteBuffer>() {
+        @Override
+        ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+
+        @Override
+        int capacity(ByteBuffer buffer) {
+            return buffer.capacity();
+        }
+    };
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LeakDetector leakDetector;
+
+    public BufferPool(boolean leakDetection) {
+        this.leakDetector = leakDetection ? new LeakDetector() : null;
+    }
+
+    /**
+     * 借出至少minCapacity字节的数组, 返回的数组可能更大, 内容未清零
+     */
+    public byte[] acquire(int minCapacity) {
+        return heap.acquire(minCapacity);
+    }
+
+    /**
+     * 归还acquire借出的数组, 归还后调用方不得再使用
+     */
+    public void release(byte[] buffer) {
+        heap.release(buffer);
+    }
+
+    /**
+     * 借出至少minCapacity字节的堆外缓冲区, position为0, limit为capacity
+     */
+    public ByteBuffer acquireDirect(int minCapacity) {
+        ByteBuffer buffer = direct.acquire(minCapacity);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * 归还acquireDirect借出的缓冲区
+     */
+    public void releaseDirect(ByteBuffer buffer) {
+        direct.release(buffer);
+    }
+
+    /**
+     * 从池中取到缓冲区的次数
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * 池中无可用缓冲区而新分配的次数
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    private static int classOf(int capacity) {
+        if (capacity <= 1 << MIN_SHIFT) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+
+    private abstract class Arena<T> {
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final Queue<T>[] global = new Queue[CLASSES];
+
+        private final AtomicInteger[] globalSizes = new AtomicInteger[CLASSES];
+
+        private final ThreadLocal<LocalCache> local = new ThreadLocal<LocalCache>() {
+            @Override
+            protected LocalCache initialValue() {
+                return new LocalCache();
+            }
+        };
+
+        Arena() {
+            for (int i = 0; i < CLASSES; i++) {
+                global[i] = new ConcurrentLinkedQueue<T>();
+                globalSizes[i] = new AtomicInteger();
+            }
+        }
+
+        abstract T allocate(int capacity);
+
+        abstract int capacity(T buffer);
+
+        @SuppressWarnings("unchecked")
+        T acquire(int minCapacity) {
+            int index = classOf(minCapacity);
+            if (index >= CLASSES) {
+                misses.increment();
+                return allocate(minCapacity);
+            }
+            T buffer;
+            LocalCache cache = local.get();
+            if (cache.sizes[index] > 0) {
+                Object[] stack = cache.stacks[index];
+                int top = --cache.sizes[index];
+                buffer = (T) stack[top];
+                stack[top] = null;
+            } else {
+                buffer = global[index].poll();
+                if (buffer != null) {
+                    globalSizes[index].decrementAndGet();
+                }
+            }
+            if (buffer != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                buffer = allocate(1 << (index + MIN_SHIFT));
+            }
+            if (leakDetector != null) {
+                leakDetector.track(buffer);
+            }
+            return buffer;
+        }
+
+        void release(T buffer) {
+            if (buffer == null) {
+                return;
+            }
+            int capacity = capacity(buffer);
+            if (Integer.bitCount(capacity) != 1 || capacity < 1 << MIN_SHIFT || capacity > 1 << MAX_SHIFT) {
+                // not from a size class, leave it to the GC
+                return;
+            }
+            if (leakDetector != null) {
+                leakDetector.untrack(buffer);
+            }
+            int index = classOf(capacity);
+            LocalCache cache = local.get();
+            Object[] stack = cache.stacks[index];
+            if (cache.sizes[index] < stack.length) {
+                stack[cache.sizes[index]++] = buffer;
+                return;
+            }
+            int limit = Math.max(2, GLOBAL_BYTES_PER_CLASS >> (index + MIN_SHIFT));
+            if (globalSizes[index].incrementAndGet() <= limit) {
+                global[index].offer(buffer);
+            } else {
+                globalSizes[index].decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 线程私有的缓存, 每级一个栈
+     */
+    private static class LocalCache {
+
+        private final Object[][] stacks = new Object[CLASSES][];
+
+        private final int[] sizes = new int[CLASSES];
+
+        LocalCache() {
+            for (int i = 0; i < CLASSES; i++) {
+                stacks[i] = new Object[(i + MIN_SHIFT) <= 16 ? THREAD_CACHE_SMALL : THREAD_CACHE_LARGE];
+            }
+        }
+    }
+
+    /**
+     * 记录借出的缓冲区, 被GC回收时仍未归还的视为泄漏
+     */
+    private static class LeakDetector {
+
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+        private final ConcurrentMap<Key, Throwable> outstanding = new ConcurrentHashMap<Key, Throwable>();
+
+        void track(Object buffer) {
+            reportLeaks();
+            outstanding.put(new Key(buffer, queue), new Throwable("buffer acquired here"));
+        }
+
+        void untrack(Object buffer) {
+            outstanding.remove(new Key(buffer, null));
+        }
+
+        private void reportLeaks() {
+            Reference<?> ref;
+            while ((ref = queue.poll()) != null) {
+                Throwable site = outstanding.remove(ref);
+                if (site != null) {
+                    logger.warn("buffer was garbage collected without being released to the pool", site);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按对象身份比较的弱引用key
+     */
+    private static class Key extends WeakReference<Object> {
+
+        private final int hash;
+
+        Key(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((Key) o).get();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.leespy.io;
+
+import com.google.common.base.Charsets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 底层数组来自BufferPool的ByteArrayOutputStream, 非线程安全, 用完必须close归还数组
+ */
+public class PooledByteArrayOutputStream extends OutputStream {
+
+    private final BufferPool pool;
+
+    private byte[] buf;
+
+    private int count;
+
+    public PooledByteArrayOutputStream(int initialCapacity) {
+        this(BufferPool.DEFAULT, initialCapacity);
+    }
+
+    public PooledByteArrayOutputStream(BufferPool pool, int initialCapacity) {
+        this.pool = pool;
+        this.buf = pool.acquire(initialCapacity);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    /**
+     * 按字符集写入字符串, UTF-8/US-ASCII/ISO-8859-1直接编码到数组中, 不产生中间对象
+     */
+    public void writeString(CharSequence s, Charset charset) {
+        if (Charsets.UTF_8.equals(charset)) {
+            writeUtf8(s);
+        } else if (Charsets.US_ASCII.equals(charset) || Charsets.ISO_8859_1.equals(charset)) {
+            int max = Charsets.US_ASCII.equals(charset) ? 0x7f : 0xff;
+            int len = s.length();
+            ensureCapacity(count + len);
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    // a surrogate pair is one unmappable character
+                    i++;
+                }
+                buf[count++] = c <= max ? (byte) c : (byte) '?';
+            }
+        } else {
+            byte[] bytes = s.toString().getBytes(charset);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * 当前内容所在的数组, 有效数据为[0, size())
+     */
+    public byte[] array() {
+        return buf;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * 复制当前内容
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    /**
+     * 归还数组, 之后不得再使用
+     */
+    @Override
+    public void close() {
+        if (buf != null) {
+            pool.release(buf);
+            buf = null;
+        }
+    }
+
+    private void writeUtf8(CharSequence s) {
+        int len = s.length();
+        // worst case 3 bytes per char, surrogate pairs take 4 bytes for 2 chars
+        ensureCapacity(count + len * 3);
+        byte[] b = buf;
+        int pos = count;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xc0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[pos++] = (byte) (0xf0 | (cp >> 18));
+                b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                b[pos++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, same replacement as String.getBytes
+                b[pos++] = (byte) '?';
+            } else {
+                b[pos++] = (byte) (0xe0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                b[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        count = pos;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= buf.length) {
+            return;
+        }
+        byte[] grown = pool.acquire(Math.max(capacity, buf.length << 1));
+        System.arraycopy(buf, 0, grown, 0, count);
+        pool.release(buf);
+        buf = grown;
+    }
+}
@@ -0,0 +1,302 @@
+package com.leespy.http;
+
+import com.leespy.json.Jsoner;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 按需求推送、取消后释放连接, 以及分块边界落在行、字段与行尾中间时的事件解析
+ */
+public class BodyPublisherTest {
+
+    private static final int LINES = 50000;
+
+    /**
+     * 事件流分多次写出, 每次之间暂停, 使客户端分多次读到
+     */
+    private static final String[] EVENT_PIECES = {
+            "ï»", "¿id: 1\r", "\ndata: al", "pha\r\n", "\r\nretry: 25", "00\n\n: comment\ndata: b\n",
+            "data: c\n\nev", "ent: update\ndata: {\"x\":1}\n", "\nretry\ndata", ": d\r\rdata: trailing"};
+
+    private static ExecutorService handlers;
+
+    private static HttpServer server;
+
+    private static String url;
+
+    private static volatile CountDownLatch endlessClosed;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/lines", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                for (int i = 0; i < LINES; i++) {
+                    out.write(("line-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+                exchange.close();
+            }
+        });
+        server.createContext("/endless", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                byte[] line = "tick\n".getBytes(StandardCharsets.UTF_8);
+                try {
+                    while (true) {
+                        out.write(line);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    endlessClosed.countDown();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.createContext("/events", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                try {
+                    for (String piece : EVENT_PIECES) {
+                        out.write(piece.getBytes(StandardCharsets.ISO_8859_1));
+                        out.flush();
+                        Thread.sleep(20);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.close();
+            }
+        });
+        server.createContext("/nulls", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = "[1,null,2]".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    public void deliversOnlyWhatIsRequested() throws Exception {
+        Recorder<String> recorder = new Recorder<String>();
+        BodyPublisher.lines(Http.get(url + "/lines").response()).subscribe(recorder);
+
+        recorder.subscription.request(2);
+        recorder.awaitItems(2);
+        Thread.sleep(100);
+        assertEquals(Arrays.asList("line-0", "line-1"), recorder.items);
+
+        recorder.subscription.request(3);
+        recorder.awaitItems(5);
+        Thread.sleep(100);
+        assertEquals(5, recorder.items.size());
+        assertEquals("line-4", recorder.items.get(4));
+        assertFalse(recorder.completed);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.awaitDone();
+        assertNull(recorder.error);
+        assertEquals(LINES, recorder.items.size());
+        assertEquals("line-" + (LINES - 1), recorder.items.get(LINES - 1));
+    }
+
+    @Test
+    public void completesWhenRequestingOneAtATime() throws Exception {
+        final Recorder<String> recorder = new Recorder<String>() {
+            @Override
+            public void onNext(String item) {
+                super.onNext(item);
+                subscription().request(1);
+            }
+        };
+        BodyPublisher.lines(Http.get(url + "/lines").response()).subscribe(recorder);
+        recorder.subscription.request(1);
+        recorder.awaitDone();
+        assertTrue(recorder.completed);
+        assertEquals(LINES, recorder.items.size());
+    }
+
+    @Test
+    public void endOfBodyIsFoundOnTheNextDemand() throws Exception {
+        Recorder<String> recorder = new Recorder<String>();
+        BodyPublisher.lines(Http.get(url + "/lines").response()).subscribe(recorder);
+        recorder.subscription.request(LINES);
+        recorder.awaitItems(LINES);
+        Thread.sleep(100);
+        // no demand, no read: the end of the body is not known yet
+        assertFalse(recorder.completed);
+        recorder.subscription.request(1);
+        recorder.awaitDone();
+        assertTrue(recorder.completed);
+        assertEquals(LINES, recorder.items.size());
+    }
+
+    @Test
+    public void cancelStopsDeliveryAndClosesTheConnection() throws Exception {
+        endlessClosed = new CountDownLatch(1);
+        Recorder<String> recorder = new Recorder<String>();
+        BodyPublisher.lines(Http.get(url + "/endless").response()).subscribe(recorder);
+        recorder.subscription.request(3);
+        recorder.awaitItems(3);
+
+        recorder.subscription.cancel();
+        assertTrue("server saw the connection closed", endlessClosed.await(5, TimeUnit.SECONDS));
+        recorder.subscription.request(10);
+        Thread.sleep(100);
+        assertEquals(3, recorder.items.size());
+        assertFalse(recorder.completed);
+        assertNull(recorder.error);
+    }
+
+    @Test
+    public void nonPositiveRequestFails() throws Exception {
+        Recorder<String> recorder = new Recorder<String>();
+        BodyPublisher.lines(Http.get(url + "/lines").response()).subscribe(recorder);
+        recorder.subscription.request(0);
+        recorder.awaitDone();
+        assertTrue(recorder.error instanceof IllegalArgumentException);
+        assertTrue(recorder.items.isEmpty());
+    }
+
+    @Test
+    public void secondSubscriberFails() throws Exception {
+        BodyPublisher<String> publisher = BodyPublisher.lines(Http.get(url + "/lines").response());
+        Recorder<String> first = new Recorder<String>();
+        publisher.subscribe(first);
+        Recorder<String> second = new Recorder<String>();
+        publisher.subscribe(second);
+        second.awaitDone();
+        assertTrue(second.error instanceof IllegalStateException);
+        first.subscription.cancel();
+    }
+
+    @Test
+    public void parsesEventsSplitAcrossChunks() throws Exception {
+        Recorder<ServerSentEvent> recorder = new Recorder<ServerSentEvent>();
+        BodyPublisher.events(Http.get(url + "/events").response()).subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.awaitDone();
+        assertNull(recorder.error);
+        // the unterminated last event is dropped
+        assertEquals(4, recorder.items.size());
+        assertEvent(recorder.items.get(0), "1", "message", "alpha", -1);
+        assertEvent(recorder.items.get(1), "1", "message", "b\nc", 2500);
+        assertEvent(recorder.items.get(2), "1", "update", "{\"x\":1}", 2500);
+        // an empty retry field keeps the last value
+        assertEvent(recorder.items.get(3), "1", "message", "d", 2500);
+    }
+
+    @Test
+    public void jsonNullElementFailsTheSubscription() throws Exception {
+        Recorder<Integer> recorder = new Recorder<Integer>();
+        BodyPublisher.jsonArray(Http.get(url + "/nulls").response(), Jsoner.DEFAULT, Integer.class)
+                .subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.awaitDone();
+        // elements decoded with the null from the same chunk are dropped with it
+        assertTrue(recorder.items.size() <= 1);
+        assertTrue(String.valueOf(recorder.error), recorder.error instanceof IOException);
+        assertTrue(recorder.error.getMessage().contains("null"));
+    }
+
+    private static void assertEvent(ServerSentEvent event, String id, String name, String data, long retry) {
+        assertEquals(id, event.getId());
+        assertEquals(name, event.getEvent());
+        assertEquals(data, event.getData());
+        assertEquals(retry, event.getRetry());
+    }
+
+    private static class Recorder<T> implements BodyFlow.Subscriber<T> {
+
+        private final List<T> items = new CopyOnWriteArrayList<T>();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile BodyFlow.Subscription subscription;
+
+        private volatile Throwable error;
+
+        private volatile boolean completed;
+
+        @Override
+        public void onSubscribe(BodyFlow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+
+        BodyFlow.Subscription subscription() {
+            return subscription;
+        }
+
+        private void awaitItems(int n) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (items.size() < n) {
+                assertTrue("received " + items.size() + " of " + n, System.currentTimeMillis() < deadline);
+                Thread.sleep(5);
+            }
+        }
+
+        private void awaitDone() throws InterruptedException {
+            assertTrue("subscription did not end", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.leespy.http;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.InMemoryDnsResolver;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 过期后在后台刷新, 轮询旋转, 失败地址排到最后, 以及刷新失败后能再次刷新
+ */
+public class CachingDnsResolverTest {
+
+    private static final String HOST = "api.example.com";
+
+    private static final InetAddress A = v4(10, 0, 0, 1);
+
+    private static final InetAddress B = v4(10, 0, 0, 2);
+
+    private static final InetAddress C = v4(10, 0, 0, 3);
+
+    private final InMemoryDnsResolver dns = new InMemoryDnsResolver();
+
+    private CachingDnsResolver resolver;
+
+    @After
+    public void close() {
+        if (resolver != null) {
+            resolver.close();
+        }
+    }
+
+    @Test
+    public void servesCachedAddressesUntilTtlThenRefreshesInBackground() throws Exception {
+        dns.add(HOST, A);
+        resolver = new CachingDnsResolver(dns, 100, 100);
+        assertArrayEquals(new InetAddress[]{A}, resolver.resolve(HOST));
+
+        dns.add(HOST, B);
+        assertArrayEquals("cached within the ttl", new InetAddress[]{A}, resolver.resolve(HOST));
+
+        Thread.sleep(150);
+        // the lookup that finds the entry expired still gets the stale addresses
+        assertArrayEquals(new InetAddress[]{A}, resolver.resolve(HOST));
+        awaitAddress(B);
+    }
+
+    @Test
+    public void firstLookupFailureIsThrown() {
+        resolver = new CachingDnsResolver(dns, 100, 100);
+        try {
+            resolver.resolve(HOST);
+            fail("resolved an unknown host");
+        } catch (UnknownHostException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void failedRefreshKeepsStaleAddressesAndRetries() throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        DnsResolver flaky = new DnsResolver() {
+            @Override
+            public InetAddress[] resolve(String host) throws UnknownHostException {
+                switch (lookups.incrementAndGet()) {
+                    case 1:
+                        return new InetAddress[]{A};
+                    case 2:
+                        throw new UnknownHostException(host);
+                    case 3:
+                        throw new IllegalStateException("resolver bug");
+                    default:
+                        return new InetAddress[]{B};
+                }
+            }
+        };
+        resolver = new CachingDnsResolver(flaky, 50, 50);
+        resolver.resolve(HOST);
+        for (int failures = 2; failures <= 3; failures++) {
+            Thread.sleep(80);
+            assertArrayEquals(new InetAddress[]{A}, resolver.resolve(HOST));
+            // the next refresh only starts if the failed one cleared the refreshing flag
+            awaitLookups(lookups, failures);
+        }
+        awaitAddress(B);
+    }
+
+    @Test
+    public void rotatesThroughAllAddresses() throws Exception {
+        dns.add(HOST, A, B, C);
+        resolver = new CachingDnsResolver(dns, 60000, 60000);
+        Set<InetAddress> firsts = new HashSet<InetAddress>();
+        for (int i = 0; i < 3; i++) {
+            InetAddress[] addresses = resolver.resolve(HOST);
+            assertEquals(new HashSet<InetAddress>(Arrays.asList(A, B, C)),
+                    new HashSet<InetAddress>(Arrays.asList(addresses)));
+            firsts.add(addresses[0]);
+        }
+        assertEquals("each address leads once per round", 3, firsts.size());
+        assertArrayEquals(new InetAddress[]{A, B, C}, resolver.resolve(HOST));
+        assertArrayEquals(new InetAddress[]{B, C, A}, resolver.resolve(HOST));
+    }
+
+    @Test
+    public void failedAddressesGoLastUntilBackoffExpires() throws Exception {
+        dns.add(HOST, A, B, C);
+        resolver = new CachingDnsResolver(dns, 60000, 100);
+        resolver.markFailed(A);
+        for (int i = 0; i < 6; i++) {
+            InetAddress[] addresses = resolver.resolve(HOST);
+            assertEquals(A, addresses[2]);
+            assertTrue(addresses[0] != A && addresses[1] != A);
+        }
+        resolver.markFailed(B);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(C, resolver.resolve(HOST)[0]);
+        }
+
+        Thread.sleep(150);
+        Set<InetAddress> firsts = new HashSet<InetAddress>();
+        for (int i = 0; i < 3; i++) {
+            firsts.add(resolver.resolve(HOST)[0]);
+        }
+        assertEquals("back in rotation after the backoff", 3, firsts.size());
+    }
+
+    @Test
+    public void interleavesAddressFamilies() throws Exception {
+        InetAddress v6a = InetAddress.getByAddress(HOST, new byte[]{0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 0, 0, 1});
+        InetAddress v6b = InetAddress.getByAddress(HOST, new byte[]{0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 0, 0, 2});
+        dns.add(HOST, A, B, v6a, v6b);
+        resolver = new CachingDnsResolver(dns, 60000, 60000);
+        assertArrayEquals(new InetAddress[]{v6a, A, v6b, B}, resolver.resolve(HOST));
+    }
+
+    @Test
+    public void closedResolverServesStaleAddresses() throws Exception {
+        dns.add(HOST, A);
+        resolver = new CachingDnsResolver(dns, 50, 50);
+        resolver.resolve(HOST);
+        resolver.close();
+        dns.add(HOST, B);
+        Thread.sleep(80);
+        assertArrayEquals(new InetAddress[]{A}, resolver.resolve(HOST));
+        assertArrayEquals(new InetAddress[]{A}, resolver.resolve(HOST));
+    }
+
+    private void awaitAddress(InetAddress expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!expected.equals(resolver.resolve(HOST)[0])) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("not refreshed to " + expected);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitLookups(AtomicInteger lookups, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lookups.get() < expected) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("refresh was not attempted");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static InetAddress v4(int a, int b, int c, int d) {
+        try {
+            return InetAddress.getByAddress(HOST, new byte[]{(byte) a, (byte) b, (byte) c, (byte) d});
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.leespy.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 熔断器的状态转换, 包括半开状态的探测请求被取消
+ */
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 50;
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, OPEN_MILLIS);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void probeSuccessCloses() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.HALF_OPEN, breaker.getState());
+        assertFalse("only one probe at a time", breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void probeFailureReopens() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void stragglerSuccessWhileOpenDoesNotClose() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, OPEN_MILLIS);
+        // a slow request sent before the breaker opened
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        // only a half-open probe closes it
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void stragglerFailureWhileOpenDoesNotExtendIt() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(OPEN_MILLIS / 2);
+        breaker.onFailure();
+        Thread.sleep(OPEN_MILLIS / 2 + 10);
+        assertTrue("open time counts from the first trip", breaker.allowRequest());
+    }
+
+    @Test
+    public void abortedProbeReopensForAnotherProbe() throws InterruptedException {
+        CircuitBreaker breaker = tripped();
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+
+        breaker.onAbort();
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void abortWhileClosedIsNotAFailure() {
+        CircuitBreaker breaker = new CircuitBreaker(1, OPEN_MILLIS);
+        assertTrue(breaker.allowRequest());
+        breaker.onAbort();
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void disabledBreakerNeverOpens() {
+        CircuitBreaker breaker = new CircuitBreaker(0, OPEN_MILLIS);
+        for (int i = 0; i < 10; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    /**
+     * 截止时间或对冲请求取消了半开状态的探测请求后关闭响应, 熔断器不能停留在半开状态
+     */
+    @Test
+    public void closingAbortedProbeResponseReleasesProbe() throws Exception {
+        HttpConfig config = new HttpConfig();
+        config.setCircuitBreakerThreshold(1);
+        config.setCircuitBreakerOpenMillis(OPEN_MILLIS);
+        RouteState route = new RouteState(new HttpHost("localhost", 80), config);
+        CircuitBreaker breaker = route.getCircuitBreaker();
+        breaker.onFailure();
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+
+        HttpGet probe = new HttpGet("http://localhost/");
+        BasicHttpResponse raw = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        raw.setEntity(new StringEntity("ok"));
+        AgentResponse response = new AgentResponse(raw, "UTF-8", probe, route, null, System.nanoTime());
+        probe.abort();
+        response.close();
+
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        Thread.sleep(OPEN_MILLIS + 10);
+        assertTrue(breaker.allowRequest());
+    }
+
+    private static CircuitBreaker tripped() {
+        CircuitBreaker breaker = new CircuitBreaker(1, OPEN_MILLIS);
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.OPEN, breaker.getState());
+        return breaker;
+    }
+}
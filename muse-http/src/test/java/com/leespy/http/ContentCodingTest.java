@@ -0,0 +1,86 @@
+package com.leespy.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * deflate解压时识别zlib包装与裸deflate, 包括body一次只到达一个字节
+ */
+public class ContentCodingTest {
+
+    private static final String TEXT = "{\"name\":\"muse\",\"values\":[1,2,3,4,5,6,7,8,9,10]}";
+
+    @Test
+    public void inflatesZlibWrappedDeflate() throws IOException {
+        assertEquals(TEXT, inflate(new ByteArrayInputStream(deflate(false))));
+    }
+
+    @Test
+    public void inflatesRawDeflate() throws IOException {
+        assertEquals(TEXT, inflate(new ByteArrayInputStream(deflate(true))));
+    }
+
+    @Test
+    public void detectsZlibHeaderSplitAcrossReads() throws IOException {
+        assertEquals(TEXT, inflate(new OneByteInputStream(deflate(false))));
+        assertEquals(TEXT, inflate(new OneByteInputStream(deflate(true))));
+    }
+
+    @Test
+    public void roundTripsOwnCompression() throws IOException {
+        byte[] data = TEXT.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = ContentCoding.DEFLATE.compress(data, 0, data.length);
+        assertEquals(TEXT, inflate(new OneByteInputStream(compressed)));
+    }
+
+    private static String inflate(InputStream in) throws IOException {
+        InputStream inflated = ContentCoding.DEFLATE.decompress(in);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64];
+            int n;
+            while ((n = inflated.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            inflated.close();
+        }
+    }
+
+    private static byte[] deflate(boolean raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        deflater.setInput(TEXT.getBytes(StandardCharsets.UTF_8));
+        deflater.finish();
+        byte[] buffer = new byte[256];
+        int n = deflater.deflate(buffer);
+        deflater.end();
+        byte[] result = new byte[n];
+        System.arraycopy(buffer, 0, result, 0, n);
+        return result;
+    }
+
+    /**
+     * 每次最多返回一个字节, 模拟分块或慢速到达的body
+     */
+    private static class OneByteInputStream extends FilterInputStream {
+
+        private OneByteInputStream(byte[] data) {
+            super(new ByteArrayInputStream(data));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+}
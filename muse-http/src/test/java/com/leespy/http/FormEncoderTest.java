@@ -0,0 +1,122 @@
+package com.leespy.http;
+
+import com.leespy.io.PooledByteArrayOutputStream;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 编码结果与URLEncoder一致, 以及查询串拼接时'?'、'&amp;'与路径的处理
+ */
+public class FormEncoderTest {
+
+    private static final Charset GBK = Charset.forName("GBK");
+
+    private static final String[] SAMPLES = {
+            "", "abcXYZ019", "-_.*", " ", "a b+c", "k=v&x=y", "~!@#$%^()[]{}|\\:;\"'<>,/?`\t\r\n\u007f",
+            "é", "café au lait", "日本語", "Ω≈ç√", "😀", "a😀b🎉",
+            "\uD800", "\uDC00", "\uD800x", "x\uDC00", "\uDC00\uD800", "\uD83D😀", "日\uD800本"};
+
+    @Test
+    public void matchesUrlEncoder() throws UnsupportedEncodingException {
+        for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, GBK, StandardCharsets.ISO_8859_1)) {
+            for (String sample : SAMPLES) {
+                assertEquals(charset + " " + sample, URLEncoder.encode(sample, charset.name()),
+                        encode(sample, charset));
+            }
+        }
+    }
+
+    @Test
+    public void randomStringsMatchUrlEncoder() throws UnsupportedEncodingException {
+        Random random = new Random(42);
+        char[] pool = "aZ9-_.* +&=%?é日😀𐀀".toCharArray();
+        for (int n = 0; n < 2000; n++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = random.nextInt(4) == 0 ? (char) random.nextInt(0x10000) : pool[random.nextInt(pool.length)];
+            }
+            String s = new String(chars);
+            assertEquals(URLEncoder.encode(s, "UTF-8"), encode(s, StandardCharsets.UTF_8));
+            assertEquals(URLEncoder.encode(s, "GBK"), encode(s, GBK));
+        }
+    }
+
+    @Test
+    public void formRepeatsKeysForMultipleValues() throws UnsupportedEncodingException {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        params.put("q", "a b");
+        params.put("tag", Arrays.asList("x", "日"));
+        params.put("id", new int[]{1, 2});
+        params.put("empty", null);
+        params.put("名", "值");
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(64);
+        try {
+            FormEncoder.writeForm(params, GBK, out);
+            assertEquals("q=a+b&tag=x&tag=" + URLEncoder.encode("日", "GBK") + "&id=1&id=2&empty=&"
+                            + URLEncoder.encode("名", "GBK") + "=" + URLEncoder.encode("值", "GBK"),
+                    new String(out.toByteArray(), StandardCharsets.ISO_8859_1));
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void appendQuery() {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        params.put("k", "a b&c");
+        params.put("v", "é");
+        String query = "k=a%20b%26c&v=%C3%A9";
+        assertEquals("http://h/p?" + query, append("http://h/p", params));
+        assertEquals("http://h/p?a=1&" + query, append("http://h/p?a=1", params));
+        assertEquals("http://h/p?a=1&" + query, append("http://h/p?a=1&", params));
+        assertEquals("http://h/p?" + query, append("http://h/p?", params));
+        assertEquals("http://h/?" + query, append("http://h", params));
+        assertEquals("http://h:8080/?" + query, append("http://h:8080", params));
+        assertEquals("http://h/?" + query, append("http://h/", params));
+        assertEquals("/p?" + query, append("/p", params));
+    }
+
+    @Test
+    public void appendQueryKeepsUrlWithoutParams() {
+        String url = "http://h";
+        assertSame(url, FormEncoder.appendQuery(url, null, StandardCharsets.UTF_8));
+        assertSame(url, FormEncoder.appendQuery(url, Collections.<String, Object>emptyMap(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void needsEncoding() {
+        assertFalse(FormEncoder.needsEncoding("http://h:80/p/q.json?a=1&b=%20#f"));
+        assertTrue(FormEncoder.needsEncoding("http://h/a b"));
+        assertTrue(FormEncoder.needsEncoding("http://h/é"));
+        assertTrue(FormEncoder.needsEncoding("http://h/?a={1}"));
+        assertTrue(FormEncoder.needsEncoding("http://h/\t"));
+    }
+
+    private static String encode(String s, Charset charset) {
+        PooledByteArrayOutputStream out = new PooledByteArrayOutputStream(64);
+        try {
+            FormEncoder.write(s, charset, true, out);
+            return new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String append(String url, Map<String, ?> params) {
+        return FormEncoder.appendQuery(url, params, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,331 @@
+package com.leespy.http;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 按数量与等待时间刷出批次、队列满时拒绝、并发与聚合两种模式对本地服务的提交
+ */
+public class HttpBatcherTest {
+
+    private static final List<String> received = new CopyOnWriteArrayList<String>();
+
+    private static final AtomicInteger active = new AtomicInteger();
+
+    private static final AtomicInteger maxActive = new AtomicInteger();
+
+    private static ExecutorService handlers;
+
+    private static HttpServer server;
+
+    private static HttpAgent agent;
+
+    private static String url;
+
+    private static volatile CountDownLatch gate;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // answers "ok:" + body, slowly enough for concurrent requests to overlap
+        server.createContext("/each", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String body = receive(exchange);
+                int now = active.incrementAndGet();
+                int max;
+                while (now > (max = maxActive.get()) && !maxActive.compareAndSet(max, now)) {
+                    // retry
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    active.decrementAndGet();
+                }
+                respond(exchange, 200, "ok:" + body);
+            }
+        });
+        // echoes the aggregated json array back
+        server.createContext("/echo", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, receive(exchange));
+            }
+        });
+        server.createContext("/count", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, "got " + receive(exchange).split(",").length);
+            }
+        });
+        server.createContext("/fail", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receive(exchange);
+                respond(exchange, 500, "");
+            }
+        });
+        server.createContext("/gate", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String body = receive(exchange);
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                respond(exchange, 200, "ok:" + body);
+            }
+        });
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+        agent = HttpAgent.create();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        agent.shutdown();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Before
+    public void reset() {
+        received.clear();
+        maxActive.set(0);
+    }
+
+    @Test
+    public void flushesWhenBatchIsFull() throws Exception {
+        BatchConfig config = config(BatchConfig.BatchMode.AGGREGATE, 3, 60000);
+        HttpBatcher batcher = agent.batcher(url + "/echo", null, config);
+        try {
+            List<ListenableFuture<String>> futures = submit(batcher, "1", "2", "3", "4", "5", "6");
+            // the linger is a minute, only the size flushes
+            assertEquals(Arrays.asList("1", "2", "3", "4", "5", "6"), results(futures));
+            // the two batches are posted concurrently
+            assertEquals(new HashSet<String>(Arrays.asList("[1,2,3]", "[4,5,6]")), new HashSet<String>(received));
+            assertEquals(2, received.size());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void flushesAfterLinger() throws Exception {
+        BatchConfig config = config(BatchConfig.BatchMode.AGGREGATE, 100, 300);
+        HttpBatcher batcher = agent.batcher(url + "/echo", null, config);
+        try {
+            long start = System.nanoTime();
+            List<ListenableFuture<String>> futures = submit(batcher, "\"a\"", "\"b\"");
+            Thread.sleep(100);
+            assertTrue("flushed before the linger", received.isEmpty());
+            assertFalse(futures.get(0).isDone());
+
+            assertEquals(Arrays.asList("\"a\"", "\"b\""), results(futures));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+            assertEquals(Collections.singletonList("[\"a\",\"b\"]"), received);
+            assertEquals(0, batcher.pending());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void aggregateGivesEveryItemTheWholeResponseWhenItCanNotBeSplit() throws Exception {
+        BatchConfig config = config(BatchConfig.BatchMode.AGGREGATE, 2, 60000);
+        HttpBatcher batcher = agent.batcher(url + "/count", null, config);
+        try {
+            assertEquals(Arrays.asList("got 2", "got 2"), results(submit(batcher, "{}", "{}")));
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void aggregateFailureFailsTheWholeBatch() throws Exception {
+        BatchConfig config = config(BatchConfig.BatchMode.AGGREGATE, 2, 60000);
+        HttpBatcher batcher = agent.batcher(url + "/fail", null, config);
+        try {
+            for (ListenableFuture<String> future : submit(batcher, "1", "2")) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    fail("a failed batch succeeded");
+                } catch (ExecutionException expected) {
+                    assertTrue(String.valueOf(expected.getCause()), expected.getCause() instanceof IOException);
+                }
+            }
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void concurrentPostsEachItemWithinInFlightLimit() throws Exception {
+        BatchConfig config = config(BatchConfig.BatchMode.CONCURRENT, 4, 5);
+        config.setMaxInFlight(2);
+        HttpBatcher batcher = agent.batcher(url + "/each", null, config);
+        try {
+            List<String> contents = new ArrayList<String>();
+            List<String> expected = new ArrayList<String>();
+            for (int i = 0; i < 10; i++) {
+                contents.add("item-" + i);
+                expected.add("ok:item-" + i);
+            }
+            List<ListenableFuture<String>> futures = submit(batcher, contents.toArray(new String[contents.size()]));
+            assertEquals(expected, results(futures));
+            assertEquals(new HashSet<String>(contents), new HashSet<String>(received));
+            assertEquals(contents.size(), received.size());
+            assertTrue("in flight: " + maxActive.get(), maxActive.get() <= 2);
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void fullQueueRejectsAtOnce() throws Exception {
+        gate = new CountDownLatch(1);
+        BatchConfig config = config(BatchConfig.BatchMode.CONCURRENT, 1, 0);
+        config.setMaxInFlight(1);
+        config.setQueueCapacity(2);
+        HttpBatcher batcher = agent.batcher(url + "/gate", null, config);
+        try {
+            List<ListenableFuture<String>> accepted = new ArrayList<ListenableFuture<String>>();
+            // the first is held by the server, the second by the flusher waiting for a permit
+            accepted.add(batcher.submit("1"));
+            awaitReceived(1);
+            accepted.add(batcher.submit("2"));
+            awaitPending(batcher, 0);
+            accepted.add(batcher.submit("3"));
+            accepted.add(batcher.submit("4"));
+            assertEquals(2, batcher.pending());
+
+            ListenableFuture<String> rejected = batcher.submit("5");
+            assertTrue(rejected.isDone());
+            assertRejected(rejected);
+
+            gate.countDown();
+            assertEquals(Arrays.asList("ok:1", "ok:2", "ok:3", "ok:4"), results(accepted));
+        } finally {
+            gate.countDown();
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void closeFlushesQueuedItemsAndRejectsNewOnes() throws Exception {
+        BatchConfig config = config(BatchConfig.BatchMode.AGGREGATE, 100, 200);
+        HttpBatcher batcher = agent.batcher(url + "/echo", null, config);
+        List<ListenableFuture<String>> futures = submit(batcher, "1", "2");
+        batcher.close();
+        for (ListenableFuture<String> future : futures) {
+            assertTrue("close returned before the batch was sent", future.isDone());
+        }
+        assertEquals(Arrays.asList("1", "2"), results(futures));
+        assertRejected(batcher.submit("3"));
+    }
+
+    private static BatchConfig config(BatchConfig.BatchMode mode, int maxBatchSize, long lingerMillis) {
+        BatchConfig config = new BatchConfig();
+        config.setMode(mode);
+        config.setMaxBatchSize(maxBatchSize);
+        config.setLingerMillis(lingerMillis);
+        return config;
+    }
+
+    private static List<ListenableFuture<String>> submit(HttpBatcher batcher, String... contents) {
+        List<ListenableFuture<String>> futures = new ArrayList<ListenableFuture<String>>();
+        for (String content : contents) {
+            futures.add(batcher.submit(content));
+        }
+        return futures;
+    }
+
+    private static List<String> results(List<ListenableFuture<String>> futures) throws Exception {
+        List<String> results = new ArrayList<String>();
+        for (ListenableFuture<String> future : futures) {
+            results.add(future.get(5, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private static void assertRejected(ListenableFuture<String> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("accepted");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    private static void awaitReceived(int n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < n) {
+            assertTrue("received " + received.size() + " of " + n, System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitPending(HttpBatcher batcher, int n) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (batcher.pending() != n) {
+            assertTrue("pending " + batcher.pending(), System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static String receive(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        String body = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        received.add(body);
+        return body;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.leespy.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Http的各个方法对本地服务的请求, 服务端返回"方法 body"
+ */
+public class HttpTest {
+
+    private static HttpServer server;
+
+    private static String url;
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = (exchange.getRequestMethod() + " " + read(exchange.getRequestBody()))
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/echo";
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void requestSendsEveryMethod() {
+        assertEquals("GET ", Http.get(url).request());
+        assertEquals("POST a", Http.post(url).body("a").request());
+        assertEquals("PUT b", Http.put(url).body("b").request());
+        assertEquals("DELETE ", Http.delete(url).request());
+    }
+
+    @Test
+    public void responseSendsEveryMethod() throws IOException {
+        assertResponse("GET ", Http.get(url));
+        assertResponse("POST a", Http.post(url).body("a"));
+        assertResponse("PUT b", Http.put(url).body("b"));
+        assertResponse("DELETE ", Http.delete(url));
+    }
+
+    private static void assertResponse(String expected, Http http) throws IOException {
+        Response response = http.response();
+        try {
+            assertEquals(200, response.status());
+            assertEquals(expected, response.string());
+        } finally {
+            response.close();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+package com.leespy.collect;
+
+import java.util.Arrays;
+
+/**
+ * 可增长的double列表, 元素直接存放在double[]中, 不装箱, 非线程安全
+ */
+public class DoubleList {
+
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private static final double[] EMPTY = new double[0];
+
+    private double[] elements;
+
+    private int size;
+
+    public DoubleList() {
+        this.elements = EMPTY;
+    }
+
+    public DoubleList(int capacity) {
+        this.elements = capacity == 0 ? EMPTY : new double[capacity];
+    }
+
+    /**
+     * 复制数组中的元素构造列表
+     */
+    public static DoubleList of(double... values) {
+        DoubleList list = new DoubleList(values.length);
+        System.arraycopy(values, 0, list.elements, 0, values.length);
+        list.size = values.length;
+        return list;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public double get(int index) {
+        checkIndex(index);
+        return elements[index];
+    }
+
+    /**
+     * @return 原来的值
+     */
+    public double set(int index, double value) {
+        checkIndex(index);
+        double old = elements[index];
+        elements[index] = value;
+        return old;
+    }
+
+    public void add(double value) {
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * 删除下标处的元素, 之后的元素前移
+     *
+     * @return 被删除的值
+     */
+    public double removeAt(int index) {
+        checkIndex(index);
+        double old = elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        return old;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 预留容量, 已知元素个数时避免多次扩容
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            grow(capacity);
+        }
+    }
+
+    /**
+     * 复制为数组
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(Math.max(minCapacity, DEFAULT_CAPACITY), elements.length + (elements.length >> 1));
+        elements = Arrays.copyOf(elements, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DoubleList)) {
+            return false;
+        }
+        DoubleList other = (DoubleList) o;
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (Double.doubleToLongBits(elements[i]) != Double.doubleToLongBits(other.elements[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            long bits = Double.doubleToLongBits(elements[i]);
+            hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 4 + 2).append('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
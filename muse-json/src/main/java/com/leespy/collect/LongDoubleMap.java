@@ -0,0 +1,256 @@
+package com.leespy.collect;
+
+import java.util.Arrays;
+
+/**
+ * long到double的哈希表, 开放寻址线性探测, 键值分别存放在long[]与double[]中, 不装箱, 非线程安全.
+ * 遍历使用cursor():
+ * <pre>
+ * LongDoubleMap.Cursor cursor = map.cursor();
+ * while (cursor.next()) {
+ *     cursor.key(); cursor.value();
+ * }
+ * </pre>
+ */
+public class LongDoubleMap {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * 空槽位的键, 键为0的映射单独存放
+     */
+    private static final long FREE = 0;
+
+    private long[] keys;
+
+    private double[] values;
+
+    private int size;
+
+    private int threshold;
+
+    private boolean hasZeroKey;
+
+    private double zeroValue;
+
+    public LongDoubleMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize 预计的映射数, 达到之前不扩容
+     */
+    public LongDoubleMap(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE) {
+            return hasZeroKey;
+        }
+        return keys[slot(key)] == key;
+    }
+
+    /**
+     * @return 不存在时返回defaultValue
+     */
+    public double get(long key, double defaultValue) {
+        if (key == FREE) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : defaultValue;
+    }
+
+    /**
+     * @return 原来的值, 不存在时返回defaultValue
+     */
+    public double put(long key, double value, double defaultValue) {
+        if (key == FREE) {
+            double old = hasZeroKey ? zeroValue : defaultValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int slot = slot(key);
+        if (keys[slot] == key) {
+            double old = values[slot];
+            values[slot] = value;
+            return old;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            rehash(keys.length << 1);
+        }
+        return defaultValue;
+    }
+
+    public void put(long key, double value) {
+        put(key, value, 0);
+    }
+
+    /**
+     * @return 被删除的值, 不存在时返回defaultValue
+     */
+    public double remove(long key, double defaultValue) {
+        if (key == FREE) {
+            if (!hasZeroKey) {
+                return defaultValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+        int slot = slot(key);
+        if (keys[slot] != key) {
+            return defaultValue;
+        }
+        double old = values[slot];
+        shiftBack(slot);
+        size--;
+        return old;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        hasZeroKey = false;
+        size = 0;
+    }
+
+    /**
+     * 遍历用的游标, 遍历期间不能修改本表
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * 键所在或应插入的槽位
+     */
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * 删除后把探测链上后续的键前移, 保持线性探测不断链
+     */
+    private void shiftBack(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = mix(keys[next]) & mask;
+            // move the key if its home slot is not within (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new double[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSize(int expectedSize) {
+        int capacity = 4;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 8 + 2).append('{');
+        Cursor cursor = cursor();
+        boolean first = true;
+        while (cursor.next()) {
+            if (!first) {
+                sb.append(", ");
+            }
+            sb.append(cursor.key()).append('=').append(cursor.value());
+            first = false;
+        }
+        return sb.append('}').toString();
+    }
+
+    public class Cursor {
+
+        /**
+         * -1表示键0, 之后依次为表中的槽位
+         */
+        private int slot = -2;
+
+        private Cursor() {
+        }
+
+        /**
+         * 移动到下一个映射
+         *
+         * @return 没有更多映射时返回false
+         */
+        public boolean next() {
+            if (slot == -2) {
+                slot = -1;
+                if (hasZeroKey) {
+                    return true;
+                }
+            }
+            while (++slot < keys.length) {
+                if (keys[slot] != FREE) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public long key() {
+            return slot == -1 ? FREE : keys[slot];
+        }
+
+        public double value() {
+            return slot == -1 ? zeroValue : values[slot];
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.module.afterburner.deser.DeserializerModifier;
+import com.fasterxml.jackson.module.afterburner.ser.SerializerModifier;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 为登记的DTO类型在运行时生成属性访问的字节码, 替代反射调用getter/setter与字段读写,
+ * int/long/String属性不经过装箱; 属性名沿用jackson预编码的SerializedString直接写出字节.
+ * 未登记的类型仍走jackson默认的BeanSerializer/BeanDeserializer
+ */
+class AcceleratorModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 为空时加速所有bean
+     */
+    private final Set<Class<?>> types;
+
+    AcceleratorModule(Set<Class<?>> types) {
+        super("muse-accelerator");
+        this.types = types;
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        // generated classes are defined in the dto's own class loader, so package-private accessors work
+        context.addBeanSerializerModifier(new SelectiveSerializerModifier(types));
+        context.addBeanDeserializerModifier(new SelectiveDeserializerModifier(types));
+    }
+
+    static boolean accept(Set<Class<?>> types, Class<?> type) {
+        return types.isEmpty() || types.contains(type);
+    }
+
+    private static class SelectiveSerializerModifier extends SerializerModifier {
+
+        private final Set<Class<?>> types;
+
+        private SelectiveSerializerModifier(Set<Class<?>> types) {
+            super(null);
+            this.types = types;
+        }
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                         List<BeanPropertyWriter> beanProperties) {
+            if (!accept(types, beanDesc.getBeanClass())) {
+                return beanProperties;
+            }
+            return super.changeProperties(config, beanDesc, beanProperties);
+        }
+    }
+
+    private static class SelectiveDeserializerModifier extends DeserializerModifier {
+
+        private final Set<Class<?>> types;
+
+        private SelectiveDeserializerModifier(Set<Class<?>> types) {
+            super(null, true);
+            this.types = types;
+        }
+
+        @Override
+        public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BeanDescription beanDesc,
+                                                     BeanDeserializerBuilder builder) {
+            if (!accept(types, beanDesc.getBeanClass())) {
+                return builder;
+            }
+            return super.updateBuilder(config, beanDesc, builder);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+
+/**
+ * 经StringCache读取字符串值, 非字符串token按jackson默认方式转换
+ */
+class InternedStringDeserializer extends StdScalarDeserializer<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient StringCache cache;
+
+    /**
+     * @JsonIntern使用, 共享StringCache.DEFAULT
+     */
+    InternedStringDeserializer() {
+        this(StringCache.DEFAULT);
+    }
+
+    InternedStringDeserializer(StringCache cache) {
+        super(String.class);
+        this.cache = cache;
+    }
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+            return cache.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        return StringDeserializer.instance.deserialize(parser, context);
+    }
+}
@@ -0,0 +1,12 @@
+package com.leespy.json;
+
+/**
+ * 接收JsonFeeder解析出的完整值, 在调用feed的线程上回调
+ */
+public interface JsonFeedHandler<T> {
+
+    /**
+     * 处理一个完整的值, 抛出异常时feed失败
+     */
+    void onValue(T value) throws Exception;
+}
@@ -0,0 +1,310 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 推送式json解析: 字节分块到达时调用feed, 每当一个值完整就绑定为对象交给handler, 从不阻塞.
+ * 只缓存当前未完成的值的字节, 已完成的值随即丢弃, 因此连续的多个值(如NDJSON)
+ * 或顶层数组的元素(arrayFeeder)不需要整个报文在内存中; 单个值仍需完整缓存.
+ * 非线程安全, 同一时刻只能有一个线程调用feed
+ */
+public class JsonFeeder<T> {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private final ObjectMapper mapper;
+
+    private final JavaType type;
+
+    private final JsonFeedHandler<? super T> handler;
+
+    /**
+     * 是否只输出顶层数组的元素
+     */
+    private final boolean unwrapArray;
+
+    /**
+     * 值所在的嵌套深度, 顶层数组模式下为1
+     */
+    private final int valueDepth;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    /**
+     * buffer中有效字节的末尾
+     */
+    private int limit;
+
+    /**
+     * 下一个待扫描的字节
+     */
+    private int position;
+
+    /**
+     * 当前值的起始位置, -1表示不在值中
+     */
+    private int start = -1;
+
+    private int depth;
+
+    private boolean inString;
+
+    private boolean escaped;
+
+    /**
+     * 是否在数字、true/false/null等标量中, 遇到分隔符才能确定其结束
+     */
+    private boolean inScalar;
+
+    private boolean arrayOpened;
+
+    private boolean arrayClosed;
+
+    /**
+     * 顶层数组模式下刚结束一个元素, 之后只能是','或']'
+     */
+    private boolean afterElement;
+
+    /**
+     * 顶层数组模式下刚读到',', 之后必须是一个元素
+     */
+    private boolean afterComma;
+
+    /**
+     * 已丢弃的字节数, 用于报告错误位置
+     */
+    private long discarded;
+
+    private long count;
+
+    private boolean ended;
+
+    JsonFeeder(Jsoner jsoner, JavaType type, boolean unwrapArray, JsonFeedHandler<? super T> handler) {
+        this.mapper = jsoner.mapper();
+        this.type = type;
+        this.unwrapArray = unwrapArray;
+        this.valueDepth = unwrapArray ? 1 : 0;
+        this.handler = handler;
+    }
+
+    /**
+     * 送入一块字节, 读完chunk中剩余的全部字节, 期间完成的值依次交给handler
+     *
+     * @throws IOException json格式错误, 绑定失败或handler抛出异常
+     */
+    public void feed(ByteBuffer chunk) throws IOException {
+        int length = chunk.remaining();
+        ensureCapacity(length);
+        chunk.get(buffer, limit, length);
+        limit += length;
+        scan();
+    }
+
+    /**
+     * 送入一块字节
+     *
+     * @see #feed(java.nio.ByteBuffer)
+     */
+    public void feed(byte[] chunk, int offset, int length) throws IOException {
+        ensureCapacity(length);
+        System.arraycopy(chunk, offset, buffer, limit, length);
+        limit += length;
+        scan();
+    }
+
+    /**
+     * 输入结束, 输出末尾的标量值并检查是否还有未完成的值
+     *
+     * @throws IOException 输入在值的中间结束
+     */
+    public void end() throws IOException {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        if (inScalar) {
+            inScalar = false;
+            emit(limit);
+        }
+        if (start >= 0 || depth != 0 || (unwrapArray && arrayOpened && !arrayClosed)) {
+            throw error("unexpected end of json input");
+        }
+    }
+
+    /**
+     * 已输出的值的个数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 当前缓存的未完成值的字节数
+     */
+    public int buffered() {
+        return limit;
+    }
+
+    private void scan() throws IOException {
+        if (ended) {
+            throw new IllegalStateException("json feeder already ended");
+        }
+        byte[] b = buffer;
+        while (position < limit) {
+            byte c = b[position];
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                    if (depth == valueDepth) {
+                        emit(position + 1);
+                    }
+                }
+                position++;
+                continue;
+            }
+            if (inScalar) {
+                if (!isDelimiter(c)) {
+                    position++;
+                    continue;
+                }
+                // the delimiter is handled below
+                inScalar = false;
+                emit(position);
+            }
+            switch (c) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                    break;
+                case '"':
+                    beginValue();
+                    inString = true;
+                    break;
+                case '{':
+                case '[':
+                    if (unwrapArray && !arrayOpened) {
+                        if (c != '[' || depth != 0) {
+                            throw error("expected a top-level json array");
+                        }
+                        arrayOpened = true;
+                        depth = 1;
+                        break;
+                    }
+                    beginValue();
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    if (--depth < 0 || arrayClosed) {
+                        throw error("unexpected '" + (char) c + "'");
+                    }
+                    if (unwrapArray && depth == 0) {
+                        if (c != ']' || start >= 0) {
+                            throw error("unexpected '" + (char) c + "'");
+                        }
+                        if (afterComma) {
+                            throw error("trailing ','");
+                        }
+                        arrayClosed = true;
+                    } else if (depth == valueDepth) {
+                        emit(position + 1);
+                    }
+                    break;
+                case ',':
+                    if (depth < valueDepth || (depth == valueDepth && !unwrapArray)) {
+                        throw error("unexpected ','");
+                    }
+                    if (depth == valueDepth) {
+                        // a leading or doubled comma
+                        if (!afterElement) {
+                            throw error("unexpected ','");
+                        }
+                        afterElement = false;
+                        afterComma = true;
+                    }
+                    break;
+                default:
+                    if (depth <= valueDepth) {
+                        beginValue();
+                        inScalar = true;
+                    }
+                    break;
+            }
+            position++;
+        }
+        compact();
+    }
+
+    private void beginValue() throws IOException {
+        if (depth > valueDepth) {
+            return;
+        }
+        // only a top-level array has values below valueDepth: before it is opened or after it is closed
+        if (depth < valueDepth || arrayClosed || (unwrapArray && !arrayOpened)) {
+            throw error("unexpected value outside the top-level json array");
+        }
+        if (afterElement) {
+            throw error("expected ',' between array elements");
+        }
+        afterComma = false;
+        start = position;
+    }
+
+    private void emit(int end) throws IOException {
+        int from = start;
+        start = -1;
+        afterElement = unwrapArray;
+        T value = mapper.readValue(buffer, from, end - from, type);
+        count++;
+        try {
+            handler.onValue(value);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("json feed handler failed", e);
+        }
+    }
+
+    /**
+     * 丢弃已完成的值, 只保留当前未完成值的字节
+     */
+    private void compact() {
+        int keep = start >= 0 ? start : limit;
+        if (keep == 0) {
+            return;
+        }
+        System.arraycopy(buffer, keep, buffer, 0, limit - keep);
+        discarded += keep;
+        limit -= keep;
+        position -= keep;
+        if (start >= 0) {
+            start = 0;
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (limit + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, limit + length));
+        }
+    }
+
+    private static boolean isDelimiter(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' || c == ']' || c == '}'
+                || c == '[' || c == '{' || c == '"';
+    }
+
+    private JsonParseException error(String message) {
+        return new JsonParseException(message + " at byte " + (discarded + position), null);
+    }
+}
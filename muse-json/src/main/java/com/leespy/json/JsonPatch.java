@@ -0,0 +1,119 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 解析后的JSON Patch(RFC 6902), 不可变, 可重复应用到多个对象.
+ * 由Jsoner.readPatch读取, Jsoner.applyPatch应用
+ */
+public final class JsonPatch {
+
+    private final List<Operation> operations;
+
+    private JsonPatch(List<Operation> operations) {
+        this.operations = Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * 从json数组解析
+     *
+     * @throws JsonPatchException 不是合法的JSON Patch
+     */
+    static JsonPatch parse(JsonNode patch) throws JsonPatchException {
+        if (patch == null || !patch.isArray()) {
+            throw new JsonPatchException("json patch must be an array");
+        }
+        List<Operation> operations = new ArrayList<Operation>(patch.size());
+        for (JsonNode node : patch) {
+            if (!node.isObject()) {
+                throw new JsonPatchException("json patch operation must be an object: " + node);
+            }
+            Op op;
+            try {
+                op = Op.valueOf(text(node, "op").toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new JsonPatchException("unknown json patch operation: " + node);
+            }
+            String path = text(node, "path");
+            String from = op == Op.MOVE || op == Op.COPY ? text(node, "from") : null;
+            JsonNode value = null;
+            if (op == Op.ADD || op == Op.REPLACE || op == Op.TEST) {
+                value = node.get("value");
+                if (value == null) {
+                    throw new JsonPatchException("missing value in json patch operation: " + node);
+                }
+            }
+            try {
+                operations.add(new Operation(op, path, JsonProjection.parse(path),
+                        from, from == null ? null : JsonProjection.parse(from), value));
+            } catch (IllegalArgumentException e) {
+                throw new JsonPatchException(e.getMessage());
+            }
+        }
+        return new JsonPatch(operations);
+    }
+
+    private static String text(JsonNode node, String field) throws JsonPatchException {
+        JsonNode value = node.get(field);
+        if (value == null || !value.isTextual()) {
+            throw new JsonPatchException("missing " + field + " in json patch operation: " + node);
+        }
+        return value.textValue();
+    }
+
+    List<Operation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * 操作数
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    @Override
+    public String toString() {
+        return operations.toString();
+    }
+
+    enum Op {
+        ADD, REMOVE, REPLACE, MOVE, COPY, TEST
+    }
+
+    static final class Operation {
+
+        final Op op;
+
+        final String path;
+
+        final List<String> tokens;
+
+        final String from;
+
+        final List<String> fromTokens;
+
+        final JsonNode value;
+
+        private Operation(Op op, String path, List<String> tokens, String from, List<String> fromTokens,
+                          JsonNode value) {
+            this.op = op;
+            this.path = path;
+            this.tokens = tokens;
+            this.from = from;
+            this.fromTokens = fromTokens;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return op.name().toLowerCase(Locale.ENGLISH) + " " + (from != null ? from + " -> " : "") + path
+                    + (value != null ? " " + value : "");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.leespy.json;
+
+import java.io.IOException;
+
+/**
+ * patch格式错误, 路径不存在, 类型不匹配或test操作不成立
+ */
+public class JsonPatchException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public JsonPatchException(String message) {
+        super(message);
+    }
+
+    public JsonPatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,669 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 把JSON Merge Patch(RFC 7396)与JSON Patch(RFC 6902)原地应用到JsonNode、Map/List或POJO上.
+ * 只沿patch中的路径读写, 被修改的值按所在属性或集合元素的声明类型转换, 不重新序列化整个对象.
+ * 每次修改都记录逆操作, 失败时按相反顺序撤销, 整个patch要么全部生效要么不生效
+ */
+final class JsonPatcher {
+
+    private final ObjectMapper mapper;
+
+    private final JavaType objectType;
+
+    private final JavaType nodeType;
+
+    private final ConcurrentMap<Class<?>, Map<String, Property>> properties =
+            new ConcurrentHashMap<Class<?>, Map<String, Property>>();
+
+    JsonPatcher(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.objectType = mapper.constructType(Object.class);
+        this.nodeType = mapper.constructType(JsonNode.class);
+    }
+
+    /**
+     * 应用JSON Merge Patch: 对象逐属性合并, null删除属性, 其他值整体替换
+     *
+     * @param type 根对象的类型, 为null时按target.getClass(), 泛型容器需指定以保留元素类型
+     * @return 合并后的对象, patch不是对象时为替换后的新值
+     */
+    Object merge(Object target, JavaType type, JsonNode patch) throws JsonPatchException {
+        List<Runnable> journal = new ArrayList<Runnable>();
+        try {
+            return merge(target, typeOf(target, type), patch, journal);
+        } catch (JsonPatchException e) {
+            rollback(journal);
+            throw e;
+        } catch (RuntimeException e) {
+            rollback(journal);
+            throw e;
+        }
+    }
+
+    private Object merge(Object target, JavaType type, JsonNode patch, List<Runnable> journal)
+            throws JsonPatchException {
+        if (!patch.isObject()) {
+            return convert(patch, type);
+        }
+        if (!isObject(target)) {
+            // a non-object target is replaced by an empty object of the declared type
+            target = convert(mapper.createObjectNode(), type);
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            if (isBean(target) && !properties(target.getClass()).containsKey(name)) {
+                // unknown properties are ignored, as when deserializing
+                continue;
+            }
+            if (value.isNull()) {
+                if (has(target, type, name)) {
+                    remove(target, type, name, name, journal);
+                }
+            } else if (value.isObject()) {
+                Object current = has(target, type, name) ? get(target, type, name, name) : null;
+                Object merged = merge(current, childType(target, type, name), value, journal);
+                if (merged != current) {
+                    set(target, type, name, merged, false, name, journal);
+                }
+            } else {
+                set(target, type, name, convert(value, childType(target, type, name)), false, name, journal);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * 依次应用JSON Patch的各个操作, 某个操作失败时撤销之前的操作
+     *
+     * @param type 根对象的类型, 为null时按target.getClass(), 泛型容器需指定以保留元素类型
+     * @return 应用后的对象, 路径为""的操作会替换整个对象
+     */
+    Object apply(Object target, JavaType type, JsonPatch patch) throws JsonPatchException {
+        type = typeOf(target, type);
+        List<Runnable> journal = new ArrayList<Runnable>();
+        try {
+            for (JsonPatch.Operation operation : patch.getOperations()) {
+                target = apply(target, type, operation, journal);
+            }
+            return target;
+        } catch (JsonPatchException e) {
+            rollback(journal);
+            throw e;
+        } catch (RuntimeException e) {
+            rollback(journal);
+            throw e;
+        }
+    }
+
+    private Object apply(Object root, JavaType type, JsonPatch.Operation operation, List<Runnable> journal)
+            throws JsonPatchException {
+        switch (operation.op) {
+            case ADD:
+                return add(root, type, operation.tokens, operation.value, operation.path, true, journal);
+            case REPLACE:
+                return add(root, type, operation.tokens, operation.value, operation.path, false, journal);
+            case REMOVE:
+                return remove(root, type, operation.tokens, operation.path, journal);
+            case COPY:
+                JsonNode copied = tree(resolve(root, type, operation.fromTokens, operation.from).value);
+                return add(root, type, operation.tokens, copied, operation.path, true, journal);
+            case MOVE:
+                if (operation.path.equals(operation.from)) {
+                    return root;
+                }
+                if (operation.path.startsWith(operation.from + "/")) {
+                    throw new JsonPatchException("cannot move a value into itself: " + operation);
+                }
+                JsonNode moved = tree(resolve(root, type, operation.fromTokens, operation.from).value);
+                root = remove(root, type, operation.fromTokens, operation.from, journal);
+                return add(root, type, operation.tokens, moved, operation.path, true, journal);
+            case TEST:
+                JsonNode actual = tree(resolve(root, type, operation.tokens, operation.path).value);
+                if (!equal(actual, operation.value)) {
+                    throw new JsonPatchException("test failed, actual value " + actual + ": " + operation);
+                }
+                return root;
+            default:
+                throw new JsonPatchException("unsupported operation: " + operation);
+        }
+    }
+
+    private Object add(Object root, JavaType type, List<String> tokens, JsonNode value, String path, boolean insert,
+                       List<Runnable> journal) throws JsonPatchException {
+        if (tokens.isEmpty()) {
+            return convert(value, type);
+        }
+        Ref parent = resolve(root, type, tokens.subList(0, tokens.size() - 1), path);
+        String last = tokens.get(tokens.size() - 1);
+        if (!insert && !has(parent.value, parent.type, last)) {
+            throw new JsonPatchException("path not found: " + path);
+        }
+        set(parent.value, parent.type, last, convert(value, childType(parent.value, parent.type, last)), insert, path,
+                journal);
+        return root;
+    }
+
+    private Object remove(Object root, JavaType type, List<String> tokens, String path, List<Runnable> journal)
+            throws JsonPatchException {
+        if (tokens.isEmpty()) {
+            throw new JsonPatchException("cannot remove the whole document");
+        }
+        Ref parent = resolve(root, type, tokens.subList(0, tokens.size() - 1), path);
+        remove(parent.value, parent.type, tokens.get(tokens.size() - 1), path, journal);
+        return root;
+    }
+
+    private Ref resolve(Object root, JavaType type, List<String> tokens, String path) throws JsonPatchException {
+        Object value = root;
+        for (String token : tokens) {
+            JavaType child = childType(value, type, token);
+            value = get(value, type, token, path);
+            type = child;
+        }
+        return new Ref(value, type);
+    }
+
+    private Object get(Object container, JavaType type, String token, String path) throws JsonPatchException {
+        if (container instanceof ObjectNode) {
+            JsonNode value = ((ObjectNode) container).get(token);
+            if (value == null) {
+                throw new JsonPatchException("path not found: " + path);
+            }
+            return value;
+        }
+        if (container instanceof ArrayNode) {
+            ArrayNode array = (ArrayNode) container;
+            return array.get(index(token, array.size(), false, path));
+        }
+        if (container instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) container;
+            Object key = key(type, token);
+            if (!map.containsKey(key)) {
+                throw new JsonPatchException("path not found: " + path);
+            }
+            return map.get(key);
+        }
+        if (container instanceof List) {
+            List<?> list = (List<?>) container;
+            return list.get(index(token, list.size(), false, path));
+        }
+        if (isBean(container)) {
+            return property(container, token, path).get(container, path);
+        }
+        throw new JsonPatchException("path not found: " + path);
+    }
+
+    private boolean has(Object container, JavaType type, String token) throws JsonPatchException {
+        if (container instanceof ObjectNode) {
+            return ((ObjectNode) container).has(token);
+        }
+        if (container instanceof Map) {
+            return ((Map<?, ?>) container).containsKey(key(type, token));
+        }
+        if (container instanceof ArrayNode || container instanceof List) {
+            int size = container instanceof List ? ((List<?>) container).size() : ((ArrayNode) container).size();
+            return isIndex(token) && Integer.parseInt(token) < size;
+        }
+        return isBean(container) && properties(container.getClass()).containsKey(token);
+    }
+
+    /**
+     * 写入并在journal中记录逆操作
+     */
+    @SuppressWarnings("unchecked")
+    private void set(Object container, JavaType type, final String token, Object value, boolean insert, String path,
+                     List<Runnable> journal) throws JsonPatchException {
+        try {
+            if (container instanceof ObjectNode) {
+                final ObjectNode object = (ObjectNode) container;
+                final JsonNode previous = object.replace(token, (JsonNode) value);
+                journal.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (previous == null) {
+                            object.remove(token);
+                        } else {
+                            object.replace(token, previous);
+                        }
+                    }
+                });
+            } else if (container instanceof ArrayNode) {
+                final ArrayNode array = (ArrayNode) container;
+                final int index = index(token, array.size(), insert, path);
+                if (insert) {
+                    array.insert(index, (JsonNode) value);
+                    journal.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            array.remove(index);
+                        }
+                    });
+                } else {
+                    final JsonNode previous = array.set(index, (JsonNode) value);
+                    journal.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            array.set(index, previous);
+                        }
+                    });
+                }
+            } else if (container instanceof Map) {
+                final Map<Object, Object> map = (Map<Object, Object>) container;
+                final Object key = key(type, token);
+                final boolean existed = map.containsKey(key);
+                final Object previous = map.put(key, value);
+                journal.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (existed) {
+                            map.put(key, previous);
+                        } else {
+                            map.remove(key);
+                        }
+                    }
+                });
+            } else if (container instanceof List) {
+                final List<Object> list = (List<Object>) container;
+                final int index = index(token, list.size(), insert, path);
+                if (insert) {
+                    list.add(index, value);
+                    journal.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            list.remove(index);
+                        }
+                    });
+                } else {
+                    final Object previous = list.set(index, value);
+                    journal.add(new Runnable() {
+                        @Override
+                        public void run() {
+                            list.set(index, previous);
+                        }
+                    });
+                }
+            } else if (isBean(container)) {
+                property(container, token, path).set(container, value, path, journal);
+            } else {
+                throw new JsonPatchException("path not found: " + path);
+            }
+        } catch (UnsupportedOperationException e) {
+            throw new JsonPatchException("unmodifiable container at " + path, e);
+        }
+    }
+
+    /**
+     * 删除并在journal中记录逆操作, 撤销后对象与有序Map中的属性顺序不变
+     */
+    @SuppressWarnings("unchecked")
+    private void remove(Object container, JavaType type, final String token, String path, List<Runnable> journal)
+            throws JsonPatchException {
+        try {
+            if (container instanceof ObjectNode) {
+                final ObjectNode object = (ObjectNode) container;
+                final List<String> following = following(object.fieldNames(), token);
+                final JsonNode previous = object.remove(token);
+                if (previous == null) {
+                    throw new JsonPatchException("path not found: " + path);
+                }
+                journal.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        object.set(token, previous);
+                        for (String name : following) {
+                            object.set(name, object.remove(name));
+                        }
+                    }
+                });
+            } else if (container instanceof ArrayNode) {
+                final ArrayNode array = (ArrayNode) container;
+                final int index = index(token, array.size(), false, path);
+                final JsonNode previous = array.remove(index);
+                journal.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        array.insert(index, previous);
+                    }
+                });
+            } else if (container instanceof Map) {
+                final Map<Object, Object> map = (Map<Object, Object>) container;
+                final Object key = key(type, token);
+                if (!map.containsKey(key)) {
+                    throw new JsonPatchException("path not found: " + path);
+                }
+                final List<Object> following = map instanceof LinkedHashMap
+                        ? following(map.keySet().iterator(), key) : null;
+                final Object previous = map.remove(key);
+                journal.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        map.put(key, previous);
+                        if (following != null) {
+                            for (Object name : following) {
+                                map.put(name, map.remove(name));
+                            }
+                        }
+                    }
+                });
+            } else if (container instanceof List) {
+                final List<Object> list = (List<Object>) container;
+                final int index = index(token, list.size(), false, path);
+                final Object previous = list.remove(index);
+                journal.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        list.add(index, previous);
+                    }
+                });
+            } else if (isBean(container)) {
+                // a bean property can not be removed, reset it to null or the primitive default
+                Property property = property(container, token, path);
+                property.set(container, property.type.isPrimitive()
+                        ? convert(NullNode.getInstance(), property.type) : null, path, journal);
+            } else {
+                throw new JsonPatchException("path not found: " + path);
+            }
+        } catch (UnsupportedOperationException e) {
+            throw new JsonPatchException("unmodifiable container at " + path, e);
+        }
+    }
+
+    /**
+     * key之后的各个key, 撤销删除时把它们移到重新放回的key之后
+     */
+    private static <K> List<K> following(Iterator<K> keys, Object key) {
+        List<K> following = new ArrayList<K>();
+        boolean found = false;
+        while (keys.hasNext()) {
+            K next = keys.next();
+            if (found) {
+                following.add(next);
+            } else if (next == null ? key == null : next.equals(key)) {
+                found = true;
+            }
+        }
+        return following;
+    }
+
+    private static void rollback(List<Runnable> journal) {
+        for (int i = journal.size() - 1; i >= 0; i--) {
+            journal.get(i).run();
+        }
+    }
+
+    private JavaType childType(Object container, JavaType type, String token) throws JsonPatchException {
+        if (container instanceof JsonNode) {
+            return nodeType;
+        }
+        if (container instanceof Map || container instanceof Collection) {
+            return type.getContentType() != null ? type.getContentType() : objectType;
+        }
+        if (isBean(container)) {
+            Property property = properties(container.getClass()).get(token);
+            if (property != null) {
+                return property.type;
+            }
+        }
+        return objectType;
+    }
+
+    private Object key(JavaType mapType, String token) throws JsonPatchException {
+        JavaType keyType = mapType.getKeyType();
+        if (keyType == null || keyType.getRawClass() == String.class || keyType.getRawClass() == Object.class) {
+            return token;
+        }
+        return convert(TextNode.valueOf(token), keyType);
+    }
+
+    /**
+     * 按RFC 6901解析数组下标, "-"表示末尾之后, 只能用于插入
+     */
+    private static int index(String token, int size, boolean insert, String path) throws JsonPatchException {
+        if (insert && "-".equals(token)) {
+            return size;
+        }
+        if (!isIndex(token)) {
+            throw new JsonPatchException("invalid array index '" + token + "': " + path);
+        }
+        int index = Integer.parseInt(token);
+        if (index > size || (index == size && !insert)) {
+            throw new JsonPatchException("array index out of bounds: " + path);
+        }
+        return index;
+    }
+
+    private static boolean isIndex(String token) {
+        int length = token.length();
+        if (length == 0 || length > 9 || (length > 1 && token.charAt(0) == '0')) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Object convert(JsonNode value, JavaType type) throws JsonPatchException {
+        Class<?> raw = type.getRawClass();
+        if (JsonNode.class.isAssignableFrom(raw) && raw.isAssignableFrom(value.getClass())) {
+            // the patch may be applied again, never share its nodes
+            return value.deepCopy();
+        }
+        try {
+            return mapper.readValue(mapper.treeAsTokens(value), type);
+        } catch (IOException e) {
+            throw new JsonPatchException("cannot convert " + value + " to " + type, e);
+        }
+    }
+
+    private JsonNode tree(Object value) {
+        if (value instanceof JsonNode) {
+            return (JsonNode) value;
+        }
+        JsonNode tree = mapper.valueToTree(value);
+        return tree == null ? NullNode.getInstance() : tree;
+    }
+
+    /**
+     * 数值按大小比较, 1与1.0相等
+     */
+    static boolean equal(JsonNode a, JsonNode b) {
+        if (a.isNumber() && b.isNumber()) {
+            if (a.isIntegralNumber() && b.isIntegralNumber()) {
+                return a.bigIntegerValue().equals(b.bigIntegerValue());
+            }
+            return a.decimalValue().compareTo(b.decimalValue()) == 0;
+        }
+        if (a.isObject() && b.isObject()) {
+            if (a.size() != b.size()) {
+                return false;
+            }
+            Iterator<Map.Entry<String, JsonNode>> fields = a.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode other = b.get(field.getKey());
+                if (other == null || !equal(field.getValue(), other)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a.isArray() && b.isArray()) {
+            if (a.size() != b.size()) {
+                return false;
+            }
+            for (int i = 0; i < a.size(); i++) {
+                if (!equal(a.get(i), b.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a.equals(b);
+    }
+
+    private JavaType typeOf(Object target, JavaType type) {
+        if (target instanceof JsonNode) {
+            // the root node may be replaced by a node of another kind
+            return nodeType;
+        }
+        if (type != null) {
+            if (target != null && !type.getRawClass().isInstance(target)) {
+                throw new IllegalArgumentException(target.getClass().getName() + " is not a " + type);
+            }
+            return type;
+        }
+        return target == null ? objectType : mapper.constructType(target.getClass());
+    }
+
+    private boolean isObject(Object value) {
+        return value instanceof ObjectNode || value instanceof Map || isBean(value);
+    }
+
+    /**
+     * jdk中的类型(String, Number, Date...)、枚举、数组、集合与JsonNode之外的对象按bean处理
+     */
+    private static boolean isBean(Object value) {
+        if (value == null || value instanceof JsonNode || value instanceof Map || value instanceof Collection) {
+            return false;
+        }
+        Class<?> type = value.getClass();
+        return !type.isArray() && !type.isEnum() && !type.getName().startsWith("java.");
+    }
+
+    private Property property(Object bean, String name, String path) throws JsonPatchException {
+        Property property = properties(bean.getClass()).get(name);
+        if (property == null) {
+            throw new JsonPatchException("no property '" + name + "' in " + bean.getClass().getName() + ": " + path);
+        }
+        return property;
+    }
+
+    private Map<String, Property> properties(Class<?> beanClass) {
+        Map<String, Property> result = properties.get(beanClass);
+        if (result != null) {
+            return result;
+        }
+        JavaType beanType = mapper.constructType(beanClass);
+        BeanDescription description = mapper.getDeserializationConfig().introspect(beanType);
+        result = new HashMap<String, Property>();
+        for (BeanPropertyDefinition definition : description.findProperties()) {
+            AnnotatedMember reader = definition.getAccessor();
+            AnnotatedMember writer = definition.getNonConstructorMutator();
+            Type declared;
+            if (writer instanceof AnnotatedMethod) {
+                declared = ((AnnotatedMethod) writer).getGenericParameterType(0);
+            } else if (writer != null) {
+                declared = writer.getGenericType();
+            } else if (reader != null) {
+                declared = reader.getGenericType();
+            } else {
+                continue;
+            }
+            if (reader != null) {
+                reader.fixAccess();
+            }
+            if (writer != null) {
+                writer.fixAccess();
+            }
+            result.put(definition.getName(), new Property(definition.getName(), reader, writer,
+                    mapper.getTypeFactory().constructType(declared, beanType)));
+        }
+        properties.putIfAbsent(beanClass, result);
+        return result;
+    }
+
+    private static class Ref {
+
+        private final Object value;
+
+        private final JavaType type;
+
+        private Ref(Object value, JavaType type) {
+            this.value = value;
+            this.type = type;
+        }
+    }
+
+    private static class Property {
+
+        private final String name;
+
+        private final AnnotatedMember reader;
+
+        private final AnnotatedMember writer;
+
+        private final JavaType type;
+
+        private Property(String name, AnnotatedMember reader, AnnotatedMember writer, JavaType type) {
+            this.name = name;
+            this.reader = reader;
+            this.writer = writer;
+            this.type = type;
+        }
+
+        private Object get(Object bean, String path) throws JsonPatchException {
+            if (reader == null) {
+                throw new JsonPatchException("property '" + name + "' is not readable: " + path);
+            }
+            try {
+                return reader.getValue(bean);
+            } catch (IllegalArgumentException e) {
+                throw new JsonPatchException("cannot read property '" + name + "': " + path, e);
+            }
+        }
+
+        /**
+         * 只写属性无法读取原值, 不能参与撤销, 按不可写处理
+         */
+        private void set(final Object bean, Object value, String path, List<Runnable> journal)
+                throws JsonPatchException {
+            if (writer == null || reader == null) {
+                throw new JsonPatchException("property '" + name + "' is not writable: " + path);
+            }
+            final Object previous = get(bean, path);
+            try {
+                writer.setValue(bean, value);
+            } catch (IllegalArgumentException e) {
+                throw new JsonPatchException("cannot write property '" + name + "': " + path, e);
+            }
+            journal.add(new Runnable() {
+                @Override
+                public void run() {
+                    writer.setValue(bean, previous);
+                }
+            });
+        }
+    }
+}
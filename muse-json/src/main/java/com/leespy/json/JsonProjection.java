@@ -0,0 +1,195 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的一组JSON Pointer(RFC 6901), 流式读取json时只构建命中路径上的值,
+ * 其余子树用skipChildren跳过, 所有路径都找到后不再读取剩余内容.
+ * 编译后不可变, 可在线程间共享
+ */
+public final class JsonProjection {
+
+    private final String[] pointers;
+
+    private final Node root = new Node();
+
+    private JsonProjection(String[] pointers) {
+        this.pointers = pointers.clone();
+        for (int i = 0; i < pointers.length; i++) {
+            List<String> tokens = parse(pointers[i]);
+            Node node = root;
+            for (String token : tokens) {
+                node.count++;
+                Node child = node.children.get(token);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(token, child);
+                }
+                node = child;
+            }
+            node.count++;
+            node.indexes.add(i);
+        }
+    }
+
+    /**
+     * 编译一组JSON Pointer, 如"/data/items/0/id", ""表示整个文档
+     *
+     * @throws IllegalArgumentException pointer格式错误
+     */
+    public static JsonProjection compile(String... pointers) {
+        return new JsonProjection(pointers);
+    }
+
+    /**
+     * 编译时的pointer, 下标与读取结果一致
+     */
+    public String[] getPointers() {
+        return pointers.clone();
+    }
+
+    /**
+     * 从parser当前位置读取, 读完或所有路径都找到后返回, 不关闭parser
+     *
+     * @return 各pointer对应的值, 下标与编译时一致, 不存在的路径为null
+     */
+    JsonNode[] read(ObjectMapper mapper, JsonParser parser) throws IOException {
+        Cursor cursor = new Cursor(pointers.length);
+        if (parser.getCurrentToken() != null || parser.nextToken() != null) {
+            walk(mapper, parser, root, cursor);
+        }
+        return cursor.values;
+    }
+
+    /**
+     * parser位于一个值的起始token上, 未找齐时返回, 此时位于该值的结束token上
+     *
+     * @return 是否已找到所有路径, 为true时不必再读
+     */
+    private boolean walk(ObjectMapper mapper, JsonParser parser, Node node, Cursor cursor) throws IOException {
+        if (!node.indexes.isEmpty()) {
+            // a requested value: deeper pointers below it are resolved from the same small tree
+            fill(mapper.readTree(parser), node, cursor.values);
+            cursor.found += node.count;
+            return cursor.found == root.count;
+        }
+        JsonToken token = parser.getCurrentToken();
+        int before = cursor.found;
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = cursor.found - before < node.count ? node.children.get(parser.getCurrentName()) : null;
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (walk(mapper, parser, child, cursor)) {
+                    return true;
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                Node child = cursor.found - before < node.count ? node.children.get(Integer.toString(index)) : null;
+                if (child == null) {
+                    parser.skipChildren();
+                } else if (walk(mapper, parser, child, cursor)) {
+                    return true;
+                }
+                index++;
+            }
+        }
+        return false;
+    }
+
+    private static void fill(JsonNode value, Node node, JsonNode[] values) {
+        for (int index : node.indexes) {
+            values[index] = value;
+        }
+        if (value == null) {
+            return;
+        }
+        for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+            JsonNode child = value.isArray() ? arrayElement(value, entry.getKey()) : value.get(entry.getKey());
+            fill(child, entry.getValue(), values);
+        }
+    }
+
+    private static JsonNode arrayElement(JsonNode array, String token) {
+        try {
+            return array.get(Integer.parseInt(token));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按RFC 6901拆分并反转义: ~1为'/', ~0为'~'
+     */
+    static List<String> parse(String pointer) {
+        List<String> tokens = new ArrayList<String>();
+        if (pointer.isEmpty()) {
+            return tokens;
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalArgumentException("json pointer must start with '/': " + pointer);
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 1; i < pointer.length(); i++) {
+            char c = pointer.charAt(i);
+            if (c == '/') {
+                tokens.add(token.toString());
+                token.setLength(0);
+            } else if (c == '~') {
+                char next = i + 1 < pointer.length() ? pointer.charAt(++i) : 0;
+                if (next == '0') {
+                    token.append('~');
+                } else if (next == '1') {
+                    token.append('/');
+                } else {
+                    throw new IllegalArgumentException("invalid escape in json pointer: " + pointer);
+                }
+            } else {
+                token.append(c);
+            }
+        }
+        tokens.add(token.toString());
+        return tokens;
+    }
+
+    private static class Node {
+
+        private final Map<String, Node> children = new HashMap<String, Node>();
+
+        /**
+         * 以本节点结尾的pointer下标
+         */
+        private final List<Integer> indexes = new ArrayList<Integer>(1);
+
+        /**
+         * 本节点及其子树中的pointer数
+         */
+        private int count;
+    }
+
+    private static class Cursor {
+
+        private final JsonNode[] values;
+
+        /**
+         * 已找到的pointer数
+         */
+        private int found;
+
+        private Cursor(int size) {
+            this.values = new JsonNode[size];
+        }
+    }
+}
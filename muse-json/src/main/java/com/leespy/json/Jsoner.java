@@ -0,0 +1,859 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.JSONPObject;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.reflect.ClassPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date: 16/5/6
+ * Time: 下午3:47
+ *
+ * @author i@leespy.com
+ */
+public class Jsoner {
+
+    private static Logger logger = LoggerFactory.getLogger(Jsoner.class);
+
+    /**
+     * 忽略对象中值为NULL或""的属性
+     */
+    public static final Jsoner EXCLUDE_EMPTY = new Jsoner(JsonInclude.Include.NON_EMPTY);
+
+    /**
+     * 忽略对象中值为默认值的属性
+     */
+    public static final Jsoner EXCLUDE_DEFAULT = new Jsoner(JsonInclude.Include.NON_DEFAULT);
+
+    /**
+     * 默认不排除任何属性
+     */
+    public static final Jsoner DEFAULT = new Jsoner();
+
+    /**
+     * 为null时不设置serialization inclusion
+     */
+    private final JsonInclude.Include include;
+
+    /**
+     * 首次使用时创建, 只用到其中一个预设的应用不必为其余预设构造ObjectMapper
+     */
+    private volatile ObjectMapper mapper;
+
+    /**
+     * builder构造的实例不允许再修改配置
+     */
+    private boolean frozen;
+
+    private volatile JsonPatcher patcher;
+
+    private Jsoner() {
+        this.include = null;
+    }
+
+    private Jsoner(JsonInclude.Include include) {
+        this.include = include;
+    }
+
+    ObjectMapper mapper() {
+        ObjectMapper result = mapper;
+        if (result == null) {
+            synchronized (this) {
+                result = mapper;
+                if (result == null) {
+                    result = createMapper(include);
+                    mapper = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static ObjectMapper createMapper(JsonInclude.Include include) {
+        ObjectMapper mapper = new ObjectMapper();
+        if (include != null) {
+            // set serialization feature
+            mapper.setSerializationInclusion(include);
+        }
+        // ignore attributes exists in json string, but not in java object when deserialization
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        mapper.registerModule(new GuavaModule());
+        mapper.registerModule(new PrimitiveModule());
+        return mapper;
+    }
+
+    /**
+     * return a builder of an independently configured jsoner. the built jsoner is frozen:
+     * its configuration can not be changed afterwards, so it is safe to share
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * return a jsoner, accelerate the registered DTO types with generated accessors instead of reflection,
+     * other types are handled as usual. nested DTO types need to be registered too.
+     * the result is the same as a plain jsoner with the same include, only faster on hot DTOs.
+     *
+     * @param include serialization inclusion, such as JsonInclude.Include.ALWAYS
+     * @param types   DTO types to accelerate, accelerate all beans if empty
+     * @see Builder#accelerate(Class[])
+     */
+    public static Jsoner accelerated(JsonInclude.Include include, Class<?>... types) {
+        return builder().include(include).accelerate(types).build();
+    }
+
+    /**
+     * return a jsoner, deserialize every string value not longer than the cache's max length through
+     * the cache, so repeated values share one instance. hit rate is reported by the cache.
+     * to intern only some properties, annotate them with JsonIntern instead
+     *
+     * @param include serialization inclusion, such as JsonInclude.Include.ALWAYS
+     * @param cache   string cache, can be shared between jsoners
+     * @see Builder#intern(StringCache)
+     */
+    public static Jsoner interning(JsonInclude.Include include, StringCache cache) {
+        return builder().include(include).intern(cache).build();
+    }
+
+    /**
+     * return a jsoner, only output attributes, not empty or null
+     */
+    public static Jsoner nonEmptyJsoner() {
+        return EXCLUDE_EMPTY;
+    }
+
+    /**
+     * return a jsoner, only output attributes, have not default value
+     */
+    public static Jsoner nonDefaultJsoner() {
+        return EXCLUDE_DEFAULT;
+    }
+
+    /**
+     * convert an object(POJO, Collection, ...) to json string
+     *
+     * @param target target object
+     * @return json string
+     */
+    public String toJson(Object target) {
+
+        try {
+            return mapper().writeValueAsString(target);
+        } catch (IOException e) {
+            logger.error("write to json string error:" + target, e);
+            return null;
+        }
+    }
+
+    /**
+     * write an object as UTF-8 json to an output stream, such as a PooledByteArrayOutputStream,
+     * without building an intermediate String
+     *
+     * @param target target object
+     * @param out    output stream, not closed
+     * @throws java.io.IOException
+     */
+    public void toJson(Object target, OutputStream out) throws IOException {
+        JsonGenerator generator = mapper().getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            mapper().writeValue(generator, target);
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * open a writer of newline delimited json records (JSON Lines / NDJSON), all records share one
+     * buffered generator. close the writer to flush, the stream is not closed
+     *
+     * @param out output stream
+     * @return ndjson writer
+     * @throws java.io.IOException
+     */
+    public NdjsonWriter ndjsonWriter(OutputStream out) throws IOException {
+        return new NdjsonWriter(this, out);
+    }
+
+    /**
+     * open a writer of newline delimited json records at the channel's position, the channel is not closed
+     *
+     * @see #ndjsonWriter(java.io.OutputStream)
+     */
+    public NdjsonWriter ndjsonWriter(FileChannel channel) throws IOException {
+        return new NdjsonWriter(this, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * open a reader of newline delimited json records, the stream is not closed
+     *
+     * @param in     input stream
+     * @param target record class
+     * @param <T>
+     * @return ndjson reader
+     * @throws java.io.IOException
+     */
+    public <T> NdjsonReader<T> ndjsonReader(InputStream in, Class<T> target) throws IOException {
+        return new NdjsonReader<T>(this, in, mapper().getTypeFactory().constructType(target));
+    }
+
+    /**
+     * read a newline delimited json file with several threads: the file is split on line boundaries,
+     * each segment is memory-mapped and parsed by one thread. the handler is called concurrently
+     * and in no particular order
+     *
+     * @param channel file channel, not closed
+     * @param target  record class
+     * @param threads number of threads, must be positive
+     * @param handler record handler
+     * @param <T>
+     * @return number of records
+     * @throws java.io.IOException read or parse error, a line too long to split the file on, or exception thrown by
+     *                             the handler
+     */
+    public <T> long readNdjson(FileChannel channel, Class<T> target, int threads, NdjsonHandler<? super T> handler)
+            throws IOException {
+        return NdjsonReader.readParallel(this, channel, mapper().getTypeFactory().constructType(target),
+                threads, handler);
+    }
+
+    /**
+     * create a push-style parser for a sequence of json values, such as NDJSON or concatenated json,
+     * arriving in chunks: each value is bound and handed to the handler as soon as its last byte is fed.
+     * feeding never blocks and only the bytes of the unfinished value are kept
+     *
+     * @param target  value class
+     * @param handler called on the feeding thread for each value
+     * @param <T>
+     * @return json feeder
+     */
+    public <T> JsonFeeder<T> feeder(Class<T> target, JsonFeedHandler<? super T> handler) {
+        return new JsonFeeder<T>(this, mapper().getTypeFactory().constructType(target), false, handler);
+    }
+
+    /**
+     * create a push-style parser for a top-level json array arriving in chunks,
+     * each element is bound and handed to the handler as soon as it is complete
+     *
+     * @see #feeder(Class, JsonFeedHandler)
+     */
+    public <T> JsonFeeder<T> arrayFeeder(Class<T> target, JsonFeedHandler<? super T> handler) {
+        return new JsonFeeder<T>(this, mapper().getTypeFactory().constructType(target), true, handler);
+    }
+
+    /**
+     * deserialize a json byte range, such as the content of a pooled buffer, to target class object
+     *
+     * @param json   json bytes
+     * @param offset start offset
+     * @param length length
+     * @param target target class
+     * @param <T>
+     * @return target object
+     */
+    public <T> T fromJson(byte[] json, int offset, int length, Class<T> target) {
+        if (json == null || length == 0) {
+            return null;
+        }
+        try {
+            return mapper().readValue(json, offset, length, target);
+        } catch (IOException e) {
+            logger.warn("parse json bytes error:" + new String(json, offset, length, Charsets.UTF_8), e);
+            return null;
+        }
+    }
+
+    /**
+     * deserialize a json to target class object
+     *
+     * @param json   json string
+     * @param target target class
+     * @param <T>
+     * @return target object
+     */
+    public <T> T fromJson(String json, Class<T> target) {
+        if (Strings.isNullOrEmpty(json)) {
+            return null;
+        }
+        try {
+            return mapper().readValue(json, target);
+        } catch (IOException e) {
+            logger.warn("parse json string error:" + json, e);
+            return null;
+        }
+    }
+
+    /**
+     * 反序列化复杂Collection如List<Bean>, 先使用函數createCollectionType构造类型,然后调用本函数.
+     *
+     * @see #createCollectionType(Class, Class...)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fromJson(String jsonString, JavaType javaType) {
+        if (Strings.isNullOrEmpty(jsonString)) {
+            return null;
+        }
+        try {
+            return (T) mapper().readValue(jsonString, javaType);
+        } catch (Exception e) {
+            logger.warn("parse json string error:" + jsonString, e);
+            return null;
+        }
+    }
+
+    /**
+     * read a json to JsonNode Tree
+     *
+     * @param json source json string
+     * @return JsonNode Tree
+     * @throws java.io.IOException
+     */
+    public JsonNode treeFromJson(String json) throws IOException {
+        return mapper().readTree(json);
+    }
+
+    /**
+     * extract a single value by JSON Pointer without binding the whole json, such as
+     * extract(json, "/data/items/0/id", Long.class). the parser skips other subtrees and stops once found
+     *
+     * @param json    json string
+     * @param pointer JSON Pointer, see JsonProjection
+     * @param target  target class
+     * @param <T>
+     * @return target object, null if absent or parse error
+     */
+    public <T> T extract(String json, String pointer, Class<T> target) {
+        if (Strings.isNullOrEmpty(json)) {
+            return null;
+        }
+        try {
+            JsonNode value = project(json, JsonProjection.compile(pointer))[0];
+            return value == null ? null : mapper().treeToValue(value, target);
+        } catch (IOException e) {
+            logger.warn("extract " + pointer + " from json string error:" + json, e);
+            return null;
+        }
+    }
+
+    /**
+     * read the values of a compiled projection from a json string, memory and cpu scale with the
+     * projected values instead of the document
+     *
+     * @param json       json string
+     * @param projection compiled JSON Pointers
+     * @return values in the order of the pointers, null for absent ones
+     * @throws java.io.IOException
+     */
+    public JsonNode[] project(String json, JsonProjection projection) throws IOException {
+        JsonParser parser = mapper().getFactory().createParser(json);
+        try {
+            return projection.read(mapper(), parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * read the values of a compiled projection from a json stream, such as a response body,
+     * the rest of the stream is not read once all values are found
+     *
+     * @param in         json stream, not closed
+     * @param projection compiled JSON Pointers
+     * @return values in the order of the pointers, null for absent ones
+     * @throws java.io.IOException
+     */
+    public JsonNode[] project(InputStream in, JsonProjection projection) throws IOException {
+        JsonParser parser = mapper().getFactory().createParser(in);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            return projection.read(mapper(), parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * convert a JsonNode to target class object
+     *
+     * @param node   source node
+     * @param target target class
+     * @param <T>
+     * @return target class object
+     * @throws com.fasterxml.jackson.core.JsonProcessingException
+     */
+    public <T> T treeToValue(JsonNode node, Class<T> target) throws JsonProcessingException {
+        return mapper().treeToValue(node, target);
+    }
+
+    /**
+     * construct collection type
+     *
+     * @param collectionClass collection class, such as ArrayList, HashMap, ...
+     * @param elementClasses  element class
+     *                        ArrayList<T>:
+     *                        createCollectionType(ArrayList.class, T.class)
+     *                        HashMap<String, T>:
+     *                        createCollectionType(HashMap.class, String.class, T.class)
+     *                        for large numeric collections use long[], LongList, DoubleList or LongDoubleMap
+     *                        from com.leespy.collect instead, their elements are not boxed
+     * @return JavaType
+     */
+    public JavaType createCollectionType(Class<?> collectionClass, Class<?>... elementClasses) {
+        return mapper().getTypeFactory().constructParametricType(collectionClass, elementClasses);
+    }
+
+    /**
+     * update a target object's attributes from json
+     *
+     * @param json   source json string
+     * @param target target object
+     * @param <T>
+     * @return updated target object
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T update(String json, T target) {
+        try {
+            return (T) mapper().readerForUpdating(target).readValue(json);
+        } catch (JsonProcessingException e) {
+            logger.warn("update json string:" + json + " to object:" + target + " error.", e);
+        } catch (IOException e) {
+            logger.warn("update json string:" + json + " to object:" + target + " error.", e);
+        }
+        return null;
+    }
+
+    /**
+     * read a JSON Patch (RFC 6902) document, the stream is not closed
+     *
+     * @param in json patch stream
+     * @return parsed patch, can be applied to many targets
+     * @throws java.io.IOException read error or invalid patch
+     */
+    public JsonPatch readPatch(InputStream in) throws IOException {
+        return JsonPatch.parse(readTree(mapper().getFactory().createParser(in)));
+    }
+
+    /**
+     * read a JSON Patch (RFC 6902) document from a byte range
+     *
+     * @see #readPatch(java.io.InputStream)
+     */
+    public JsonPatch readPatch(byte[] json, int offset, int length) throws IOException {
+        return JsonPatch.parse(readTree(mapper().getFactory().createParser(json, offset, length)));
+    }
+
+    /**
+     * apply a JSON Patch (RFC 6902) in place to a JsonNode, Map, List or POJO, only the values on the
+     * patched paths are read and converted. the patch is atomic: when an operation fails the earlier
+     * ones are undone before the exception is thrown (write-only POJO properties can not be patched).
+     * it is not thread safe, readers of a shared target must be excluded while patching, or patch a copy
+     * and publish it. removing a POJO property sets it to null or the primitive default.
+     * the root type is taken from target.getClass(), use {@link #applyPatch(Object, JavaType, JsonPatch)}
+     * for generic containers such as Map&lt;String, Config&gt;
+     *
+     * @param target target object
+     * @param patch  parsed patch
+     * @param <T>
+     * @return the patched target, or the new value if the patch replaces the whole document
+     * @throws JsonPatchException path not found, type mismatch or failed test, the target is unchanged
+     */
+    public <T> T applyPatch(T target, JsonPatch patch) throws JsonPatchException {
+        return applyPatch(target, (JavaType) null, patch);
+    }
+
+    /**
+     * apply a JSON Patch (RFC 6902) in place to a target of the given type, values added to a generic
+     * container are converted to its declared element and key types
+     *
+     * @param target target object
+     * @param type   type of the target, e.g. createCollectionType(List.class, Dto.class)
+     * @param patch  parsed patch
+     * @param <T>
+     * @return the patched target, or the new value if the patch replaces the whole document
+     * @throws JsonPatchException path not found, type mismatch or failed test, the target is unchanged
+     * @see #applyPatch(Object, JsonPatch)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T applyPatch(T target, JavaType type, JsonPatch patch) throws JsonPatchException {
+        return (T) patcher().apply(target, type, patch);
+    }
+
+    /**
+     * apply a JSON Patch (RFC 6902) in place to a target of the given type
+     *
+     * @see #applyPatch(Object, JavaType, JsonPatch)
+     */
+    public <T> T applyPatch(T target, TypeReference<T> type, JsonPatch patch) throws JsonPatchException {
+        return applyPatch(target, mapper().getTypeFactory().constructType(type), patch);
+    }
+
+    /**
+     * apply a JSON Patch (RFC 6902) read from a stream, the stream is not closed
+     *
+     * @see #applyPatch(Object, JsonPatch)
+     */
+    public <T> T applyPatch(T target, InputStream patch) throws IOException {
+        return applyPatch(target, readPatch(patch));
+    }
+
+    /**
+     * apply a JSON Merge Patch (RFC 7396) in place to a JsonNode, Map or POJO: objects are merged
+     * property by property, null removes a property, other values replace. unlike update,
+     * nested objects are merged instead of replaced and unknown POJO properties are ignored.
+     * atomic and not thread safe like {@link #applyPatch(Object, JsonPatch)}; the root type is taken
+     * from target.getClass(), use {@link #mergePatch(Object, JavaType, JsonNode)} for generic containers
+     *
+     * @param target target object
+     * @param patch  merge patch
+     * @param <T>
+     * @return the patched target, or the new value if the patch is not an object
+     * @throws JsonPatchException type mismatch, the target is unchanged
+     */
+    public <T> T mergePatch(T target, JsonNode patch) throws JsonPatchException {
+        return mergePatch(target, (JavaType) null, patch);
+    }
+
+    /**
+     * apply a JSON Merge Patch (RFC 7396) in place to a target of the given type, values added to a
+     * generic container are converted to its declared element and key types
+     *
+     * @param target target object
+     * @param type   type of the target, e.g. a Map&lt;String, Config&gt;
+     * @param patch  merge patch
+     * @param <T>
+     * @return the patched target, or the new value if the patch is not an object
+     * @throws JsonPatchException type mismatch, the target is unchanged
+     * @see #mergePatch(Object, JsonNode)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T mergePatch(T target, JavaType type, JsonNode patch) throws JsonPatchException {
+        return (T) patcher().merge(target, type, patch);
+    }
+
+    /**
+     * apply a JSON Merge Patch (RFC 7396) in place to a target of the given type
+     *
+     * @see #mergePatch(Object, JavaType, JsonNode)
+     */
+    public <T> T mergePatch(T target, TypeReference<T> type, JsonNode patch) throws JsonPatchException {
+        return mergePatch(target, mapper().getTypeFactory().constructType(type), patch);
+    }
+
+    /**
+     * apply a JSON Merge Patch (RFC 7396) read from a stream, the stream is not closed
+     *
+     * @see #mergePatch(Object, JsonNode)
+     */
+    public <T> T mergePatch(T target, InputStream patch) throws IOException {
+        return mergePatch(target, readTree(mapper().getFactory().createParser(patch)));
+    }
+
+    /**
+     * apply a JSON Merge Patch (RFC 7396) read from a byte range
+     *
+     * @see #mergePatch(Object, JsonNode)
+     */
+    public <T> T mergePatch(T target, byte[] patch, int offset, int length) throws IOException {
+        return mergePatch(target, readTree(mapper().getFactory().createParser(patch, offset, length)));
+    }
+
+    private JsonNode readTree(JsonParser parser) throws IOException {
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            JsonNode tree = mapper().readTree(parser);
+            if (tree == null) {
+                throw new JsonPatchException("empty patch");
+            }
+            return tree;
+        } finally {
+            parser.close();
+        }
+    }
+
+    private JsonPatcher patcher() {
+        JsonPatcher result = patcher;
+        if (result == null) {
+            // racing threads may each build one, they are equivalent
+            result = new JsonPatcher(mapper());
+            patcher = result;
+        }
+        return result;
+    }
+
+    /**
+     * output JSONP style string
+     */
+    public String toJsonP(String functionName, Object object) {
+        return toJson(new JSONPObject(functionName, object));
+    }
+
+    /**
+     * resolve and cache the serializers and deserializers of the given types now, so the first
+     * requests do not pay for introspection. types that can not be handled are logged and skipped
+     *
+     * @param types types to prewarm
+     * @return number of types prewarmed
+     */
+    public int prewarm(Class<?>... types) {
+        return prewarm(Arrays.asList(types));
+    }
+
+    private int prewarm(Collection<Class<?>> types) {
+        long start = System.nanoTime();
+        int warmed = 0;
+        for (Class<?> type : types) {
+            try {
+                JavaType javaType = mapper().constructType(type);
+                boolean serializable = mapper().canSerialize(type);
+                boolean deserializable = mapper().canDeserialize(javaType);
+                if (serializable || deserializable) {
+                    warmed++;
+                } else {
+                    logger.warn("can not prewarm json type: {}", type.getName());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("failed to prewarm json type: " + type.getName(), e);
+            }
+        }
+        logger.info("prewarmed {} of {} json types in {}ms", warmed, types.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return warmed;
+    }
+
+    /**
+     * enable enumable, make enum attribute read or write as string.
+     * it reconfigures the mapper shared by every user of this jsoner
+     *
+     * @throws IllegalStateException the jsoner is built by builder() and frozen
+     * @deprecated use Jsoner.builder().enumsAsString() to get a separate jsoner
+     */
+    @Deprecated
+    public void enumable() {
+        if (frozen) {
+            throw new IllegalStateException("jsoner built by builder() can not be reconfigured");
+        }
+        mapper().enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING);
+        mapper().enable(DeserializationFeature.READ_ENUMS_USING_TO_STRING);
+    }
+
+    /**
+     * return the json mapper shared by every user of this jsoner, the mapper of a frozen jsoner must not be reconfigured
+     *
+     * @deprecated use reader(JavaType) and writer() to read and write, or copyMapper() to get a mapper to configure
+     */
+    @Deprecated
+    public ObjectMapper getMapper() {
+        return mapper();
+    }
+
+    /**
+     * return an independent copy of the json mapper, changing it does not affect this jsoner.
+     * copying drops the serializer caches, so keep the copy instead of calling this per request
+     */
+    public ObjectMapper copyMapper() {
+        return mapper().copy();
+    }
+
+    /**
+     * return an immutable reader of the type, sharing the configuration and caches of this jsoner
+     */
+    public ObjectReader reader(JavaType type) {
+        return mapper().reader(type);
+    }
+
+    /**
+     * return an immutable writer, sharing the configuration and caches of this jsoner
+     */
+    public ObjectWriter writer() {
+        return mapper().writer();
+    }
+
+    /**
+     * deserialize a json to a complex object
+     *
+     * @param json      json string
+     * @param reference complex type like Object contains List object
+     * @param <T>       object
+     * @return object
+     */
+    public <T> T fromJson(String json, TypeReference reference) {
+
+        if (Strings.isNullOrEmpty(json)) {
+            return null;
+        }
+        try {
+            return mapper().readValue(json, reference);
+        } catch (IOException e) {
+            logger.warn("parse json string error:" + json, e);
+            return null;
+        }
+    }
+
+    /**
+     * 构造配置独立的Jsoner, build之后配置不可再修改, 可选在build时预热类型
+     */
+    public static class Builder {
+
+        private JsonInclude.Include include;
+
+        private boolean enumsAsString;
+
+        private Set<Class<?>> accelerated;
+
+        private StringCache cache;
+
+        private final List<Module> modules = new ArrayList<Module>();
+
+        private final Set<Class<?>> prewarm = new LinkedHashSet<Class<?>>();
+
+        private Builder() {
+        }
+
+        /**
+         * serialization inclusion, default JsonInclude.Include.ALWAYS
+         */
+        public Builder include(JsonInclude.Include include) {
+            this.include = include;
+            return this;
+        }
+
+        /**
+         * read and write enums using toString, instead of reconfiguring a shared jsoner with enumable()
+         */
+        public Builder enumsAsString() {
+            this.enumsAsString = true;
+            return this;
+        }
+
+        /**
+         * accelerate the DTO types with generated accessors, may be called several times
+         *
+         * @param types DTO types, accelerate all beans if none is given in any call
+         * @see Jsoner#accelerated(JsonInclude.Include, Class[])
+         */
+        public Builder accelerate(Class<?>... types) {
+            if (accelerated == null) {
+                accelerated = new HashSet<Class<?>>();
+            }
+            accelerated.addAll(Arrays.asList(types));
+            return this;
+        }
+
+        /**
+         * deserialize short string values through the cache
+         *
+         * @see Jsoner#interning(JsonInclude.Include, StringCache)
+         */
+        public Builder intern(StringCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * register an additional jackson module
+         */
+        public Builder module(Module module) {
+            modules.add(module);
+            return this;
+        }
+
+        /**
+         * prewarm the types when built
+         */
+        public Builder prewarm(Class<?>... types) {
+            prewarm.addAll(Arrays.asList(types));
+            return this;
+        }
+
+        /**
+         * prewarm the concrete classes in the package and its sub packages when built,
+         * including public static nested classes
+         *
+         * @param packageName package name, such as com.leespy.dto
+         * @throws IOException class path can not be read
+         */
+        public Builder prewarmPackage(String packageName) throws IOException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null) {
+                loader = Jsoner.class.getClassLoader();
+            }
+            for (ClassPath.ClassInfo info : ClassPath.from(loader).getTopLevelClassesRecursive(packageName)) {
+                try {
+                    addConcrete(info.load());
+                } catch (LinkageError e) {
+                    logger.warn("can not load class for prewarm: {}", info.getName(), e);
+                }
+            }
+            return this;
+        }
+
+        private void addConcrete(Class<?> type) {
+            int modifiers = type.getModifiers();
+            if (!type.isInterface() && !type.isAnnotation() && !Modifier.isAbstract(modifiers)
+                    && Modifier.isPublic(modifiers)) {
+                prewarm.add(type);
+            }
+            for (Class<?> nested : type.getDeclaredClasses()) {
+                if (Modifier.isStatic(nested.getModifiers())) {
+                    addConcrete(nested);
+                }
+            }
+        }
+
+        /**
+         * build a frozen jsoner and prewarm the requested types
+         */
+        public Jsoner build() {
+            Jsoner jsoner = include == null ? new Jsoner() : new Jsoner(include);
+            ObjectMapper mapper = jsoner.mapper();
+            if (enumsAsString) {
+                mapper.enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING);
+                mapper.enable(DeserializationFeature.READ_ENUMS_USING_TO_STRING);
+            }
+            if (accelerated != null) {
+                mapper.registerModule(new AcceleratorModule(new HashSet<Class<?>>(accelerated)));
+            }
+            if (cache != null) {
+                SimpleModule module = new SimpleModule("muse-intern");
+                module.addDeserializer(String.class, new InternedStringDeserializer(cache));
+                mapper.registerModule(module);
+            }
+            for (Module module : modules) {
+                mapper.registerModule(module);
+            }
+            jsoner.frozen = true;
+            if (!prewarm.isEmpty()) {
+                jsoner.prewarm(prewarm);
+            }
+            return jsoner;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.leespy.json;
+
+/**
+ * 处理并行读取的NDJSON记录, 会被多个线程同时调用
+ */
+public interface NdjsonHandler<T> {
+
+    /**
+     * 处理一条记录, 抛出异常时停止读取
+     */
+    void onRecord(T record) throws Exception;
+}
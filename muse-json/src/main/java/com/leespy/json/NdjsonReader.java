@@ -0,0 +1,195 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 逐条读取按行分隔的json记录(JSON Lines / NDJSON), 空行被忽略, 非线程安全.
+ * 大文件可用Jsoner.readNdjson按换行切分后多线程并行读取
+ */
+public class NdjsonReader<T> implements Closeable {
+
+    /**
+     * 并行读取时每段的最小与最大长度, 单次映射不能超过2G, 超过MAX_SEGMENT的部分留给切分点所在的那一行
+     */
+    private static final long MIN_SEGMENT = 1L << 20;
+
+    private static final long MAX_SEGMENT = 1L << 30;
+
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final ObjectMapper mapper;
+
+    private final JavaType type;
+
+    private final JsonParser parser;
+
+    private long count;
+
+    NdjsonReader(Jsoner jsoner, InputStream in, JavaType type) throws IOException {
+        this.mapper = jsoner.mapper();
+        this.type = type;
+        this.parser = mapper.getFactory().createParser(in);
+        this.parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+
+    /**
+     * 读取下一条记录
+     *
+     * @return 没有更多记录时返回null
+     * @throws IOException 读取或解析失败
+     */
+    public T read() throws IOException {
+        if (parser.nextToken() == null) {
+            return null;
+        }
+        T record = mapper.readValue(parser, type);
+        count++;
+        return record;
+    }
+
+    /**
+     * 已读取的记录数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 不关闭底层流
+     */
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * 把文件按换行切成若干段, 每段映射到内存后由一个线程读取, 记录的处理顺序不确定.
+     * 任一段失败时其余段尽快停止
+     *
+     * @return 读取的记录数
+     * @throws IllegalArgumentException threads不是正数
+     * @throws IOException              读取或解析失败, 或切分点所在的行太长使该段超过2G
+     */
+    static <T> long readParallel(final Jsoner jsoner, final FileChannel channel, final JavaType type, int threads,
+                                 final NdjsonHandler<? super T> handler) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        long size = channel.size();
+        long segment = Math.min(MAX_SEGMENT, Math.max(MIN_SEGMENT, size / (threads * 4L) + 1));
+        List<long[]> segments = new ArrayList<long[]>();
+        long start = 0;
+        while (start < size) {
+            long end = size;
+            if (start + segment < size) {
+                long limit = Math.min(size, start + Integer.MAX_VALUE);
+                end = nextLine(channel, start + segment, limit);
+                if (end < 0 && limit < size) {
+                    throw new IOException("ndjson line crossing offset " + (start + segment)
+                            + " is too long, a segment starting at " + start + " can not be mapped within 2G");
+                }
+                if (end < 0) {
+                    end = size;
+                }
+            }
+            segments.add(new long[]{start, end});
+            start = end;
+        }
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, segments.size()),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ndjson-reader-%d").build());
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        try {
+            List<Future<Long>> futures = new ArrayList<Future<Long>>(segments.size());
+            for (final long[] range : segments) {
+                futures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        try {
+                            return readSegment(jsoner, channel, range[0], range[1] - range[0], type, handler, failed);
+                        } catch (Exception e) {
+                            failed.set(true);
+                            throw e;
+                        }
+                    }
+                }));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading ndjson", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("failed to read ndjson", e.getCause());
+        } finally {
+            failed.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    private static <T> long readSegment(Jsoner jsoner, FileChannel channel, long position, long length, JavaType type,
+                                        NdjsonHandler<? super T> handler, AtomicBoolean failed) throws Exception {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        NdjsonReader<T> reader = new NdjsonReader<T>(jsoner, new ByteBufferBackedInputStream(buffer), type);
+        try {
+            T record;
+            while (!failed.get() && (record = reader.read()) != null) {
+                handler.onRecord(record);
+            }
+            return reader.count();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 从position起找到limit之前下一个换行之后的位置
+     *
+     * @return 到limit仍未找到时返回-1
+     */
+    private static long nextLine(FileChannel channel, long position, long limit) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < limit) {
+            scan.clear();
+            scan.limit((int) Math.min(SCAN_BUFFER_SIZE, limit - position));
+            int n = channel.read(scan, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,71 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 按行写出json记录(JSON Lines / NDJSON), 每条记录一行, 以'\n'结尾.
+ * 所有记录复用同一个JsonGenerator, 写满缓冲区才刷到底层流, 非线程安全
+ */
+public class NdjsonWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectWriter writer;
+
+    private final JsonGenerator generator;
+
+    private long count;
+
+    NdjsonWriter(Jsoner jsoner, OutputStream out) throws IOException {
+        this.writer = jsoner.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // the generator's own buffer is only 8k, write to the target in larger blocks
+        this.generator = jsoner.mapper().getFactory()
+                .createGenerator(new BufferedOutputStream(out, BUFFER_SIZE), JsonEncoding.UTF8);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // records are separated by the newline written after each one
+        this.generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * 写出一条记录
+     *
+     * @param record 记录, 序列化结果中不会含有换行
+     */
+    public void write(Object record) throws IOException {
+        writer.writeValue(generator, record);
+        generator.writeRaw('\n');
+        count++;
+    }
+
+    /**
+     * 已写出的记录数
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * 把缓冲的记录刷到底层流
+     */
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    /**
+     * 刷出缓冲的记录, 不关闭底层流
+     */
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,208 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.leespy.collect.DoubleList;
+import com.leespy.collect.IntList;
+import com.leespy.collect.LongDoubleMap;
+import com.leespy.collect.LongList;
+
+import java.io.IOException;
+
+/**
+ * IntList/LongList/DoubleList与LongDoubleMap的序列化, 数值直接在parser/generator与基本类型数组之间读写, 不装箱.
+ * 列表对应json数组, LongDoubleMap对应以数字为key的json对象. 基本类型数组(long[]等)jackson本身已不装箱
+ * 元素为null或非数字时报错; 小数读入IntList/LongList时与jackson的int[]一样截去小数部分
+ */
+class PrimitiveModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    PrimitiveModule() {
+        super("muse-primitive");
+        addSerializer(IntList.class, new IntListSerializer());
+        addSerializer(LongList.class, new LongListSerializer());
+        addSerializer(DoubleList.class, new DoubleListSerializer());
+        addSerializer(LongDoubleMap.class, new LongDoubleMapSerializer());
+        addDeserializer(IntList.class, new IntListDeserializer());
+        addDeserializer(LongList.class, new LongListDeserializer());
+        addDeserializer(DoubleList.class, new DoubleListDeserializer());
+        addDeserializer(LongDoubleMap.class, new LongDoubleMapDeserializer());
+    }
+
+    private static void expect(JsonParser parser, DeserializationContext context, JsonToken token, Class<?> type)
+            throws IOException {
+        if (parser.getCurrentToken() != token) {
+            throw context.mappingException(type, parser.getCurrentToken());
+        }
+    }
+
+    private static void expectNumber(JsonParser parser, DeserializationContext context, Class<?> type)
+            throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+            throw context.mappingException(type, token);
+        }
+    }
+
+    private static class IntListSerializer extends StdSerializer<IntList> {
+
+        private IntListSerializer() {
+            super(IntList.class);
+        }
+
+        @Override
+        public void serialize(IntList value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartArray();
+            for (int i = 0, size = value.size(); i < size; i++) {
+                generator.writeNumber(value.get(i));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static class LongListSerializer extends StdSerializer<LongList> {
+
+        private LongListSerializer() {
+            super(LongList.class);
+        }
+
+        @Override
+        public void serialize(LongList value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartArray();
+            for (int i = 0, size = value.size(); i < size; i++) {
+                generator.writeNumber(value.get(i));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static class DoubleListSerializer extends StdSerializer<DoubleList> {
+
+        private DoubleListSerializer() {
+            super(DoubleList.class);
+        }
+
+        @Override
+        public void serialize(DoubleList value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartArray();
+            for (int i = 0, size = value.size(); i < size; i++) {
+                generator.writeNumber(value.get(i));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static class LongDoubleMapSerializer extends StdSerializer<LongDoubleMap> {
+
+        private LongDoubleMapSerializer() {
+            super(LongDoubleMap.class);
+        }
+
+        @Override
+        public void serialize(LongDoubleMap value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartObject();
+            LongDoubleMap.Cursor cursor = value.cursor();
+            while (cursor.next()) {
+                generator.writeFieldName(Long.toString(cursor.key()));
+                generator.writeNumber(cursor.value());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static class IntListDeserializer extends StdDeserializer<IntList> {
+
+        private static final long serialVersionUID = 1L;
+
+        private IntListDeserializer() {
+            super(IntList.class);
+        }
+
+        @Override
+        public IntList deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            expect(parser, context, JsonToken.START_ARRAY, IntList.class);
+            IntList list = new IntList();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                expectNumber(parser, context, IntList.class);
+                list.add(parser.getIntValue());
+            }
+            return list;
+        }
+    }
+
+    private static class LongListDeserializer extends StdDeserializer<LongList> {
+
+        private static final long serialVersionUID = 1L;
+
+        private LongListDeserializer() {
+            super(LongList.class);
+        }
+
+        @Override
+        public LongList deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            expect(parser, context, JsonToken.START_ARRAY, LongList.class);
+            LongList list = new LongList();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                expectNumber(parser, context, LongList.class);
+                list.add(parser.getLongValue());
+            }
+            return list;
+        }
+    }
+
+    private static class DoubleListDeserializer extends StdDeserializer<DoubleList> {
+
+        private static final long serialVersionUID = 1L;
+
+        private DoubleListDeserializer() {
+            super(DoubleList.class);
+        }
+
+        @Override
+        public DoubleList deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            expect(parser, context, JsonToken.START_ARRAY, DoubleList.class);
+            DoubleList list = new DoubleList();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                expectNumber(parser, context, DoubleList.class);
+                list.add(parser.getDoubleValue());
+            }
+            return list;
+        }
+    }
+
+    private static class LongDoubleMapDeserializer extends StdDeserializer<LongDoubleMap> {
+
+        private static final long serialVersionUID = 1L;
+
+        private LongDoubleMapDeserializer() {
+            super(LongDoubleMap.class);
+        }
+
+        @Override
+        public LongDoubleMap deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            expect(parser, context, JsonToken.START_OBJECT, LongDoubleMap.class);
+            LongDoubleMap map = new LongDoubleMap();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                long key;
+                try {
+                    key = Long.parseLong(parser.getCurrentName());
+                } catch (NumberFormatException e) {
+                    throw context.weirdKeyException(Long.class, parser.getCurrentName(), "not a long");
+                }
+                parser.nextToken();
+                expectNumber(parser, context, LongDoubleMap.class);
+                map.put(key, parser.getDoubleValue());
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.leespy.json;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界的字符串值缓存, 让反序列化出的重复短字符串(状态码、国家码、币种...)共享同一个实例.
+ * 直接用parser缓冲区中的字符查找, 命中时不创建String.
+ * 每个字符串可放在两个相邻槽位之一, 都被占用时淘汰较旧的一个; 无锁, 并发读写至多造成一次未命中
+ */
+public final class StringCache {
+
+    /**
+     * @JsonIntern注解的属性使用的缓存
+     */
+    public static final StringCache DEFAULT = new StringCache(4096, 32);
+
+    /**
+     * 字符串是不可变对象, 槽位的竞争写入不会暴露未初始化的实例
+     */
+    private final String[] table;
+
+    private final int mask;
+
+    private final int maxLength;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity  最多缓存的字符串数, 向上取整为2的幂
+     * @param maxLength 只缓存不超过该长度的字符串
+     */
+    public StringCache(int capacity, int maxLength) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.table = new String[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 返回与字符区间内容相同的缓存实例, 超过maxLength时直接创建
+     */
+    public String intern(char[] chars, int offset, int length) {
+        if (length > maxLength) {
+            return new String(chars, offset, length);
+        }
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = spread(hash) & mask;
+        String first = table[slot];
+        if (first != null && matches(first, chars, offset, length)) {
+            hits.increment();
+            return first;
+        }
+        String second = table[slot ^ 1];
+        if (second != null && matches(second, chars, offset, length)) {
+            hits.increment();
+            return second;
+        }
+        misses.increment();
+        String value = new String(chars, offset, length);
+        // the most recent entry takes the first slot, the previous one moves to the second
+        if (first != null) {
+            table[slot ^ 1] = first;
+        }
+        table[slot] = value;
+        return value;
+    }
+
+    /**
+     * 返回与value内容相同的缓存实例
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maxLength) {
+            return value;
+        }
+        int slot = spread(value.hashCode()) & mask;
+        String first = table[slot];
+        if (value.equals(first)) {
+            hits.increment();
+            return first;
+        }
+        String second = table[slot ^ 1];
+        if (value.equals(second)) {
+            hits.increment();
+            return second;
+        }
+        misses.increment();
+        if (first != null) {
+            table[slot ^ 1] = first;
+        }
+        table[slot] = value;
+        return value;
+    }
+
+    /**
+     * 只缓存不超过该长度的字符串
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * 查找命中的次数
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * 查找未命中而新建字符串的次数, 不含超过maxLength的字符串
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * 命中率, 尚无查找时为0
+     */
+    public double hitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    private static boolean matches(String value, char[] chars, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        // String.hashCode clusters for short ascii strings
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "StringCache(capacity=" + table.length + ", maxLength=" + maxLength + ", hits=" + hits()
+                + ", misses=" + misses() + ")";
+    }
+}
@@ -0,0 +1,154 @@
+package com.leespy.collect;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 冲突键的增删查、扩容与键0, 以及随机操作序列与HashMap的结果一致
+ */
+public class LongDoubleMapTest {
+
+    private static final double MISSING = -1;
+
+    @Test
+    public void zeroKeyIsStoredApart() {
+        LongDoubleMap map = new LongDoubleMap();
+        assertFalse(map.containsKey(0));
+        assertEquals(MISSING, map.put(0, 1.5, MISSING), 0);
+        assertEquals(1.5, map.put(0, 2.5, MISSING), 0);
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey(0));
+        assertEquals(2.5, map.get(0, MISSING), 0);
+
+        map.put(7, 7);
+        assertEquals("{0=2.5, 7=7.0}", map.toString());
+        assertEquals(2.5, map.remove(0, MISSING), 0);
+        assertEquals(MISSING, map.remove(0, MISSING), 0);
+        assertFalse(map.containsKey(0));
+        assertEquals(1, map.size());
+        assertEquals(7, map.get(7, MISSING), 0);
+    }
+
+    @Test
+    public void removeKeepsCollidingKeysReachable() {
+        // a 4 slot table, the expected size of 3 does not grow it
+        long[] keys = collidingKeys(4, 3);
+        for (int removed = 0; removed < keys.length; removed++) {
+            LongDoubleMap map = new LongDoubleMap(3);
+            for (long key : keys) {
+                map.put(key, key);
+            }
+            assertEquals(keys[removed], map.remove(keys[removed], MISSING), 0);
+            for (int i = 0; i < keys.length; i++) {
+                assertEquals(i == removed ? MISSING : keys[i], map.get(keys[i], MISSING), 0);
+                assertEquals(i != removed, map.containsKey(keys[i]));
+            }
+            assertEquals(keys.length - 1, map.size());
+            // the freed slot can be reused
+            map.put(keys[removed], 0.5);
+            assertEquals(0.5, map.get(keys[removed], MISSING), 0);
+        }
+    }
+
+    @Test
+    public void removeWrapsAroundTheTable() {
+        // keys whose home slot is the last one spill over to the start of the table
+        long[] keys = collidingKeys(8, 4);
+        LongDoubleMap map = new LongDoubleMap(6);
+        for (long key : keys) {
+            map.put(key, key);
+        }
+        map.remove(keys[0], MISSING);
+        map.remove(keys[2], MISSING);
+        assertEquals(keys[1], map.get(keys[1], MISSING), 0);
+        assertEquals(keys[3], map.get(keys[3], MISSING), 0);
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void rehashKeepsAllMappings() {
+        LongDoubleMap map = new LongDoubleMap(0);
+        for (long key = -500; key <= 500; key++) {
+            map.put(key * 31, key);
+        }
+        assertEquals(1001, map.size());
+        for (long key = -500; key <= 500; key++) {
+            assertEquals(key, map.get(key * 31, MISSING), 0);
+        }
+        int count = 0;
+        LongDoubleMap.Cursor cursor = map.cursor();
+        while (cursor.next()) {
+            assertEquals(cursor.key(), cursor.value() * 31, 0);
+            count++;
+        }
+        assertEquals(1001, count);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+        assertFalse(map.cursor().next());
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            LongDoubleMap map = new LongDoubleMap(random.nextInt(8));
+            Map<Long, Double> expected = new HashMap<Long, Double>();
+            // a small key range forces collisions, removals and re-insertions
+            int range = 8 + random.nextInt(200);
+            for (int op = 0; op < 5000; op++) {
+                long key = random.nextInt(range) - range / 4;
+                if (random.nextInt(3) == 0) {
+                    Double old = expected.remove(key);
+                    assertEquals(old == null ? MISSING : old, map.remove(key, MISSING), 0);
+                } else {
+                    double value = random.nextDouble();
+                    Double old = expected.put(key, value);
+                    assertEquals(old == null ? MISSING : old, map.put(key, value, MISSING), 0);
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            for (long key = -range; key < range; key++) {
+                Double value = expected.get(key);
+                assertEquals(value != null, map.containsKey(key));
+                assertEquals(value == null ? MISSING : value, map.get(key, MISSING), 0);
+            }
+            Map<Long, Double> iterated = new HashMap<Long, Double>();
+            LongDoubleMap.Cursor cursor = map.cursor();
+            while (cursor.next()) {
+                assertEquals(null, iterated.put(cursor.key(), cursor.value()));
+            }
+            assertEquals(expected, iterated);
+        }
+    }
+
+    /**
+     * 在capacity个槽位的表中落到同一槽位(最后一个)的非0键
+     */
+    private static long[] collidingKeys(int capacity, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            if (home(key, capacity) == capacity - 1) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 与LongDoubleMap.mix相同的散列
+     */
+    private static int home(long key, int capacity) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (capacity - 1);
+    }
+}
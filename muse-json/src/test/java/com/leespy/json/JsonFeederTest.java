@@ -0,0 +1,150 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 在每个字节处切分输入, 分块边界落在字符串、转义、多字节字符与标量中间时结果与整体解析一致
+ */
+public class JsonFeederTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Jsoner jsoner = Jsoner.DEFAULT;
+
+    @Test
+    public void valueSequenceSplitAnywhere() throws IOException {
+        String json = "{\"a\":\"x\\\"}y\",\"b\":[1,2,{\"c\":\"\\\\\"}]}\n"
+                + "{\"a\":\"é日 ]\\u0041\"}\n"
+                + "[\"[\",{\"}\":\"{\"}]\n";
+        assertSplitAnywhere(json, false);
+    }
+
+    @Test
+    public void scalarsSplitAnywhere() throws IOException {
+        // the last number is only known to be complete at end()
+        String json = "1 -2.5e3 true false null \"s\\\\\\\"\" 12 \"t\"\r\n\t0.125 42";
+        assertSplitAnywhere(json, false);
+    }
+
+    @Test
+    public void arrayElementsSplitAnywhere() throws IOException {
+        String json = " [1, \"a,b]\", {\"k\":\"v\\\\\"}, true, null, [2,[3]], -0.5,\"\\\"\",1e2 ] ";
+        assertSplitAnywhere(json, true);
+    }
+
+    @Test
+    public void emptyArraysSplitAnywhere() throws IOException {
+        assertSplitAnywhere("[]", true);
+        assertSplitAnywhere(" [ [], {}, [ ] ] ", true);
+    }
+
+    @Test
+    public void onlyUnfinishedValueIsBuffered() throws IOException {
+        List<Object> values = new ArrayList<Object>();
+        JsonFeeder<Object> feeder = jsoner.feeder(Object.class, collect(values));
+        feed(feeder, "{\"a\":1}\n{\"b\":");
+        assertEquals(1, values.size());
+        assertEquals("{\"b\":".length(), feeder.buffered());
+        feed(feeder, "2}\n");
+        assertEquals(0, feeder.buffered());
+        feeder.end();
+        assertEquals(2, feeder.count());
+    }
+
+    @Test
+    public void malformedInputFails() throws IOException {
+        assertFails("{\"a\":\"b", false);
+        assertFails("{\"a\":1", false);
+        assertFails("\"abc\\\"", false);
+        assertFails("[1,2", true);
+        assertFails("{\"a\":1}}", false);
+        assertFails("[1] 2", true);
+        assertFails("[1] \"x\"", true);
+        assertFails("5 [1]", true);
+        assertFails("\"x\" [1]", true);
+        assertFails("{}", true);
+        // jackson rejects a missing, leading, doubled or trailing comma
+        assertFails("[1 2]", true);
+        assertFails("[\"a\" {}]", true);
+        assertFails("[[1] [2]]", true);
+        assertFails("[,1]", true);
+        assertFails("[1,,2]", true);
+        assertFails("[1,]", true);
+        assertFails("[,]", true);
+    }
+
+    private void assertSplitAnywhere(String json, boolean array) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<Object> expected = expected(json, array);
+        for (int split = 0; split <= bytes.length; split++) {
+            List<Object> values = new ArrayList<Object>();
+            JsonFeeder<Object> feeder = newFeeder(array, values);
+            feeder.feed(bytes, 0, split);
+            feeder.feed(bytes, split, bytes.length - split);
+            feeder.end();
+            assertEquals("split at " + split, expected, values);
+        }
+        List<Object> values = new ArrayList<Object>();
+        JsonFeeder<Object> feeder = newFeeder(array, values);
+        for (int i = 0; i < bytes.length; i++) {
+            feeder.feed(bytes, i, 1);
+        }
+        feeder.end();
+        assertEquals("byte by byte", expected, values);
+        assertEquals(expected.size(), feeder.count());
+    }
+
+    private void assertFails(String json, boolean array) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        JsonFeeder<Object> feeder = newFeeder(array, new ArrayList<Object>());
+        try {
+            for (int i = 0; i < bytes.length; i++) {
+                feeder.feed(bytes, i, 1);
+            }
+            feeder.end();
+            fail("accepted " + json);
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    private JsonFeeder<Object> newFeeder(boolean array, List<Object> values) {
+        return array ? jsoner.arrayFeeder(Object.class, collect(values)) : jsoner.feeder(Object.class, collect(values));
+    }
+
+    private static List<Object> expected(String json, boolean array) throws IOException {
+        if (array) {
+            return MAPPER.readValue(json, List.class);
+        }
+        List<Object> values = new ArrayList<Object>();
+        MappingIterator<Object> it = MAPPER.reader(Object.class).readValues(json);
+        while (it.hasNext()) {
+            values.add(it.next());
+        }
+        return values;
+    }
+
+    private static void feed(JsonFeeder<Object> feeder, String chunk) throws IOException {
+        byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+        feeder.feed(bytes, 0, bytes.length);
+    }
+
+    private static JsonFeedHandler<Object> collect(final List<Object> values) {
+        return new JsonFeedHandler<Object>() {
+            @Override
+            public void onValue(Object value) {
+                values.add(value);
+            }
+        };
+    }
+}
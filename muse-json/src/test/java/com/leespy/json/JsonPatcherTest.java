@@ -0,0 +1,233 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * RFC 6902与RFC 7396附录中的示例, 泛型根容器, 以及失败时撤销已应用的操作
+ */
+public class JsonPatcherTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Jsoner jsoner = Jsoner.DEFAULT;
+
+    @Test
+    public void rfc6902Examples() throws IOException {
+        assertPatch("{'foo':'bar'}", "[{'op':'add','path':'/baz','value':'qux'}]", "{'baz':'qux','foo':'bar'}");
+        assertPatch("{'foo':['bar','baz']}", "[{'op':'add','path':'/foo/1','value':'qux'}]",
+                "{'foo':['bar','qux','baz']}");
+        assertPatch("{'baz':'qux','foo':'bar'}", "[{'op':'remove','path':'/baz'}]", "{'foo':'bar'}");
+        assertPatch("{'foo':['bar','qux','baz']}", "[{'op':'remove','path':'/foo/1'}]", "{'foo':['bar','baz']}");
+        assertPatch("{'baz':'qux','foo':'bar'}", "[{'op':'replace','path':'/baz','value':'boo'}]",
+                "{'baz':'boo','foo':'bar'}");
+        assertPatch("{'foo':{'bar':'baz','waldo':'fred'},'qux':{'corge':'grault'}}",
+                "[{'op':'move','from':'/foo/waldo','path':'/qux/thud'}]",
+                "{'foo':{'bar':'baz'},'qux':{'corge':'grault','thud':'fred'}}");
+        assertPatch("{'foo':['all','grass','cows','eat']}", "[{'op':'move','from':'/foo/1','path':'/foo/3'}]",
+                "{'foo':['all','cows','eat','grass']}");
+        assertPatch("{'baz':'qux','foo':['a',2,'c']}",
+                "[{'op':'test','path':'/baz','value':'qux'},{'op':'test','path':'/foo/1','value':2}]",
+                "{'baz':'qux','foo':['a',2,'c']}");
+        assertPatchFails("{'baz':'qux'}", "[{'op':'test','path':'/baz','value':'bar'}]");
+        assertPatch("{'foo':'bar'}", "[{'op':'add','path':'/child','value':{'grandchild':{}}}]",
+                "{'foo':'bar','child':{'grandchild':{}}}");
+        assertPatch("{'foo':'bar'}", "[{'op':'add','path':'/baz','value':'qux','xyz':123}]",
+                "{'foo':'bar','baz':'qux'}");
+        assertPatchFails("{'foo':'bar'}", "[{'op':'add','path':'/baz/bat','value':'qux'}]");
+        assertPatch("{'/':9,'~1':10}", "[{'op':'test','path':'/~01','value':10}]", "{'/':9,'~1':10}");
+        assertPatchFails("{'/':9,'~1':10}", "[{'op':'test','path':'/~01','value':'10'}]");
+        assertPatch("{'foo':['bar']}", "[{'op':'add','path':'/foo/-','value':['abc','def']}]",
+                "{'foo':['bar',['abc','def']]}");
+    }
+
+    @Test
+    public void rfc7396Examples() throws IOException {
+        assertMerge("{'a':'b'}", "{'a':'c'}", "{'a':'c'}");
+        assertMerge("{'a':'b'}", "{'b':'c'}", "{'a':'b','b':'c'}");
+        assertMerge("{'a':'b'}", "{'a':null}", "{}");
+        assertMerge("{'a':'b','b':'c'}", "{'a':null}", "{'b':'c'}");
+        assertMerge("{'a':['b']}", "{'a':'c'}", "{'a':'c'}");
+        assertMerge("{'a':'c'}", "{'a':['b']}", "{'a':['b']}");
+        assertMerge("{'a':{'b':'c'}}", "{'a':{'b':'d','c':null}}", "{'a':{'b':'d'}}");
+        assertMerge("{'a':[{'b':'c'}]}", "{'a':[1]}", "{'a':[1]}");
+        assertMerge("['a','b']", "['c','d']", "['c','d']");
+        assertMerge("{'a':'b'}", "['c']", "['c']");
+        assertMerge("{'a':'foo'}", "null", "null");
+        assertMerge("{'a':'foo'}", "'bar'", "'bar'");
+        assertMerge("{'e':null}", "{'a':1}", "{'e':null,'a':1}");
+        assertMerge("[1,2]", "{'a':'b','c':null}", "{'a':'b'}");
+        assertMerge("{}", "{'a':{'bb':{'ccc':null}}}", "{'a':{'bb':{}}}");
+    }
+
+    @Test
+    public void typedRootMapConvertsValuesAndKeys() throws IOException {
+        Map<String, Config> configs = new LinkedHashMap<String, Config>();
+        configs.put("a", new Config("a", 1));
+        jsoner.applyPatch(configs, new TypeReference<Map<String, Config>>() {
+        }, patch("[{'op':'add','path':'/b','value':{'name':'b','size':2}}]"));
+        Object added = configs.get("b");
+        assertTrue(added instanceof Config);
+        assertEquals(2, ((Config) added).getSize());
+
+        jsoner.mergePatch(configs, new TypeReference<Map<String, Config>>() {
+        }, json("{'c':{'name':'c'},'a':{'size':5}}"));
+        assertTrue((Object) configs.get("c") instanceof Config);
+        assertEquals("a", configs.get("a").getName());
+        assertEquals(5, configs.get("a").getSize());
+
+        Map<Integer, Config> byId = new LinkedHashMap<Integer, Config>();
+        jsoner.applyPatch(byId, new TypeReference<Map<Integer, Config>>() {
+        }, patch("[{'op':'add','path':'/7','value':{'name':'seven'}}]"));
+        assertEquals("seven", byId.get(7).getName());
+    }
+
+    @Test
+    public void typedRootListConvertsElements() throws IOException {
+        List<Config> configs = new ArrayList<Config>();
+        jsoner.applyPatch(configs, jsoner.createCollectionType(List.class, Config.class),
+                patch("[{'op':'add','path':'/-','value':{'name':'x','size':3}}]"));
+        assertTrue((Object) configs.get(0) instanceof Config);
+        assertEquals(3, configs.get(0).getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void typedRootMustMatchTarget() throws IOException {
+        jsoner.applyPatch(new ArrayList<Config>(), jsoner.createCollectionType(Map.class, String.class, Config.class),
+                patch("[]"));
+    }
+
+    @Test
+    public void failedPatchLeavesNodeUnchanged() throws IOException {
+        JsonNode target = json("{'a':1,'b':{'c':[1,2,3]},'d':'x','e':true}");
+        String before = target.toString();
+        try {
+            jsoner.applyPatch(target, patch("[{'op':'add','path':'/z','value':1},"
+                    + "{'op':'remove','path':'/b/c/1'},"
+                    + "{'op':'replace','path':'/d','value':'y'},"
+                    + "{'op':'move','from':'/a','path':'/b/a'},"
+                    + "{'op':'add','path':'/b/c/0','value':0},"
+                    + "{'op':'remove','path':'/e'},"
+                    + "{'op':'test','path':'/d','value':'x'}]"));
+            fail("test operation should fail");
+        } catch (JsonPatchException expected) {
+            // the property order is restored too
+            assertEquals(before, target.toString());
+        }
+    }
+
+    @Test
+    public void failedPatchLeavesContainersUnchanged() throws IOException {
+        Map<String, Object> target = new LinkedHashMap<String, Object>();
+        target.put("a", 1);
+        target.put("b", "two");
+        List<Object> list = new ArrayList<Object>();
+        list.add("x");
+        list.add("y");
+        target.put("list", list);
+        target.put("c", 3);
+        String before = target.toString();
+        try {
+            jsoner.applyPatch(target, patch("[{'op':'remove','path':'/a'},"
+                    + "{'op':'add','path':'/list/1','value':'z'},"
+                    + "{'op':'remove','path':'/list/0'},"
+                    + "{'op':'replace','path':'/b','value':2},"
+                    + "{'op':'add','path':'/d','value':4},"
+                    + "{'op':'remove','path':'/missing'}]"));
+            fail("remove of a missing path should fail");
+        } catch (JsonPatchException expected) {
+            assertEquals(before, target.toString());
+            assertSame(list, target.get("list"));
+        }
+    }
+
+    @Test
+    public void failedMergeLeavesBeanUnchanged() throws IOException {
+        Config config = new Config("old", 1);
+        try {
+            jsoner.mergePatch(config, json("{'name':'new','size':'large'}"));
+            fail("size is not a number");
+        } catch (JsonPatchException expected) {
+            assertEquals("old", config.getName());
+            assertEquals(1, config.getSize());
+        }
+
+        jsoner.mergePatch(config, json("{'name':null,'size':2}"));
+        assertNull(config.getName());
+        assertEquals(2, config.getSize());
+    }
+
+    private void assertPatch(String target, String patch, String expected) throws IOException {
+        JsonNode node = json(target);
+        assertEquals(json(expected), jsoner.applyPatch(node, patch(patch)));
+    }
+
+    private void assertPatchFails(String target, String patch) throws IOException {
+        JsonNode node = json(target);
+        try {
+            jsoner.applyPatch(node, patch(patch));
+            fail("should fail: " + patch);
+        } catch (JsonPatchException expected) {
+            assertEquals(json(target), node);
+        }
+    }
+
+    private void assertMerge(String target, String patch, String expected) throws IOException {
+        assertEquals(json(expected), jsoner.mergePatch(json(target), json(patch)));
+    }
+
+    private JsonPatch patch(String json) throws IOException {
+        byte[] bytes = json.replace('\'', '"').getBytes(StandardCharsets.UTF_8);
+        return jsoner.readPatch(bytes, 0, bytes.length);
+    }
+
+    private static JsonNode json(String json) throws IOException {
+        return MAPPER.readTree(json.replace('\'', '"'));
+    }
+
+    public static class Config {
+
+        private String name;
+
+        private int size;
+
+        public Config() {
+        }
+
+        public Config(String name, int size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.leespy.json;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leespy.collect.DoubleList;
+import com.leespy.collect.IntList;
+import com.leespy.collect.LongDoubleMap;
+import com.leespy.collect.LongList;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 基本类型列表与LongDoubleMap经Jsoner的往返, 以及null、浮点数与非数字输入
+ */
+public class PrimitiveModuleTest {
+
+    private final Jsoner jsoner = Jsoner.DEFAULT;
+
+    private final ObjectMapper mapper = Jsoner.DEFAULT.mapper();
+
+    @Test
+    public void listsRoundTrip() {
+        IntList ints = IntList.of(0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        assertEquals("[0,-1,2147483647,-2147483648]", jsoner.toJson(ints));
+        assertEquals(ints, jsoner.fromJson(jsoner.toJson(ints), IntList.class));
+
+        LongList longs = LongList.of(Long.MIN_VALUE, 0, Long.MAX_VALUE);
+        assertEquals(longs, jsoner.fromJson(jsoner.toJson(longs), LongList.class));
+
+        DoubleList doubles = DoubleList.of(0.1, -2.5e-300, 1e300, 3);
+        assertEquals(doubles, jsoner.fromJson(jsoner.toJson(doubles), DoubleList.class));
+
+        assertEquals("[]", jsoner.toJson(new IntList()));
+        assertEquals(new IntList(), jsoner.fromJson("[]", IntList.class));
+    }
+
+    @Test
+    public void mapRoundTrip() {
+        LongDoubleMap map = new LongDoubleMap();
+        map.put(0, 0.5);
+        map.put(-3, -1e-9);
+        map.put(Long.MAX_VALUE, 2);
+        LongDoubleMap read = jsoner.fromJson(jsoner.toJson(map), LongDoubleMap.class);
+        assertEquals(3, read.size());
+        assertEquals(0.5, read.get(0, Double.NaN), 0);
+        assertEquals(-1e-9, read.get(-3, Double.NaN), 0);
+        assertEquals(2, read.get(Long.MAX_VALUE, Double.NaN), 0);
+
+        assertEquals("{\"5\":1.0}", jsoner.toJson(singleton(5, 1)));
+        assertEquals(0, jsoner.fromJson("{}", LongDoubleMap.class).size());
+    }
+
+    @Test
+    public void beanFieldsRoundTrip() {
+        Series series = new Series();
+        series.ids = LongList.of(1, 2);
+        series.weights = singleton(1, 0.25);
+        Series read = jsoner.fromJson(jsoner.toJson(series), Series.class);
+        assertEquals(series.ids, read.ids);
+        assertEquals(0.25, read.weights.get(1, Double.NaN), 0);
+        assertNull(read.counts);
+
+        read = jsoner.fromJson("{\"ids\":null,\"counts\":[3]}", Series.class);
+        assertNull(read.ids);
+        assertEquals(IntList.of(3), read.counts);
+    }
+
+    @Test
+    public void nullValueIsNullButNullElementFails() throws IOException {
+        assertNull(mapper.readValue("null", IntList.class));
+        assertNull(mapper.readValue("null", LongDoubleMap.class));
+        assertFails("[1,null]", IntList.class);
+        assertFails("[null]", LongList.class);
+        assertFails("[0.5,null]", DoubleList.class);
+        assertFails("{\"1\":null}", LongDoubleMap.class);
+    }
+
+    @Test
+    public void floatsAreTruncatedLikeJacksonIntArrays() throws IOException {
+        assertEquals(IntList.of(1, -1, 3), mapper.readValue("[1.9,-1.9,3e0]", IntList.class));
+        assertEquals(LongList.of(2, 5000000000L), mapper.readValue("[2.5,5e9]", LongList.class));
+        int[] jackson = mapper.readValue("[1.9,-1.9,3e0]", int[].class);
+        assertEquals(IntList.of(jackson), mapper.readValue("[1.9,-1.9,3e0]", IntList.class));
+        // ints become doubles without loss
+        assertEquals(DoubleList.of(1, -7), mapper.readValue("[1,-7]", DoubleList.class));
+        assertEquals(4, mapper.readValue("{\"1\":4}", LongDoubleMap.class).get(1, Double.NaN), 0);
+    }
+
+    @Test
+    public void malformedInputFails() {
+        assertFails("[5000000000]", IntList.class);
+        assertFails("[1e10]", IntList.class);
+        assertFails("[\"1\"]", IntList.class);
+        assertFails("[[1]]", LongList.class);
+        assertFails("[true]", DoubleList.class);
+        assertFails("1", IntList.class);
+        assertFails("{\"a\":1}", LongList.class);
+        assertFails("[1]", LongDoubleMap.class);
+        assertFails("{\"x\":1}", LongDoubleMap.class);
+        assertFails("{\"1.5\":1}", LongDoubleMap.class);
+        assertFails("{\"1\":\"2\"}", LongDoubleMap.class);
+    }
+
+    private void assertFails(String json, Class<?> type) {
+        try {
+            mapper.readValue(json, type);
+            fail("accepted " + json + " as " + type.getSimpleName());
+        } catch (JsonMappingException expected) {
+            // expected
+        } catch (IOException e) {
+            assertTrue(json + ": " + e, e.getMessage() != null);
+        }
+    }
+
+    private static LongDoubleMap singleton(long key, double value) {
+        LongDoubleMap map = new LongDoubleMap();
+        map.put(key, value);
+        return map;
+    }
+
+    public static class Series {
+
+        public LongList ids;
+
+        public IntList counts;
+
+        public LongDoubleMap weights;
+    }
+}